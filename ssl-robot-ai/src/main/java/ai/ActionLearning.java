@@ -6,6 +6,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Properties;
+import java.util.random.RandomGenerator;
 import tactics.ScoreGrid;
 import ui.FieldConfig;
 import world.Ball;
@@ -120,7 +121,8 @@ public final class ActionLearning {
         return f;
     }
 
-    public static synchronized boolean chooseShoot(double[] features, double epsilon) {
+    /** Sample shoot (true) or pass (false); all randomness comes from {@code rng}. */
+    public static synchronized boolean chooseShoot(double[] features, double epsilon, RandomGenerator rng) {
         ensureLoaded();
         if (features == null || features.length != F_COUNT) return false;
 
@@ -128,11 +130,11 @@ public final class ActionLearning {
         double p = sigmoid(z);
 
         // Add a small epsilon for exploration.
-        double u = Math.random();
+        double u = rng.nextDouble();
         if (u < epsilon) {
-            return Math.random() < 0.5;
+            return rng.nextDouble() < 0.5;
         }
-        return Math.random() < p;
+        return rng.nextDouble() < p;
     }
 
     public static synchronized void applyReward(boolean actionShoot, double reward, double[] features) {
@@ -1,5 +1,6 @@
 package ai;
 
+import geom.Geometry;
 import ui.FieldConfig;
 import world.Ball;
 import world.Robot;
@@ -56,9 +57,9 @@ public class DefenderBehavior implements Behavior {
 
         // If there is a receiver, try to cut the pass line ball->receiver.
         if (receiver != null) {
-            double[] p = closestPointOnSegment(ball.x, ball.y, receiver.x, receiver.y, self.x, self.y);
-            targetX = p[0];
-            targetY = p[1];
+            double t = Geometry.projectT(ball.x, ball.y, receiver.x, receiver.y, self.x, self.y);
+            targetX = ball.x + t * (receiver.x - ball.x);
+            targetY = ball.y + t * (receiver.y - ball.y);
 
             // Encourage staying in our half
             targetX = Math.min(targetX, 0.0);
@@ -105,26 +106,6 @@ public class DefenderBehavior implements Behavior {
         return best;
     }
 
-    /**
-     * Closest point to (px,py) on segment AB.
-     */
-    private static double[] closestPointOnSegment(double ax, double ay, double bx, double by, double px, double py) {
-        double abx = bx - ax;
-        double aby = by - ay;
-        double apx = px - ax;
-        double apy = py - ay;
-
-        double ab2 = abx * abx + aby * aby;
-        if (ab2 <= 1e-9) {
-            return new double[] { ax, ay };
-        }
-
-        double t = (apx * abx + apy * aby) / ab2;
-        t = clamp(t, 0.0, 1.0);
-
-        return new double[] { ax + t * abx, ay + t * aby };
-    }
-
     private static void moveTo(RobotCommand cmd, Robot self, double targetX, double targetY, double speed) {
         double dx = targetX - self.x;
         double dy = targetY - self.y;
@@ -141,8 +122,4 @@ public class DefenderBehavior implements Behavior {
         cmd.vy = (dy / dist) * speed;
         cmd.omega = 0;
     }
-
-    private static double clamp(double v, double min, double max) {
-        return Math.max(min, Math.min(max, v));
-    }
 }
@@ -6,6 +6,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Properties;
+import geom.Geometry;
+import tactics.ArrivalField;
+import tactics.TeamRaster;
 import ui.FieldConfig;
 import world.Ball;
 import world.Robot;
@@ -36,6 +39,9 @@ public final class PassLearning {
     private static final int F_CENTRAL = 4;
     private static final int F_COUNT = 5;
 
+    // Opponent arrival time that counts as fully open.
+    private static final double OPEN_SCALE_S = 2.5 / TeamRaster.ROBOT_SPEED_MPS;
+
     private static final double[] W = new double[F_COUNT];
 
     private static boolean loaded = false;
@@ -106,6 +112,20 @@ public final class PassLearning {
                                                            int teamSign,
                                                            double minDist,
                                                            double maxDist) {
+        return pickBestReceiver(passer, world, teamSign, minDist, maxDist, null);
+    }
+
+    /**
+     * {@link #pickBestReceiver(Robot, WorldState, int, double, double)} reading the opponents'
+     * arrival times from {@code oppArrival} (in the frame of {@code world}, begun on the current
+     * positions; null scans the opponents instead, with the same result).
+     */
+    public static synchronized ScoredPass pickBestReceiver(Robot passer,
+                                                           WorldState world,
+                                                           int teamSign,
+                                                           double minDist,
+                                                           double maxDist,
+                                                           ArrivalField oppArrival) {
         ensureLoaded();
         if (passer == null || world == null || world.ball == null) return null;
 
@@ -125,7 +145,7 @@ public final class PassLearning {
             double d = Math.sqrt(dist2(r.x, r.y, ball.x, ball.y));
             if (d < minDist || d > maxDist) continue;
 
-            double[] f = features(ball.x, ball.y, teamSign, r, opps);
+            double[] f = features(ball.x, ball.y, teamSign, r, opps, oppArrival);
             double s = dot(W, f);
             if (s > bestScore) {
                 bestScore = s;
@@ -143,6 +163,12 @@ public final class PassLearning {
      * Returns null if receiver cannot be found.
      */
     public static synchronized double[] featuresForReceiver(WorldState world, int teamSign, int receiverId) {
+        return featuresForReceiver(world, teamSign, receiverId, null);
+    }
+
+    /** {@link #featuresForReceiver(WorldState, int, int)} with arrival times as in {@link #pickBestReceiver}. */
+    public static synchronized double[] featuresForReceiver(WorldState world, int teamSign, int receiverId,
+                                                            ArrivalField oppArrival) {
         ensureLoaded();
         if (world == null || world.ball == null) return null;
         List<Robot> mates = (teamSign == +1) ? world.ourRobots : world.oppRobots;
@@ -157,7 +183,7 @@ public final class PassLearning {
             }
         }
         if (recv == null) return null;
-        return features(world.ball.x, world.ball.y, teamSign, recv, opps);
+        return features(world.ball.x, world.ball.y, teamSign, recv, opps, oppArrival);
     }
 
     public static synchronized void applyReward(double reward, double[] features) {
@@ -200,19 +226,22 @@ public final class PassLearning {
                                      double ballY,
                                      int teamSign,
                                      Robot receiver,
-                                     List<Robot> opps) {
+                                     List<Robot> opps,
+                                     ArrivalField oppArrival) {
         double[] f = new double[F_COUNT];
 
         // 1) Forward progress (positive is good)
         double forward = (receiver.x - ballX) * teamSign;
         f[F_FORWARD] = clamp(forward / 3.5, -1.0, 1.0);
 
-        // 2) Receiver openness: distance to nearest opponent
-        double open = nearestOpponentDistance(receiver, opps);
-        f[F_OPENNESS] = clamp(open / 2.5, 0.0, 1.2);
+        // 2) Receiver openness: time for the opponents to reach the receiver (2.5 m of travel = 1)
+        double open = (oppArrival != null)
+                ? oppArrival.time(receiver.x, receiver.y)
+                : nearestOpponentDistance(receiver, opps) / TeamRaster.ROBOT_SPEED_MPS;
+        f[F_OPENNESS] = clamp(open / OPEN_SCALE_S, 0.0, 1.2);
 
         // 3) Lane clearance: min distance of any opponent to pass segment
-        double lane = laneClearance(ballX, ballY, receiver.x, receiver.y, opps);
+        double lane = Geometry.segmentClearance(ballX, ballY, receiver.x, receiver.y, opps, 9.0);
         f[F_LANE] = clamp(lane / 1.0, 0.0, 1.5);
 
         // 4) Range preference: peak around 2m
@@ -238,31 +267,6 @@ public final class PassLearning {
         return best;
     }
 
-    private static double laneClearance(double ax, double ay, double bx, double by, List<Robot> opps) {
-        if (opps == null || opps.isEmpty()) return 9.0;
-        double best = 9.0;
-        for (Robot o : opps) {
-            if (o == null) continue;
-            double d = distancePointToSegment(o.x, o.y, ax, ay, bx, by);
-            if (d < best) best = d;
-        }
-        return best;
-    }
-
-    private static double distancePointToSegment(double px, double py, double ax, double ay, double bx, double by) {
-        double abx = bx - ax;
-        double aby = by - ay;
-        double apx = px - ax;
-        double apy = py - ay;
-        double ab2 = abx * abx + aby * aby;
-        if (ab2 <= 1e-9) return Math.sqrt((px - ax) * (px - ax) + (py - ay) * (py - ay));
-        double t = (apx * abx + apy * aby) / ab2;
-        t = clamp(t, 0.0, 1.0);
-        double cx = ax + t * abx;
-        double cy = ay + t * aby;
-        return Math.sqrt((px - cx) * (px - cx) + (py - cy) * (py - cy));
-    }
-
     private static double dot(double[] w, double[] x) {
         double s = 0.0;
         for (int i = 0; i < w.length && i < x.length; i++) s += w[i] * x[i];
@@ -1,11 +1,20 @@
 package ai;
 
 import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+import geom.Geometry;
+import geom.LaneShadow;
 import tactics.GridPoint;
 import tactics.ScoreGrid;
+import tactics.PositionScorer;
+import tactics.SearchBudget;
+import tactics.SituationCache;
 import tactics.TacticalScorers;
+import tactics.TeamRaster;
 import ui.FieldConfig;
 import world.Ball;
+import world.BallModel;
 import world.Robot;
 import world.WorldState;
 
@@ -23,13 +32,52 @@ import world.WorldState;
 public class PasserAttackerBehavior implements Behavior {
 
     private final int teamSign; // +1 blue attacks +x, -1 red attacks -x
+    private final RandomGenerator rng; // exploration (shoot-vs-pass sampling, exploration shots)
+    private final LaneShadow ballLanes = new LaneShadow(); // pass lanes from the ball, rebuilt when anything moved
+    private final SearchBudget searchBudget; // shared per-tick budget of the "requested pass" search (may be null)
+    private final SituationCache situationCache; // its result in recurring situations, across ticks (may be null)
+    private final TeamRaster raster; // team raster begun on the frame passed to decide (may be null)
+    private PositionScorer requestScorer = TacticalScorers.attackOffBall(); // scorer of the "requested pass" search
 
     public PasserAttackerBehavior(int teamSign) {
+        this(teamSign, new SplittableRandom(), null, null, null);
+    }
+
+    /**
+     * @param rng            source of all exploration randomness; pass a seeded one for reproducible matches
+     * @param searchBudget   per-tick budget shared with the match's other position searches (may be null)
+     * @param situationCache cross-tick target cache of the match (may be null)
+     * @param raster         the team's raster, begun each tick before {@link #decide} on the same
+     *                       frame; its opponent arrival field scores receiver openness (may be null)
+     */
+    public PasserAttackerBehavior(int teamSign, RandomGenerator rng, SearchBudget searchBudget,
+                                  SituationCache situationCache, TeamRaster raster) {
         this.teamSign = (teamSign >= 0) ? +1 : -1;
+        this.rng = rng;
+        this.searchBudget = searchBudget;
+        this.situationCache = situationCache;
+        this.raster = raster;
+    }
+
+    /**
+     * Score the rows of the "requested pass" search with {@link geom.RowKernels} (the default) or
+     * point by point; both give the same scores.
+     */
+    public void setRowKernels(boolean on) {
+        requestScorer = TacticalScorers.attackOffBall(null, null, on);
     }
 
     @Override
     public RobotCommand decide(Robot self, WorldState world) {
+        return decide(self, world, null);
+    }
+
+    /**
+     * {@link #decide(Robot, WorldState)} with the best point of the team's shared off-ball search
+     * this tick (may be null). When given, it answers the "requested pass" and the passer skips its
+     * own, coarser search.
+     */
+    public RobotCommand decide(Robot self, WorldState world, GridPoint teamTarget) {
         RobotCommand cmd = new RobotCommand();
         cmd.robotId = self.id;
 
@@ -63,7 +111,8 @@ public class PasserAttackerBehavior implements Behavior {
 
         // Learned pass scoring: among feasible short passes, prefer the one that is
         // (a) more progressive, (b) more open, and (c) has a clearer lane.
-        PassLearning.ScoredPass learnedShort = PassLearning.pickBestReceiver(self, world, teamSign, 1.05, 5.2);
+        PassLearning.ScoredPass learnedShort = PassLearning.pickBestReceiver(self, world, teamSign, 1.05, 5.2,
+                (raster != null) ? raster.oppArrival() : null);
         boolean canLearnedShort = learnedShort != null
             && learnedShort.receiver != null
             && passLaneLooksSafe(ball.x, ball.y, learnedShort.receiver.x, learnedShort.receiver.y, world.oppRobots)
@@ -73,7 +122,14 @@ public class PasserAttackerBehavior implements Behavior {
     // closest to that point if it creates a clean lane. This couples the off-ball score map with the passer.
     Robot requestedMate = null;
     {
-        GridPoint best = ScoreGrid.findBest(world, self, teamSign, 0.55, TacticalScorers.attackOffBall());
+        GridPoint best = teamTarget;
+        if (best == null) {
+            GridPoint cached = (situationCache != null)
+                    ? situationCache.get(world, self.id, SituationCache.KIND_REQUESTED_PASS)
+                    : null;
+            best = ScoreGrid.findBestRefined(world, self, teamSign, 0.55, requestScorer, searchBudget, cached);
+            if (situationCache != null) situationCache.put(world, self.id, SituationCache.KIND_REQUESTED_PASS, best);
+        }
         requestedMate = closestMateToPoint(self, world.ourRobots, best.x, best.y);
     }
     boolean canRequestedPass = requestedMate != null
@@ -100,12 +156,12 @@ public class PasserAttackerBehavior implements Behavior {
         Double shotY = pickBestShotY(ball.x, ball.y, goalX, goalHalfW, world.oppRobots);
         // Only shoot when the ball can realistically reach the goal under our simple friction model.
         double plannedShotSpeed = inShootZone ? 5.6 : 5.0;
-        boolean inShotReach = canReachGoal(ball.x, ball.y, goalX, shotY, plannedShotSpeed);
+        boolean inShotReach = canReachGoal(world.ballModel, ball.x, ball.y, goalX, shotY, plannedShotSpeed);
         boolean canShoot = (shotY != null) && inShotReach;
 
         // Learned shoot-vs-pass decision (keeps modern pass-first bias, but learns when shooting pays off).
         double[] actionFeats = ActionLearning.features(world, teamSign, self.id);
-        boolean preferShoot = ActionLearning.chooseShoot(actionFeats, inShootZone ? 0.05 : 0.07);
+        boolean preferShoot = ActionLearning.chooseShoot(actionFeats, inShootZone ? 0.05 : 0.07, rng);
 
         // Shoot if the learned policy prefers it and we have a clear lane.
         if (canShoot && preferShoot) {
@@ -201,7 +257,7 @@ public class PasserAttackerBehavior implements Behavior {
         }
 
         // Otherwise, allow occasional learned exploration shots when lane is open.
-        if (canShoot && Math.random() < 0.05) {
+        if (canShoot && rng.nextDouble() < 0.05) {
             cmd.vx = 0;
             cmd.vy = 0;
             cmd.omega = 0;
@@ -312,22 +368,14 @@ public class PasserAttackerBehavior implements Behavior {
     }
 
     // Very rough: check if any opponent is close to the segment ball->mate.
-    private static boolean passLaneLooksSafe(double ax, double ay, double bx, double by, List<Robot> opps) {
+    private boolean passLaneLooksSafe(double ax, double ay, double bx, double by, List<Robot> opps) {
         if (opps == null) return true;
         double segLen = Math.sqrt((bx - ax) * (bx - ax) + (by - ay) * (by - ay));
         if (segLen < 1e-6) return false;
 
     double danger = 0.28; // meters (a bit conservative so we don't force passes)
-        double danger2 = danger * danger;
-
-        for (Robot o : opps) {
-            double[] p = closestPointOnSegment(ax, ay, bx, by, o.x, o.y);
-            double dx = o.x - p[0];
-            double dy = o.y - p[1];
-            double d2 = dx * dx + dy * dy;
-            if (d2 < danger2) return false;
-        }
-        return true;
+        ballLanes.update(ax, ay, opps, danger);
+        return !ballLanes.blocked(bx, by, danger);
     }
 
     /**
@@ -363,17 +411,7 @@ public class PasserAttackerBehavior implements Behavior {
             double cy = clamp(y, lo, hi);
 
             // Compute clearance to the segment ball->(goalX,cy)
-            double clearance = 9.0;
-            if (opps != null) {
-                for (Robot o : opps) {
-                    if (o == null) continue;
-                    double[] p = closestPointOnSegment(ballX, ballY, goalX, cy, o.x, o.y);
-                    double dx = o.x - p[0];
-                    double dy = o.y - p[1];
-                    double d = Math.sqrt(dx * dx + dy * dy);
-                    if (d < clearance) clearance = d;
-                }
-            }
+            double clearance = Geometry.segmentClearance(ballX, ballY, goalX, cy, opps, 9.0);
 
             if (clearance < danger) continue;
 
@@ -388,14 +426,10 @@ public class PasserAttackerBehavior implements Behavior {
         return bestY;
     }
 
-    private static boolean canReachGoal(double ballX, double ballY, double goalX, Double goalY, double kickSpeed) {
+    private static boolean canReachGoal(BallModel model, double ballX, double ballY, double goalX, Double goalY, double kickSpeed) {
         if (goalY == null) return false;
-        // Mirror the simulator's model: 60 FPS, velocity *= 0.98 each tick.
-        double dt = 1.0 / 60.0;
-        double damping = 0.98;
-
-        // Total travel distance for geometric decay: v0*dt * (1/(1-damping))
-        double maxTravel = (kickSpeed * dt) / (1.0 - damping);
+        // Total travel distance under the simulator's friction.
+        double maxTravel = model.stopDistance(kickSpeed);
 
         // Keep a small safety factor for collisions/imperfections.
         maxTravel *= 0.92;
@@ -568,22 +602,6 @@ public class PasserAttackerBehavior implements Behavior {
         return Math.max(min, Math.min(max, v));
     }
 
-    private static double[] closestPointOnSegment(double ax, double ay, double bx, double by, double px, double py) {
-        double abx = bx - ax;
-        double aby = by - ay;
-        double apx = px - ax;
-        double apy = py - ay;
-
-        double ab2 = abx * abx + aby * aby;
-        if (ab2 <= 1e-9) {
-            return new double[] { ax, ay };
-        }
-
-        double t = (apx * abx + apy * aby) / ab2;
-        t = Math.max(0.0, Math.min(1.0, t));
-        return new double[] { ax + t * abx, ay + t * aby };
-    }
-
     private static void moveTo(RobotCommand cmd, Robot self, double targetX, double targetY, double speed) {
         double dx = targetX - self.x;
         double dy = targetY - self.y;
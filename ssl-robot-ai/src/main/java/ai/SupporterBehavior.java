@@ -1,5 +1,6 @@
 package ai;
 
+import geom.LaneShadow;
 import ui.FieldConfig;
 import world.Ball;
 import world.Robot;
@@ -15,6 +16,8 @@ import world.WorldState;
 public class SupporterBehavior implements Behavior {
 
     private final int teamSign; // +1: blue attacks +x, -1: red attacks -x
+    // Pass lanes from the ball; shared by every supporter of the team within a tick.
+    private final LaneShadow ballLanes = new LaneShadow();
 
     public SupporterBehavior(int teamSign) {
         this.teamSign = (teamSign >= 0) ? +1 : -1;
@@ -90,38 +93,14 @@ public class SupporterBehavior implements Behavior {
     }
 
     // Very rough: check if any opponent is close to the segment ball->support point.
-    private static boolean passLaneLooksSafe(double ax, double ay, double bx, double by, java.util.List<Robot> opps) {
+    private boolean passLaneLooksSafe(double ax, double ay, double bx, double by, java.util.List<Robot> opps) {
         if (opps == null) return true;
         double segLen = Math.sqrt((bx - ax) * (bx - ax) + (by - ay) * (by - ay));
         if (segLen < 1e-6) return false;
 
         double danger = 0.30; // meters
-        double danger2 = danger * danger;
-
-        for (Robot o : opps) {
-            double[] p = closestPointOnSegment(ax, ay, bx, by, o.x, o.y);
-            double dx = o.x - p[0];
-            double dy = o.y - p[1];
-            double d2 = dx * dx + dy * dy;
-            if (d2 < danger2) return false;
-        }
-        return true;
-    }
-
-    private static double[] closestPointOnSegment(double ax, double ay, double bx, double by, double px, double py) {
-        double abx = bx - ax;
-        double aby = by - ay;
-        double apx = px - ax;
-        double apy = py - ay;
-
-        double ab2 = abx * abx + aby * aby;
-        if (ab2 <= 1e-9) {
-            return new double[] { ax, ay };
-        }
-
-        double t = (apx * abx + apy * aby) / ab2;
-        t = Math.max(0.0, Math.min(1.0, t));
-        return new double[] { ax + t * abx, ay + t * aby };
+        ballLanes.update(ax, ay, opps, danger);
+        return !ballLanes.blocked(bx, by, danger);
     }
 
     private static int slotFromId(int id) {
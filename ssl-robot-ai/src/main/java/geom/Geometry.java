@@ -0,0 +1,148 @@
+package geom;
+
+import java.util.List;
+import world.Robot;
+import world.RobotArrays;
+
+/**
+ * Point / segment geometry shared by the behaviours, scorers and learners.
+ *
+ * Everything takes and returns primitives, so it can run once per grid cell and per robot without
+ * allocating. Segment functions treat a segment shorter than ~3e-5 m as its start point.
+ *
+ * Clamps and minima are conditional expressions rather than Math.min/max: the results are the same
+ * for finite inputs, and the JIT compiles them to much cheaper code.
+ */
+public final class Geometry {
+
+    private Geometry() {}
+
+    // Squared length below which a segment is treated as a point.
+    private static final double DEGENERATE_LEN2 = 1e-9;
+
+    public static double dist2(double ax, double ay, double bx, double by) {
+        double dx = ax - bx;
+        double dy = ay - by;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Parameter t in [0, 1] of the point on segment A-B closest to P, i.e. the closest point is
+     * {@code (ax + t * (bx - ax), ay + t * (by - ay))}. 0 for a degenerate segment.
+     */
+    public static double projectT(double ax, double ay, double bx, double by, double px, double py) {
+        double abx = bx - ax;
+        double aby = by - ay;
+        double ab2 = abx * abx + aby * aby;
+        if (ab2 <= DEGENERATE_LEN2) return 0.0;
+        return clamp01(((px - ax) * abx + (py - ay) * aby) / ab2);
+    }
+
+    /** Squared distance from P to segment A-B. */
+    public static double distToSegment2(double px, double py, double ax, double ay, double bx, double by) {
+        double abx = bx - ax;
+        double aby = by - ay;
+        double ab2 = abx * abx + aby * aby;
+        double cx = ax;
+        double cy = ay;
+        if (ab2 > DEGENERATE_LEN2) {
+            double t = clamp01(((px - ax) * abx + (py - ay) * aby) / ab2);
+            cx = ax + t * abx;
+            cy = ay + t * aby;
+        }
+        double dx = px - cx;
+        double dy = py - cy;
+        return dx * dx + dy * dy;
+    }
+
+    /** Distance from P to segment A-B. */
+    public static double distToSegment(double px, double py, double ax, double ay, double bx, double by) {
+        return Math.sqrt(distToSegment2(px, py, ax, ay, bx, by));
+    }
+
+    /** Squared distance from segment A-B to the closest robot of {@code team} (+inf if empty). */
+    public static double segmentClearance2(double ax, double ay, double bx, double by, RobotArrays team) {
+        double abx = bx - ax;
+        double aby = by - ay;
+        double ab2 = abx * abx + aby * aby;
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < team.count; i++) {
+            double d2 = segmentPointDist2(ax, ay, abx, aby, ab2, team.x[i], team.y[i]);
+            best = (d2 < best) ? d2 : best;
+        }
+        return best;
+    }
+
+    /** {@link #segmentClearance2(double, double, double, double, RobotArrays)} over a robot list (null entries skipped). */
+    public static double segmentClearance2(double ax, double ay, double bx, double by, List<Robot> robots) {
+        double best = Double.POSITIVE_INFINITY;
+        if (robots == null) return best;
+        double abx = bx - ax;
+        double aby = by - ay;
+        double ab2 = abx * abx + aby * aby;
+        for (Robot r : robots) {
+            if (r == null) continue;
+            double d2 = segmentPointDist2(ax, ay, abx, aby, ab2, r.x, r.y);
+            best = (d2 < best) ? d2 : best;
+        }
+        return best;
+    }
+
+    /** Distance from segment A-B to the closest robot, capped at {@code cap} (also returned when there is none). */
+    public static double segmentClearance(double ax, double ay, double bx, double by, RobotArrays team, double cap) {
+        double d = Math.sqrt(segmentClearance2(ax, ay, bx, by, team));
+        return (d < cap) ? d : cap;
+    }
+
+    /** {@link #segmentClearance(double, double, double, double, RobotArrays, double)} over a robot list. */
+    public static double segmentClearance(double ax, double ay, double bx, double by, List<Robot> robots, double cap) {
+        double d = Math.sqrt(segmentClearance2(ax, ay, bx, by, robots));
+        return (d < cap) ? d : cap;
+    }
+
+    /** Whether any robot of {@code team} is closer than {@code radius} to segment A-B (stops at the first). */
+    public static boolean segmentBlocked(double ax, double ay, double bx, double by, RobotArrays team, double radius) {
+        double r2 = radius * radius;
+        double abx = bx - ax;
+        double aby = by - ay;
+        double ab2 = abx * abx + aby * aby;
+        for (int i = 0; i < team.count; i++) {
+            if (segmentPointDist2(ax, ay, abx, aby, ab2, team.x[i], team.y[i]) < r2) return true;
+        }
+        return false;
+    }
+
+    /** {@link #segmentBlocked(double, double, double, double, RobotArrays, double)} over a robot list. */
+    public static boolean segmentBlocked(double ax, double ay, double bx, double by, List<Robot> robots, double radius) {
+        if (robots == null) return false;
+        double r2 = radius * radius;
+        double abx = bx - ax;
+        double aby = by - ay;
+        double ab2 = abx * abx + aby * aby;
+        for (Robot r : robots) {
+            if (r == null) continue;
+            if (segmentPointDist2(ax, ay, abx, aby, ab2, r.x, r.y) < r2) return true;
+        }
+        return false;
+    }
+
+    public static double clamp01(double t) {
+        t = (t < 0.0) ? 0.0 : t;
+        return (t > 1.0) ? 1.0 : t;
+    }
+
+    // distToSegment2 with the segment vector precomputed.
+    private static double segmentPointDist2(double ax, double ay, double abx, double aby, double ab2,
+                                            double px, double py) {
+        double cx = ax;
+        double cy = ay;
+        if (ab2 > DEGENERATE_LEN2) {
+            double t = clamp01(((px - ax) * abx + (py - ay) * aby) / ab2);
+            cx = ax + t * abx;
+            cy = ay + t * aby;
+        }
+        double dx = px - cx;
+        double dy = py - cy;
+        return dx * dx + dy * dy;
+    }
+}
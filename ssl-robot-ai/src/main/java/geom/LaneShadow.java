@@ -0,0 +1,178 @@
+package geom;
+
+import java.util.Arrays;
+import java.util.List;
+import world.Robot;
+import world.RobotArrays;
+
+/**
+ * The angular "shadows" a team of opponents casts on the lanes leaving one origin.
+ *
+ * A segment from the origin A to a point P passes within r of an opponent O only if O is within r
+ * of A, or the direction A->P is within asin(r / |AO|) of the direction A->O. The shadow splits
+ * the directions around A into {@link #BINS} bins and records, per bin, the opponents whose sector
+ * overlaps it. {@link #candidates} then finds the opponents that can block A->P with one division
+ * and a table lookup; only those need the exact segment test, and for most lanes there are none.
+ *
+ * Bins are indexed by a pseudo-angle (monotonic in the angle, no trigonometry per query) and every
+ * sector is widened by one bin on each side, so the candidates always include every opponent that
+ * {@link Geometry#segmentBlocked} would find at any radius up to the one the shadow was built
+ * for. Answers are exactly those of the exhaustive test.
+ *
+ * {@link #update} only rebuilds when the origin, radius or an opponent position changed, so a
+ * shadow can be refreshed every time it is used. Masks cover the first {@link #MAX_OPPS} opponent
+ * slots; {@link #firstBlocker} and {@link #blocked} test any further slots directly.
+ */
+public final class LaneShadow {
+    public static final int BINS = 512;
+    public static final int MAX_OPPS = 64;
+
+    // Origin closer than this to P: the direction is meaningless, every opponent is a candidate.
+    private static final double MIN_LANE_M = 1e-6;
+    // sin of the half-angle above which a sector is treated as shadowing every direction.
+    private static final double MAX_SIN = 0.95;
+
+    private final long[] bins = new long[BINS];
+    private long everywhere;   // opponents that shadow every direction (at or next to the origin)
+
+    // What the shadow was built from; the exact tests run against these positions.
+    private double ax = Double.NaN;
+    private double ay = Double.NaN;
+    private double radius = Double.NaN;
+    private int count;
+    private double[] ox = new double[8];
+    private double[] oy = new double[8];
+
+    /** Rebuild for lanes from (ax, ay) past {@code team} at {@code radius}, unless nothing changed. */
+    public void update(double ax, double ay, RobotArrays team, double radius) {
+        if (ax == this.ax && ay == this.ay && radius == this.radius && samePositions(team)) return;
+        if (team.count > ox.length) grow(team.count);
+        count = team.count;
+        System.arraycopy(team.x, 0, ox, 0, count);
+        System.arraycopy(team.y, 0, oy, 0, count);
+        build(ax, ay, radius);
+    }
+
+    /** {@link #update(double, double, RobotArrays, double)} from a robot list (null entries skipped). */
+    public void update(double ax, double ay, List<Robot> robots, double radius) {
+        if (ax == this.ax && ay == this.ay && radius == this.radius && samePositions(robots)) return;
+        count = 0;
+        if (robots != null) {
+            if (robots.size() > ox.length) grow(robots.size());
+            for (Robot r : robots) {
+                if (r == null) continue;
+                ox[count] = r.x;
+                oy[count] = r.y;
+                count++;
+            }
+        }
+        build(ax, ay, radius);
+    }
+
+    /**
+     * Opponent slots (bit k = slot k, first {@link #MAX_OPPS} slots) that may block the lane from
+     * the origin to (bx, by) at the build radius or less. Slots not in the mask cannot.
+     */
+    public long candidates(double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        double ax1 = (dx < 0.0) ? -dx : dx;
+        double ay1 = (dy < 0.0) ? -dy : dy;
+        if (ax1 + ay1 < MIN_LANE_M) return allSlots();
+        return bins[bin(dx, dy, ax1 + ay1)] | everywhere;
+    }
+
+    /**
+     * First opponent slot within {@code r} (at most the build radius) of the lane from the origin
+     * to (bx, by), or -1. Same answer as scanning every slot in order.
+     */
+    public int firstBlocker(double bx, double by, double r) {
+        double r2 = r * r;
+        long cand = candidates(bx, by);
+        while (cand != 0) {
+            int k = Long.numberOfTrailingZeros(cand);
+            if (Geometry.distToSegment2(ox[k], oy[k], ax, ay, bx, by) < r2) return k;
+            cand &= cand - 1;
+        }
+        for (int k = MAX_OPPS; k < count; k++) {
+            if (Geometry.distToSegment2(ox[k], oy[k], ax, ay, bx, by) < r2) return k;
+        }
+        return -1;
+    }
+
+    /** Whether any opponent is within {@code r} (at most the build radius) of the lane to (bx, by). */
+    public boolean blocked(double bx, double by, double r) {
+        return firstBlocker(bx, by, r) >= 0;
+    }
+
+    private void build(double ax, double ay, double radius) {
+        this.ax = ax;
+        this.ay = ay;
+        this.radius = radius;
+        Arrays.fill(bins, 0L);
+        everywhere = 0L;
+        int n = (count < MAX_OPPS) ? count : MAX_OPPS;
+        for (int k = 0; k < n; k++) {
+            long bit = 1L << k;
+            double dx = ox[k] - ax;
+            double dy = oy[k] - ay;
+            double d = Math.sqrt(dx * dx + dy * dy);
+            double sin = (d > 0.0) ? radius / d : Double.POSITIVE_INFINITY;
+            if (!(sin < MAX_SIN)) {
+                everywhere |= bit;
+                continue;
+            }
+            // Sector edges: the direction to the opponent rotated by -/+ asin(radius / d).
+            double cos = Math.sqrt(1.0 - sin * sin);
+            double ux = dx / d;
+            double uy = dy / d;
+            double lx = ux * cos + uy * sin;
+            double ly = uy * cos - ux * sin;
+            double hx = ux * cos - uy * sin;
+            double hy = uy * cos + ux * sin;
+            int from = bin(lx, ly, Math.abs(lx) + Math.abs(ly)) - 1;
+            int to = bin(hx, hy, Math.abs(hx) + Math.abs(hy)) + 1;
+            // Sectors are narrower than a half turn, so walking forward from one edge reaches the other.
+            for (int b = from; ; b++) {
+                bins[b & (BINS - 1)] |= bit;
+                if ((b & (BINS - 1)) == (to & (BINS - 1))) break;
+            }
+        }
+    }
+
+    // Bin of direction (dx, dy); l1 = |dx| + |dy| > 0. The pseudo-angle runs over [0, 4) like the
+    // angle over [0, 2pi).
+    private static int bin(double dx, double dy, double l1) {
+        double p = dy / l1;
+        p = (dx < 0.0) ? 2.0 - p : (dy < 0.0) ? 4.0 + p : p;
+        return ((int) (p * (BINS / 4))) & (BINS - 1);
+    }
+
+    private long allSlots() {
+        return (count >= MAX_OPPS) ? -1L : (1L << count) - 1;
+    }
+
+    private boolean samePositions(RobotArrays team) {
+        if (team.count != count) return false;
+        for (int i = 0; i < count; i++) {
+            if (team.x[i] != ox[i] || team.y[i] != oy[i]) return false;
+        }
+        return true;
+    }
+
+    private boolean samePositions(List<Robot> robots) {
+        if (robots == null) return count == 0;
+        int i = 0;
+        for (Robot r : robots) {
+            if (r == null) continue;
+            if (i == count || r.x != ox[i] || r.y != oy[i]) return false;
+            i++;
+        }
+        return i == count;
+    }
+
+    private void grow(int n) {
+        ox = Arrays.copyOf(ox, n);
+        oy = Arrays.copyOf(oy, n);
+    }
+}
@@ -0,0 +1,131 @@
+package geom;
+
+import world.RobotArrays;
+
+/**
+ * Geometry kernels that evaluate a row of candidate points (fixed x, an array of y) against every
+ * robot of a team in one call.
+ *
+ * The loops are laid out for HotSpot's auto-vectorizer: robots in the outer loop, candidates in
+ * the inner loop, contiguous double arrays and no branches in the inner body, only selects. Clamps
+ * and minima are written as conditional expressions rather than Math.min/max, whose NaN and -0.0
+ * handling makes them several times slower here. Each kernel performs the same floating-point
+ * operations in the same order as its per-point counterpart in {@link Geometry}, so results are
+ * bit-identical to the scalar path.
+ */
+public final class RowKernels {
+
+    private RowKernels() {}
+
+    /**
+     * Per-candidate buffers for the segment kernels, held by the caller and reused across rows so
+     * a row costs no allocation. Not shared between threads.
+     */
+    public static final class SegmentScratch {
+        double[] aby = new double[0];
+        double[] div = new double[0];
+        double[] keep = new double[0];
+
+        /** Grows the buffers to at least n candidates; call once per row, before the kernels. */
+        public void ensure(int n) {
+            if (aby.length >= n) return;
+            aby = new double[n];
+            div = new double[n];
+            keep = new double[n];
+        }
+    }
+
+    /** out[j] = squared distance from (x, ys[j]) to the nearest robot of {@code team} (+inf if empty). */
+    public static void nearestDist2(RobotArrays team, double x, double[] ys, int n, double[] out) {
+        nearestDist2Excluding(team, Integer.MIN_VALUE, x, ys, n, out);
+    }
+
+    /** {@link #nearestDist2} ignoring robot {@code excludeId}. */
+    public static void nearestDist2Excluding(RobotArrays team, int excludeId,
+                                             double x, double[] ys, int n, double[] out) {
+        for (int j = 0; j < n; j++) out[j] = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < team.count; k++) {
+            if (team.id[k] == excludeId) continue;
+            double dx = team.x[k] - x;
+            double dx2 = dx * dx;
+            double oy = team.y[k];
+            for (int j = 0; j < n; j++) {
+                double dy = oy - ys[j];
+                double d2 = dx2 + dy * dy;
+                out[j] = (d2 < out[j]) ? d2 : out[j];
+            }
+        }
+    }
+
+    /**
+     * out[j] = squared distance from the segment (ax, ay) -> (x, ys[j]) to the closest robot of
+     * {@code opps} (+inf if empty). A segment is blocked at radius r when out[j] < r * r.
+     * {@code scratch} must have been sized for n.
+     */
+    public static void segmentClearance2From(double ax, double ay, double x, double[] ys, int n,
+                                             RobotArrays opps, SegmentScratch scratch, double[] out) {
+        double abx = x - ax;
+        double abx2 = abx * abx;
+        double[] aby = scratch.aby;
+        double[] div = scratch.div;
+        double[] keep = scratch.keep;
+        for (int j = 0; j < n; j++) {
+            aby[j] = ys[j] - ay;
+            segmentSetup(abx2 + aby[j] * aby[j], div, keep, j);
+            out[j] = Double.POSITIVE_INFINITY;
+        }
+        for (int k = 0; k < opps.count; k++) {
+            double ox = opps.x[k];
+            double oy = opps.y[k];
+            double oax = (ox - ax) * abx;
+            double oay = oy - ay;
+            for (int j = 0; j < n; j++) {
+                double t = (oax + oay * aby[j]) / div[j];
+                t = (t < 0.0) ? 0.0 : t;
+                t = ((t > 1.0) ? 1.0 : t) * keep[j];
+                double dx = ox - (ax + t * abx);
+                double dy = oy - (ay + t * aby[j]);
+                double d2 = dx * dx + dy * dy;
+                out[j] = (d2 < out[j]) ? d2 : out[j];
+            }
+        }
+    }
+
+    /** Same as {@link #segmentClearance2From} for the segments (x, ys[j]) -> (bx, by). */
+    public static void segmentClearance2To(double x, double[] ys, int n, double bx, double by,
+                                           RobotArrays opps, SegmentScratch scratch, double[] out) {
+        double abx = bx - x;
+        double abx2 = abx * abx;
+        double[] aby = scratch.aby;
+        double[] div = scratch.div;
+        double[] keep = scratch.keep;
+        for (int j = 0; j < n; j++) {
+            aby[j] = by - ys[j];
+            segmentSetup(abx2 + aby[j] * aby[j], div, keep, j);
+            out[j] = Double.POSITIVE_INFINITY;
+        }
+        for (int k = 0; k < opps.count; k++) {
+            double ox = opps.x[k];
+            double oy = opps.y[k];
+            double oax = (ox - x) * abx;
+            for (int j = 0; j < n; j++) {
+                double ay = ys[j];
+                double t = (oax + (oy - ay) * aby[j]) / div[j];
+                t = (t < 0.0) ? 0.0 : t;
+                t = ((t > 1.0) ? 1.0 : t) * keep[j];
+                double dx = ox - (x + t * abx);
+                double dy = oy - (ay + t * aby[j]);
+                double d2 = dx * dx + dy * dy;
+                out[j] = (d2 < out[j]) ? d2 : out[j];
+            }
+        }
+    }
+
+    // A segment shorter than ~3e-5 m is treated as its start point (t = 0), like the scalar
+    // version. Done with a multiplier instead of a branch so the inner loops stay branch-free.
+    private static void segmentSetup(double ab2, double[] div, double[] keep, int j) {
+        boolean ok = ab2 > 1e-9;
+        div[j] = ok ? ab2 : 1.0;
+        keep[j] = ok ? 1.0 : 0.0;
+    }
+}
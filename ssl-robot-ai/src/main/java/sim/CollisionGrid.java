@@ -0,0 +1,203 @@
+package sim;
+
+import java.util.Arrays;
+import java.util.List;
+import world.Robot;
+
+/**
+ * Uniform-grid broadphase for the circle collisions in {@link SimulationEngine}.
+ *
+ * Robots are bucketed into square cells by a counting sort over the current bounding box; all
+ * buffers are kept and reused across ticks. Candidates come from the 3x3 cell neighbourhood and
+ * are reported in ascending index order (pairs as (i, j), i &lt; j), i.e. the same order as the
+ * former all-pairs loops, so the sequential narrowphase resolves them identically.
+ *
+ * The cell must be at least the contact distance; a little extra keeps pairs that only start to
+ * overlap because of earlier pushes in the same pass among the candidates.
+ */
+final class CollisionGrid {
+    private final double cellSize;
+
+    // Bodies in index order: first team, then second team.
+    private Robot[] bodies = new Robot[16];
+    private int count;
+
+    private int cols;
+    private int rows;
+    private double minX;
+    private double minY;
+    private int[] cellOfBody = new int[16];
+    private int[] cellStart = new int[65];   // cells + 1 entries
+    private int[] cellFill = new int[64];
+    private int[] cellBodies = new int[16];  // body indices grouped by cell
+
+    private int[] pairA = new int[64];
+    private int[] pairB = new int[64];
+    private int pairCount;
+
+    private int[] near = new int[16];
+    private int nearCount;
+
+    CollisionGrid(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    /** Take the bodies of both teams (in this order) and bucket their current positions. */
+    void rebuild(List<Robot> first, List<Robot> second) {
+        count = 0;
+        addAll(first);
+        addAll(second);
+        if (cellOfBody.length < count) {
+            cellOfBody = new int[bodies.length];
+            cellBodies = new int[bodies.length];
+            near = new int[bodies.length];
+        }
+        if (count == 0) {
+            cols = 0;
+            rows = 0;
+            return;
+        }
+
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            Robot r = bodies[i];
+            minX = Math.min(minX, r.x);
+            minY = Math.min(minY, r.y);
+            maxX = Math.max(maxX, r.x);
+            maxY = Math.max(maxY, r.y);
+        }
+        cols = (int) ((maxX - minX) / cellSize) + 1;
+        rows = (int) ((maxY - minY) / cellSize) + 1;
+        int cells = cols * rows;
+        if (cellFill.length < cells) {
+            cellFill = new int[cells];
+            cellStart = new int[cells + 1];
+        }
+
+        // Counting sort by cell.
+        Arrays.fill(cellStart, 0, cells + 1, 0);
+        for (int i = 0; i < count; i++) {
+            int c = cellIndex(bodies[i].x, bodies[i].y);
+            cellOfBody[i] = c;
+            cellStart[c + 1]++;
+        }
+        for (int c = 0; c < cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+            cellFill[c] = cellStart[c];
+        }
+        for (int i = 0; i < count; i++) {
+            cellBodies[cellFill[cellOfBody[i]]++] = i;
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    Robot body(int i) {
+        return bodies[i];
+    }
+
+    /** Collect candidate pairs (i, j), i &lt; j, in lexicographic order. Returns the pair count. */
+    int collectPairs() {
+        pairCount = 0;
+        for (int i = 0; i < count; i++) {
+            int c = cellOfBody[i];
+            int n = gather(c % cols, c / cols, i);
+            for (int k = 0; k < n; k++) {
+                if (pairCount == pairA.length) {
+                    pairA = Arrays.copyOf(pairA, pairCount * 2);
+                    pairB = Arrays.copyOf(pairB, pairCount * 2);
+                }
+                pairA[pairCount] = i;
+                pairB[pairCount] = near[k];
+                pairCount++;
+            }
+        }
+        return pairCount;
+    }
+
+    int pairA(int k) {
+        return pairA[k];
+    }
+
+    int pairB(int k) {
+        return pairB[k];
+    }
+
+    /** Collect bodies in the cells around (x, y), ascending by index. Returns the count. */
+    int collectNear(double x, double y) {
+        nearCount = 0;
+        if (count == 0) return 0;
+        int cx = (int) Math.floor((x - minX) / cellSize);
+        int cy = (int) Math.floor((y - minY) / cellSize);
+        nearCount = gather(cx, cy, -1);
+        return nearCount;
+    }
+
+    /**
+     * Collect bodies in the cells around the segment (x0, y0) -> (x1, y1), ascending by index: every
+     * body whose center is within one cell of the segment's bounding box. Returns the count.
+     */
+    int collectAlong(double x0, double y0, double x1, double y1) {
+        nearCount = 0;
+        if (count == 0) return 0;
+        int cx0 = (int) Math.floor((Math.min(x0, x1) - minX) / cellSize);
+        int cy0 = (int) Math.floor((Math.min(y0, y1) - minY) / cellSize);
+        int cx1 = (int) Math.floor((Math.max(x0, x1) - minX) / cellSize);
+        int cy1 = (int) Math.floor((Math.max(y0, y1) - minY) / cellSize);
+        nearCount = gather(cx0, cy0, cx1, cy1, -1);
+        return nearCount;
+    }
+
+    int near(int k) {
+        return near[k];
+    }
+
+    private int gather(int cx, int cy, int afterIndex) {
+        return gather(cx, cy, cx, cy, afterIndex);
+    }
+
+    // Bodies with index > afterIndex in cells [cx0 - 1, cx1 + 1] x [cy0 - 1, cy1 + 1], ascending.
+    private int gather(int cx0, int cy0, int cx1, int cy1, int afterIndex) {
+        int n = 0;
+        for (int gy = Math.max(0, cy0 - 1); gy <= cy1 + 1 && gy < rows; gy++) {
+            for (int gx = Math.max(0, cx0 - 1); gx <= cx1 + 1 && gx < cols; gx++) {
+                int c = gy * cols + gx;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    int j = cellBodies[k];
+                    if (j > afterIndex) near[n++] = j;
+                }
+            }
+        }
+        // Tiny lists: insertion sort keeps the original processing order.
+        for (int a = 1; a < n; a++) {
+            int v = near[a];
+            int b = a - 1;
+            while (b >= 0 && near[b] > v) {
+                near[b + 1] = near[b];
+                b--;
+            }
+            near[b + 1] = v;
+        }
+        return n;
+    }
+
+    private int cellIndex(double x, double y) {
+        int cx = Math.min(cols - 1, (int) ((x - minX) / cellSize));
+        int cy = Math.min(rows - 1, (int) ((y - minY) / cellSize));
+        return cy * cols + cx;
+    }
+
+    private void addAll(List<Robot> robots) {
+        if (robots == null) return;
+        for (Robot r : robots) {
+            if (r == null) continue;
+            if (count == bodies.length) bodies = Arrays.copyOf(bodies, count * 2);
+            bodies[count++] = r;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package sim;
+
+/**
+ * Runs a match without any window, as fast as the CPU allows.
+ *
+ * Usage: {@code java -cp out sim.HeadlessMain [ticks] [seed] [robotsPerTeam] [hz]} (default: 10 minutes
+ * of match time at 60 Hz, random seed, 6v6). Training runs can pass {@code 30} as hz to halve the
+ * tick cost; ticks are then 1/30 s each. Learned weights are updated and saved exactly as in the GUI.
+ *
+ * The printed seed and state hash identify the run: the same seed with the same starting weight
+ * files reproduces the same hash.
+ *
+ * With {@code -Dssl.profileScorers=true} the off-ball scorers are profiled and the per-term report
+ * is printed at the end (see {@link tactics.ScorerProfile}). {@code -Dssl.searchBudgetMs=<ms>}
+ * limits the position searches of each tick and prints the budget report; such runs depend on
+ * machine speed and no longer reproduce their hash (see {@link tactics.SearchBudget}).
+ * {@code -Dssl.situationCacheEntries=<n>} reuses targets of recurring situations and prints the
+ * cache's hit rate (see {@link tactics.SituationCache}). {@code -Dssl.teamAssignment=false} lets
+ * attacking runners search on their own instead of sharing team-assigned peaks (see
+ * {@link SimulationEngine#setTeamAssignment}).
+ * {@code -Dssl.rowKernels=false} scores the passers' search rows point by point (see
+ * {@link SimulationEngine#setRowKernels}); the run is otherwise identical.
+ * {@code -Dssl.parallelFill=true|false} fills the rasters' coarse cells on the fork/join pool or
+ * not (default: on with more than one core, see {@link SimulationEngine#setParallelFill}); the run
+ * is otherwise identical.
+ */
+public class HeadlessMain {
+
+    public static void main(String[] args) {
+        double dt = (args.length > 3) ? 1.0 / Double.parseDouble(args[3]) : SimulationEngine.DEFAULT_DT;
+        long ticks = (args.length > 0) ? Long.parseLong(args[0]) : Math.round(60.0 * 10.0 / dt);
+
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : new java.util.SplittableRandom().nextLong();
+        int robotsPerTeam = (args.length > 2) ? Integer.parseInt(args[2]) : SimulationEngine.DEFAULT_ROBOTS_PER_TEAM;
+
+        SimulationEngine engine = new SimulationEngine(dt, seed, robotsPerTeam);
+        boolean profile = Boolean.getBoolean("ssl.profileScorers");
+        engine.getScorerProfile().setEnabled(profile);
+        double budgetMs = Double.parseDouble(System.getProperty("ssl.searchBudgetMs", "0"));
+        engine.getSearchBudget().setBudgetNanos(Math.round(budgetMs * 1e6));
+        int situationEntries = Integer.getInteger("ssl.situationCacheEntries", 0);
+        engine.getSituationCache().setCapacity(situationEntries);
+        engine.setTeamAssignment(Boolean.parseBoolean(System.getProperty("ssl.teamAssignment", "true")));
+        engine.setRowKernels(Boolean.parseBoolean(System.getProperty("ssl.rowKernels", "true")));
+        engine.setParallelFill(Boolean.parseBoolean(System.getProperty("ssl.parallelFill",
+                Boolean.toString(engine.isParallelFill()))));
+
+        long t0 = System.nanoTime();
+        engine.run(ticks);
+        double wallSec = (System.nanoTime() - t0) / 1e9;
+
+        int[] score = engine.getContext().getScore();
+        double simSec = engine.getTickCount() * engine.getDt();
+        System.out.printf("ticks=%d  sim=%.1fs  wall=%.2fs  (%.0f ticks/s, x%.1f real time)%n",
+                engine.getTickCount(), simSec, wallSec,
+                engine.getTickCount() / Math.max(1e-9, wallSec), simSec / Math.max(1e-9, wallSec));
+        System.out.println("score BLUE=" + score[0] + " RED=" + score[1]);
+        System.out.printf("seed=%d  stateHash=%016x%n", engine.getSeed(), engine.stateHash());
+        if (profile) engine.getScorerProfile().report().forEach(System.out::println);
+        if (budgetMs > 0) engine.getSearchBudget().report().forEach(System.out::println);
+        if (situationEntries > 0) engine.getSituationCache().report().forEach(System.out::println);
+    }
+}
@@ -0,0 +1,386 @@
+package sim;
+
+import tactics.PositionLearning;
+import world.Robot;
+import world.WorldState;
+
+/**
+ * Everything that belongs to one match: per-frame tactical buffers (planned targets, marks),
+ * possession/GK/stuck-contest state, role hysteresis, score and the pending learning episodes.
+ *
+ * Each {@link SimulationEngine} owns exactly one context (and its {@link SimClock}), so several matches can run side by side
+ * in one JVM (see {@link MatchRunner}). The learned weights themselves stay global and shared:
+ * every match trains the same PassLearning/ActionLearning/PositionLearning models.
+ */
+public class MatchContext {
+    // Match time; every timer below is measured on this clock, not on the wall clock.
+    final SimClock clock;
+
+    // Roster: every per-robot buffer below is sized by registry.size() and indexed by slot.
+    final RobotRegistry registry;
+
+    // Debug hooks for UI overlay (FieldPanel reads these through sim.Main).
+    // { blueX, blueY, redX, redY }
+    final double[] debugTargets = new double[] { 0.0, 0.0, 0.0, 0.0 };
+
+    // Store intended off-ball targets per robot each frame, so we can deconflict against
+    // teammates' planned destinations (not just their current positions).
+    // Index by registry slot (see RobotRegistry.slotOf).
+    final double[] plannedTx;
+    final double[] plannedTy;
+    final boolean[] plannedHas;
+
+    // Last off-ball attack search result per slot, kept across frames: the next search proposes
+    // its neighbourhood as candidates (see tactics.CandidateGenerator).
+    final double[] lastAttackTx;
+    final double[] lastAttackTy;
+    final boolean[] lastAttackHas;
+
+    // Per-frame team assignment of attack peaks to runners (see SimulationEngine.assignAttackTargets).
+    // Index by registry slot.
+    final double[] assignedTx;
+    final double[] assignedTy;
+    final boolean[] assignedHas;
+
+    // Per-frame marking assignment (defense only). Index by registry slot.
+    // If HAS=false, robot has no active mark.
+    final double[] markTx;
+    final double[] markTy;
+    final boolean[] markHas;
+
+    // Online learning hook for pass selection.
+    // We record the most recent tagged pass attempt and reward it based on whether
+    // the intended receiver actually gets possession.
+    long lastPassAtNanos = 0L;
+    int lastPassTeam = 0;         // +1 blue, -1 red
+    int lastPassFromId = -1;
+    int lastPassToId = -1;
+    double lastPassStartX = 0.0;
+    double[] lastPassFeatures = null;
+
+    // Online learning hook for shoot-vs-pass.
+    long lastActionAtNanos = 0L;
+    int lastActionTeam = 0; // +1 blue, -1 red
+    int lastActionFromId = -1;
+    int lastActionPassToId = -1; // only when action was pass
+    boolean lastActionShoot = false;
+    double lastActionStartX = 0.0;
+    double[] lastActionFeatures = null;
+
+    // Simple scoring + goal reward signals.
+    int scoreBlue = 0;
+    int scoreRed = 0;
+    int goalPendingTeam = 0;
+
+    // Per-frame tactical context: when the ball-winner is attempting a pass, encourage teammates
+    // to spread wide and avoid clustering for short triangles.
+    boolean teamPassingBlue = false;
+    boolean teamPassingRed = false;
+
+    // Per-frame tactical context: when our team is likely to regain the ball soon (and not contested),
+    // prepare by spreading for the next pass/move.
+    boolean teamRegainSoonBlue = false;
+    boolean teamRegainSoonRed = false;
+
+    // Online learning hook for off-ball positioning: store last chosen features per robot (by slot).
+    final double[][] lastAttackPosFeatures;
+    final long[] lastAttackPosAtNanos;
+    final double[][] lastDefPosFeatures;
+    final long[] lastDefPosAtNanos;
+
+    // Print a line per goal (the GUI and single headless runs do; parallel runners turn it off).
+    boolean logGoals = true;
+
+    // --- Role stabilization (avoid rapid attacker switching) ---
+    // We keep the current "attackerId" for a short time before allowing a switch.
+    int ourAttackerId;
+    int oppAttackerId;
+    long lastSwitchNanosOur = 0L; // match time starts at 0
+    long lastSwitchNanosOpp = 0L;
+
+    // --- Simple possession / dribble model ---
+    // When a robot gets close to a (slow) ball, it can "hold" it (carry) so contested touches
+    // don't endlessly bounce the ball away. This is intentionally simple and tunable.
+    int ballOwnerId = -1;   // -1: free
+    int ballOwnerTeam = 0;  // +1: blue, -1: red
+
+    // If a robot loses the ball and an opponent takes it, prevent the loser from re-taking
+    // for a short time to avoid endless corner oscillations.
+    final java.util.Map<Integer, Long> pickupBanUntilNanos = new java.util.HashMap<>();
+    int recentlyLostOwnerId = -1;
+    int recentlyLostOwnerTeam = 0;
+    long recentlyLostAtNanos = -1L;
+
+    // Goalkeeper special: allow GK to carry the ball for a short time, during which
+    // the opponent cannot take the ball from the GK.
+    long gkHoldUntilNanos = 0L;
+    int gkHoldOwnerId = -1;
+    int gkHoldOwnerTeam = 0;
+
+    // Rare deadlock breaker: if the ball is stuck in a close contest for too long,
+    // randomly award possession to one of the contesting robots.
+    long stuckSinceNanos = -1;
+    double lastBallX = 0.0;
+    double lastBallY = 0.0;
+
+    // Track robot motion between frames to reduce false "stuck" detections (by slot).
+    final double[] lastRobotX;
+    final double[] lastRobotY;
+    final boolean[] lastRobotHas;
+
+    MatchContext(SimClock clock, RobotRegistry registry) {
+        this.clock = clock;
+        this.registry = registry;
+        int n = registry.size();
+        plannedTx = new double[n];
+        plannedTy = new double[n];
+        plannedHas = new boolean[n];
+        lastAttackTx = new double[n];
+        lastAttackTy = new double[n];
+        lastAttackHas = new boolean[n];
+        assignedTx = new double[n];
+        assignedTy = new double[n];
+        assignedHas = new boolean[n];
+        markTx = new double[n];
+        markTy = new double[n];
+        markHas = new boolean[n];
+        lastAttackPosFeatures = new double[n][];
+        lastAttackPosAtNanos = new long[n];
+        lastDefPosFeatures = new double[n][];
+        lastDefPosAtNanos = new long[n];
+        lastRobotX = new double[n];
+        lastRobotY = new double[n];
+        lastRobotHas = new boolean[n];
+
+        // Start with each team's first registered robot (the goalkeeper in the standard roster).
+        ourAttackerId = -1;
+        oppAttackerId = -1;
+        for (int s = 0; s < n; s++) {
+            if (registry.teamAt(s) == +1 && ourAttackerId == -1) ourAttackerId = registry.idAt(s);
+            if (registry.teamAt(s) == -1 && oppAttackerId == -1) oppAttackerId = registry.idAt(s);
+        }
+    }
+
+    void recordPassAttempt(int fromId,
+                           int teamSign,
+                           int toId,
+                           double ballX,
+                           double[] features) {
+        lastPassAtNanos = clock.nowNanos();
+        lastPassTeam = teamSign;
+        lastPassFromId = fromId;
+        lastPassToId = toId;
+        lastPassStartX = ballX;
+        lastPassFeatures = features;
+    }
+
+    void recordActionAttempt(int fromId,
+                             int teamSign,
+                             boolean shoot,
+                             int passToId,
+                             double ballX,
+                             double[] features) {
+        lastActionAtNanos = clock.nowNanos();
+        lastActionTeam = teamSign;
+        lastActionFromId = fromId;
+        lastActionShoot = shoot;
+        lastActionPassToId = passToId;
+        lastActionStartX = ballX;
+        lastActionFeatures = features;
+    }
+
+    void clearLastAction() {
+        lastActionAtNanos = 0L;
+        lastActionTeam = 0;
+        lastActionFromId = -1;
+        lastActionPassToId = -1;
+        lastActionShoot = false;
+        lastActionFeatures = null;
+    }
+
+    void maybeTimeoutLastAction(int ballOwnerTeam, double ballX) {
+        if (lastActionTeam == 0 || lastActionFeatures == null) return;
+        long now = clock.nowNanos();
+        long window = (long) (1.75e9);
+        if (now - lastActionAtNanos <= window) return;
+
+        // If the opponent got the ball, this should have been handled elsewhere.
+        if (ballOwnerTeam != 0 && ballOwnerTeam != lastActionTeam) {
+            ai.ActionLearning.applyReward(lastActionShoot, -1.0, lastActionFeatures);
+            clearLastAction();
+            return;
+        }
+
+        // Otherwise, score by forward progress.
+        double prog = (ballX - lastActionStartX) * lastActionTeam;
+        double reward = clamp(prog * 0.10, -0.6, 0.6);
+        ai.ActionLearning.applyReward(lastActionShoot, reward, lastActionFeatures);
+        clearLastAction();
+    }
+
+    void applyTeamAttackPositionReward(WorldState world, int teamSign, double reward) {
+        if (world == null) return;
+        long now = clock.nowNanos();
+        long window = (long) (2.0e9);
+        java.util.List<Robot> team = (teamSign == +1) ? world.ourRobots : world.oppRobots;
+        if (team == null) return;
+        for (Robot r : team) {
+            if (r == null) continue;
+            int s = registry.slotOf(r.id);
+            if (s < 0) continue;
+            if (lastAttackPosFeatures[s] == null) continue;
+            if (now - lastAttackPosAtNanos[s] > window) continue;
+            PositionLearning.applyAttackReward(reward, lastAttackPosFeatures[s]);
+        }
+    }
+
+    void applyTeamDefensePositionReward(WorldState world, int teamSign, double reward) {
+        if (world == null) return;
+        long now = clock.nowNanos();
+        long window = (long) (2.0e9);
+        java.util.List<Robot> team = (teamSign == +1) ? world.ourRobots : world.oppRobots;
+        if (team == null) return;
+        for (Robot r : team) {
+            if (r == null) continue;
+            int s = registry.slotOf(r.id);
+            if (s < 0) continue;
+            if (lastDefPosFeatures[s] == null) continue;
+            if (now - lastDefPosAtNanos[s] > window) continue;
+            PositionLearning.applyDefenseReward(reward, lastDefPosFeatures[s]);
+        }
+    }
+
+    void maybeRewardLastPass(WorldState world, int newOwnerId, int newOwnerTeam, double ballX) {
+        if (lastPassToId < 0 || lastPassTeam == 0) return;
+        long now = clock.nowNanos();
+        long window = (long) (1.25e9);
+        if (now - lastPassAtNanos > window) {
+            // Timed out without a clear successful reception.
+            if (lastPassFeatures != null) {
+                ai.PassLearning.applyReward(-1.0, lastPassFeatures);
+            }
+            if (lastActionTeam == lastPassTeam && !lastActionShoot && lastActionFeatures != null) {
+                ai.ActionLearning.applyReward(false, -0.8, lastActionFeatures);
+                clearLastAction();
+            }
+            lastPassToId = -1;
+            lastPassTeam = 0;
+            lastPassFromId = -1;
+            lastPassFeatures = null;
+            return;
+        }
+
+        // If the opponent gained possession soon after the pass, it's a failure.
+        if (newOwnerTeam != 0 && newOwnerTeam != lastPassTeam) {
+            if (lastPassFeatures != null) {
+                ai.PassLearning.applyReward(-1.0, lastPassFeatures);
+            }
+            if (lastActionTeam == lastPassTeam && !lastActionShoot && lastActionFeatures != null) {
+                ai.ActionLearning.applyReward(false, -1.0, lastActionFeatures);
+                clearLastAction();
+            }
+            lastPassToId = -1;
+            lastPassTeam = 0;
+            lastPassFromId = -1;
+            lastPassFeatures = null;
+            return;
+        }
+
+        // If the intended receiver got it, reward by success + forward progress.
+        if (newOwnerTeam == lastPassTeam && newOwnerId == lastPassToId) {
+            double prog = (ballX - lastPassStartX) * lastPassTeam;
+            double reward = 1.0 + clamp(prog * 0.20, -1.0, 1.0);
+            if (lastPassFeatures != null) {
+                ai.PassLearning.applyReward(reward, lastPassFeatures);
+            }
+            // Also reward the action choice (pass) that led to this outcome.
+            if (lastActionTeam == lastPassTeam && !lastActionShoot && lastActionFeatures != null
+                    && lastActionFromId == lastPassFromId && lastActionPassToId == lastPassToId) {
+                ai.ActionLearning.applyReward(false, reward, lastActionFeatures);
+                clearLastAction();
+            }
+
+            // Reward the team's attacking off-ball positions lightly on successful receptions.
+            applyTeamAttackPositionReward(world, lastPassTeam, 0.22 + clamp(prog * 0.05, -0.25, 0.35));
+
+            lastPassToId = -1;
+            lastPassTeam = 0;
+            lastPassFromId = -1;
+            lastPassFeatures = null;
+        }
+    }
+
+    void onGoal(WorldState world, int scoringTeam) {
+        if (scoringTeam == +1) scoreBlue++;
+        if (scoringTeam == -1) scoreRed++;
+        if (logGoals) {
+            System.out.println("GOAL! scoringTeam=" + scoringTeam + "  score BLUE=" + scoreBlue + " RED=" + scoreRed);
+        }
+
+        // Reward/penalize the most recent action.
+        if (lastActionTeam != 0 && lastActionFeatures != null) {
+            double r = (lastActionTeam == scoringTeam) ? 2.0 : -2.0;
+            ai.ActionLearning.applyReward(lastActionShoot, r, lastActionFeatures);
+            clearLastAction();
+        }
+
+        // Reward team shapes.
+        applyTeamAttackPositionReward(world, scoringTeam, +0.6);
+        applyTeamDefensePositionReward(world, scoringTeam, +0.3);
+        applyTeamAttackPositionReward(world, -scoringTeam, -0.4);
+        applyTeamDefensePositionReward(world, -scoringTeam, -0.8);
+    }
+
+    /** Return current mark target for a robot id, or null if none (per-frame). */
+    public double[] getMarkTargetForRobot(int robotId) {
+        int s = registry.slotOf(robotId);
+        if (s < 0 || !markHas[s]) return null;
+        return new double[] { markTx[s], markTy[s] };
+    }
+
+    /** Roster of this match (id to slot mapping, teams and roles). */
+    public RobotRegistry getRegistry() {
+        return registry;
+    }
+
+    public double[] getDebugTargets() {
+        return debugTargets;
+    }
+
+    /** Returns current score as {blue, red}. */
+    public int[] getScore() {
+        return new int[] { scoreBlue, scoreRed };
+    }
+
+    /**
+     * Returns a snapshot of planned per-robot targets for the current frame.
+     * Index is robotId (0..maxId). If a robot has no planned target, the entry is null.
+     * Each non-null entry is {x, y} in field meters.
+     */
+    public double[][] getPlannedTargets() {
+        return snapshotById(plannedHas, plannedTx, plannedTy);
+    }
+
+    /**
+     * Returns a snapshot of per-robot mark targets for the current frame.
+     * Index is robotId (0..maxId). If no mark, the entry is null.
+     * Each non-null entry is {x, y} in field meters.
+     */
+    public double[][] getMarkTargets() {
+        return snapshotById(markHas, markTx, markTy);
+    }
+
+    // The UI indexes snapshots by robot id, so expand the slot buffers back to id order.
+    private double[][] snapshotById(boolean[] has, double[] xs, double[] ys) {
+        double[][] out = new double[registry.maxId() + 1][];
+        for (int s = 0; s < has.length; s++) {
+            if (!has[s]) continue;
+            out[registry.idAt(s)] = new double[] { xs[s], ys[s] };
+        }
+        return out;
+    }
+
+    private static double clamp(double v, double min, double max) {
+        return Math.max(min, Math.min(max, v));
+    }
+}
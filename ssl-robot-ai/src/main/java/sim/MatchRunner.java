@@ -0,0 +1,62 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many headless matches side by side to collect learning episodes faster.
+ *
+ * Usage: {@code java -cp out sim.MatchRunner [matches] [ticksPerMatch] [threads] [seed] [hz]}
+ * (defaults: 8 matches, 10 minutes of match time each, one thread per core, random seed, 60 Hz;
+ * pass {@code 30} as hz to train at {@link SimulationEngine#TRAINING_DT}).
+ * Match i runs with seed {@code seed + i}. Because all matches share the learner weights, a run
+ * is only reproducible with a single thread.
+ *
+ * Every match gets its own {@link SimulationEngine} (and so its own {@link MatchContext});
+ * all of them train the same shared learner weights.
+ */
+public class MatchRunner {
+
+    public static void main(String[] args) throws Exception {
+        int matches = (args.length > 0) ? Integer.parseInt(args[0]) : 8;
+        double dt = (args.length > 4) ? 1.0 / Double.parseDouble(args[4]) : SimulationEngine.DEFAULT_DT;
+        long ticksPerMatch = (args.length > 1) ? Long.parseLong(args[1]) : Math.round(60.0 * 10.0 / dt);
+        int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long baseSeed = (args.length > 3) ? Long.parseLong(args[3]) : new java.util.SplittableRandom().nextLong();
+        threads = Math.max(1, Math.min(threads, matches));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long t0 = System.nanoTime();
+        try {
+            List<Future<int[]>> results = new ArrayList<>();
+            for (int i = 0; i < matches; i++) {
+                long seed = baseSeed + i;
+                results.add(pool.submit(() -> {
+                    SimulationEngine engine = new SimulationEngine(dt, seed);
+                    engine.getContext().logGoals = false;
+                    engine.run(ticksPerMatch);
+                    return engine.getContext().getScore();
+                }));
+            }
+
+            int goals = 0;
+            for (int i = 0; i < matches; i++) {
+                int[] score = results.get(i).get();
+                goals += score[0] + score[1];
+                System.out.println("match " + i + ": BLUE=" + score[0] + " RED=" + score[1]);
+            }
+
+            double wallSec = (System.nanoTime() - t0) / 1e9;
+            double simSec = matches * ticksPerMatch * dt;
+            System.out.println("seed=" + baseSeed);
+            System.out.printf("matches=%d  threads=%d  goals=%d  sim=%.1fs  wall=%.2fs  (x%.1f real time, %.1f matches/hour)%n",
+                    matches, threads, goals, simSec, wallSec,
+                    simSec / Math.max(1e-9, wallSec), matches * 3600.0 / Math.max(1e-9, wallSec));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
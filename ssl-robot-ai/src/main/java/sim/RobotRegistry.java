@@ -0,0 +1,110 @@
+package sim;
+
+import java.util.Arrays;
+
+/**
+ * Roster of one match: maps robot ids to dense slots and remembers each robot's team and role.
+ *
+ * Per-robot buffers (planned targets, marks, pending position features, stuck tracking) are sized
+ * by {@link #size()} and indexed by slot, so ids can be anything and the roster can grow (e.g.
+ * 16v16 scaling tests) without fixed 32-entry arrays. Slots follow registration order.
+ */
+public final class RobotRegistry {
+    public static final int ROLE_GOALKEEPER = 0;
+    public static final int ROLE_DEFENDER = 1;  // back line; takes man-marking assignments
+    public static final int ROLE_ATTACKER = 2;
+
+    private int[] slotById = new int[0];
+    private int[] idBySlot = new int[16];
+    private int[] teamBySlot = new int[16];
+    private int[] roleBySlot = new int[16];
+    private int size;
+    private int maxId = -1;
+
+    /**
+     * Standard roster: per team one goalkeeper, then ceil((n-1)/2) defenders, then attackers.
+     * Blue ids are 0..n-1; red ids start at the next multiple of 10 (10..15 for the default 6v6).
+     */
+    public static RobotRegistry standard(int robotsPerTeam) {
+        if (robotsPerTeam < 1) throw new IllegalArgumentException("robotsPerTeam must be >= 1: " + robotsPerTeam);
+        int redBase = ((robotsPerTeam + 9) / 10) * 10;
+        int defenders = robotsPerTeam / 2;
+
+        RobotRegistry reg = new RobotRegistry();
+        for (int team : new int[] { +1, -1 }) {
+            int base = (team == +1) ? 0 : redBase;
+            for (int k = 0; k < robotsPerTeam; k++) {
+                int role = (k == 0) ? ROLE_GOALKEEPER : (k <= defenders) ? ROLE_DEFENDER : ROLE_ATTACKER;
+                reg.register(base + k, team, role);
+            }
+        }
+        return reg;
+    }
+
+    /** Add a robot and return its slot. */
+    public int register(int robotId, int teamSign, int role) {
+        if (robotId < 0) throw new IllegalArgumentException("robot id must be >= 0: " + robotId);
+        if (slotOf(robotId) != -1) throw new IllegalArgumentException("duplicate robot id: " + robotId);
+
+        if (robotId >= slotById.length) {
+            int old = slotById.length;
+            slotById = Arrays.copyOf(slotById, Math.max(robotId + 1, old * 2));
+            Arrays.fill(slotById, old, slotById.length, -1);
+        }
+        if (size == idBySlot.length) {
+            idBySlot = Arrays.copyOf(idBySlot, size * 2);
+            teamBySlot = Arrays.copyOf(teamBySlot, size * 2);
+            roleBySlot = Arrays.copyOf(roleBySlot, size * 2);
+        }
+        int slot = size++;
+        idBySlot[slot] = robotId;
+        teamBySlot[slot] = teamSign;
+        roleBySlot[slot] = role;
+        slotById[robotId] = slot;
+        maxId = Math.max(maxId, robotId);
+        return slot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Largest registered id (for id-indexed snapshots), or -1 if empty. */
+    public int maxId() {
+        return maxId;
+    }
+
+    /** Slot of a robot id, or -1 if the id is not on the roster. */
+    public int slotOf(int robotId) {
+        if (robotId < 0 || robotId >= slotById.length) return -1;
+        return slotById[robotId];
+    }
+
+    public int idAt(int slot) {
+        return idBySlot[slot];
+    }
+
+    public int teamAt(int slot) {
+        return teamBySlot[slot];
+    }
+
+    public int roleAt(int slot) {
+        return roleBySlot[slot];
+    }
+
+    /** +1 blue, -1 red, 0 if unknown. */
+    public int teamOf(int robotId) {
+        int s = slotOf(robotId);
+        return (s < 0) ? 0 : teamBySlot[s];
+    }
+
+    public boolean isGoalkeeper(int robotId) {
+        int s = slotOf(robotId);
+        return s >= 0 && roleBySlot[s] == ROLE_GOALKEEPER;
+    }
+
+    public boolean isDefender(int robotId) {
+        int s = slotOf(robotId);
+        return s >= 0 && roleBySlot[s] == ROLE_DEFENDER;
+    }
+}
@@ -0,0 +1,42 @@
+package sim;
+
+/**
+ * Match time derived from the tick counter instead of the wall clock.
+ *
+ * All game-logic timers (role hysteresis, GK hold, pickup bans, stuck detection, learning reward
+ * windows) read {@link #nowNanos()}, so they mean the same thing whether the match runs at 60 FPS
+ * in the GUI or many times faster headless.
+ */
+public final class SimClock {
+    private final double dt;
+    private final long dtNanos;
+    private long ticks = 0L;
+
+    public SimClock(double dt) {
+        this.dt = dt;
+        this.dtNanos = Math.round(dt * 1e9);
+    }
+
+    /** Advance by one tick. Called once at the start of every engine step. */
+    public void advance() {
+        ticks++;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+
+    public double getDt() {
+        return dt;
+    }
+
+    /** Simulated time since the match started, in nanoseconds. */
+    public long nowNanos() {
+        return ticks * dtNanos;
+    }
+
+    /** Simulated time since the match started, in seconds. */
+    public double nowSeconds() {
+        return ticks * dt;
+    }
+}
@@ -0,0 +1,2669 @@
+package sim;
+
+import ai.Behavior;
+import ai.DefenderBehavior;
+import ai.PasserAttackerBehavior;
+import ai.RobotCommand;
+import ai.SupporterBehavior;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import tactics.ArrivalField;
+import tactics.CandidateGenerator;
+import tactics.CellEvaluator;
+import tactics.GridPoint;
+import tactics.PeakField;
+import tactics.PositionLearning;
+import tactics.PositionScorer;
+import tactics.ScoreGrid;
+import tactics.ScorerProfile;
+import tactics.SearchBudget;
+import tactics.SituationCache;
+import tactics.TacticalScorers;
+import tactics.TargetAssignment;
+import tactics.TeamRaster;
+import ui.FieldConfig;
+import world.Ball;
+import world.BallModel;
+import world.Robot;
+import world.WorldState;
+
+/**
+ * Fixed-step match simulation, independent of any UI.
+ *
+ * One {@link #step()} runs a full tick: marking, both teams' decide/apply, ball integration,
+ * collisions, possession and stuck-contest handling. Nothing here touches AWT/Swing, so the
+ * engine can run headless as fast as the CPU allows; the GUI in {@link Main} is just an
+ * observer that calls {@link #step()} from its timer and repaints.
+ */
+public class SimulationEngine {
+    public static final double DEFAULT_DT = 1.0 / 60.0;
+    public static final int DEFAULT_ROBOTS_PER_TEAM = 6;
+
+    // Coarser step for headless training runs; ball sweeping keeps fast shots from tunneling.
+    public static final double TRAINING_DT = 1.0 / 30.0;
+
+    // Ball-robot contact distance: robot radius + (slightly smaller) ball radius.
+    private static final double BALL_CONTACT_DIST_M = FieldConfig.ROBOT_RADIUS_M + 0.016;
+    // Robot bounces the swept ball may take within one tick before the rest of the move is dropped.
+    private static final int MAX_SWEEP_BOUNCES = 3;
+
+    // Per-tick rules of the original 60 Hz loop, expressed per second so every dt behaves alike:
+    // - a ball slower than this counts as "barely moved" for stuck detection (was 2 cm per tick);
+    // - a carried ball keeps this fraction of its velocity per 1/60 s (was 0.4 per tick);
+    // - a carried ball pinned on a wall slides along it at this speed (was 3 cm per tick).
+    private static final double STUCK_BALL_SPEED_MPS = 1.2;
+    private static final double CARRY_DAMPING_PER_60HZ_TICK = 0.4;
+    private static final double CARRY_WALL_SLIDE_MPS = 1.8;
+
+    private final WorldState world;
+    private final double dt;
+    private final long seed;
+    private final SimClock clock;
+    private final RobotRegistry registry;
+
+    // Ball friction for this dt; shared with tactics through WorldState.ballModel.
+    private final BallModel ballModel;
+    // Carried-ball velocity damping for this dt.
+    private final double carryDamping;
+
+    // Roles (for when runAllOurRobots = true)
+    private final PasserAttackerBehavior attacker;
+    private final Behavior defender = new DefenderBehavior();
+    private final Behavior supporter = new SupporterBehavior(+1);
+
+    // Opponent roles (red team)
+    // - Defender: defend the right goal (+x)
+    private final PasserAttackerBehavior oppAttacker; // used in mirrored frame
+    // NOTE: Opponent is run in mirrored coordinates, where it attacks toward +x.
+    // So the opponent behaviors should be configured the same way as our team (+1).
+    private final Behavior oppDefender = new DefenderBehavior(+1);
+    private final Behavior oppSupporter = new SupporterBehavior(+1);
+
+    // Goalkeepers of both teams (red runs in the mirrored frame, so it also defends the left goal).
+    private final Behavior goalkeeper = new DefenderBehavior(+1);
+
+    // Per-match state (possession, marks, pending learning episodes, score, ...).
+    private final MatchContext ctx;
+
+    // Red decides in a mirrored frame (x,y -> -x,-y). The mirrored world, its ball and robots are
+    // allocated once and overwritten every tick by mirrorWorld().
+    private final WorldState mirrored = new WorldState();
+    private final Ball mirroredBall = new Ball(0.0, 0.0);
+
+    // Off-ball search steps (grid spacing, tunable) and the team-level score terms shared by all
+    // off-ball searches of a team in one tick: one raster per team frame and step.
+    private static final double ATTACK_SEARCH_STEP = 0.45;
+    private static final double DEFENSE_SEARCH_STEP = 0.55; // slightly coarser when defending
+    private final TeamRaster blueAttackRaster = new TeamRaster(ATTACK_SEARCH_STEP);
+    private final TeamRaster blueDefenseRaster = new TeamRaster(DEFENSE_SEARCH_STEP);
+    private final TeamRaster redAttackRaster = new TeamRaster(ATTACK_SEARCH_STEP);
+    private final TeamRaster redDefenseRaster = new TeamRaster(DEFENSE_SEARCH_STEP);
+    // Goalkeeper distribution: kick speed, and the receivers' opponents begun when it happens
+    // (both teams have moved since the rasters were begun).
+    private static final double GK_PASS_SPEED_MPS = 4.1;
+    private final ArrivalField gkPassOpponents = new ArrivalField(ATTACK_SEARCH_STEP);
+    // Team attack assignment (see setTeamAssignment): peaks of the shared field at least this far
+    // apart, spare peaks beyond one per runner, and the score a runner gives up per metre of travel
+    // to its peak.
+    private static final double ASSIGN_PEAK_SEP_M = 1.2;
+    private static final int ASSIGN_SPARE_PEAKS = 2;
+    private static final double ASSIGN_MOVE_COST_PER_M = 1.0;
+    // assignAttackTargets scratch: the runners, the shared field and the runner x peak cost matrix
+    // (grown as needed).
+    private final java.util.ArrayList<Robot> assignRunners = new java.util.ArrayList<>();
+    private final PeakField attackPeaks = new PeakField(ATTACK_SEARCH_STEP);
+    private double[][] assignCost = new double[0][0];
+    private boolean teamAssignment = true;
+    // Fill the rasters' coarse cells on the common fork/join pool; only pays with spare cores.
+    private boolean parallelFill = Runtime.getRuntime().availableProcessors() > 1;
+    // Attack searches score generated candidates instead of the coarse lattice; both teams share
+    // the generator (it only keeps per-search scratch).
+    private final CandidateGenerator attackCandidates = new CandidateGenerator(ATTACK_SEARCH_STEP);
+
+    // Off-ball scorer instrumentation; disabled unless someone turns it on.
+    private final ScorerProfile scorerProfile = new ScorerProfile();
+    // Per-tick compute budget of all position searches; unlimited unless someone sets one.
+    private final SearchBudget searchBudget = new SearchBudget();
+    // Targets of recurring situations (kickoffs, GK holds, stalled contests), kept across ticks.
+    // Off unless someone gives it a capacity; a hit only stands if the search's coarse pass agrees.
+    private static final double SITUATION_CELL_M = 0.25;
+    private static final double SITUATION_SPEED_BUCKET_MPS = 0.5;
+    private final SituationCache situationCache =
+            new SituationCache(0, SITUATION_CELL_M, SITUATION_SPEED_BUCKET_MPS);
+
+    // assignMarks scratch, indexed by registry slot and reused every tick.
+    private final boolean[] oppTaken;
+    private final boolean[] usedDef;
+    // assignMarks candidate lists and the maybeBreakStuckContest roster, reused every tick.
+    private final java.util.ArrayList<Robot> markOppCandidates = new java.util.ArrayList<>();
+    private final java.util.ArrayList<Robot> markDefenders = new java.util.ArrayList<>();
+    private final java.util.ArrayList<Robot> stuckRobots = new java.util.ArrayList<>();
+
+    // Collision broadphase, reused every tick. Cells are a little wider than two robot radii.
+    private final CollisionGrid collisionGrid = new CollisionGrid(FieldConfig.ROBOT_RADIUS_M * 2.0 + 0.06);
+
+    // Role stabilization: keep the current attacker for a short time before allowing a switch.
+    private final long holdNanos = (long) (0.6e9); // 0.6s
+
+    // Goalkeeper special: how long the GK may carry the ball before it must release it.
+    private final long gkHoldNanos = (long) (2.0e9); // 2.0 seconds
+
+    /** New match in the default 6v6 kickoff formation, stepping at 60 Hz. */
+    public SimulationEngine() {
+        this(DEFAULT_DT);
+    }
+
+    /** New match with a random seed (see {@link #getSeed()} to replay it). */
+    public SimulationEngine(double dt) {
+        this(dt, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * New match whose every tick is reproducible from {@code seed} and the learner weights
+     * loaded at start. Each subsystem draws from its own split of the seed, so adding random
+     * draws to one does not shift the others.
+     */
+    public SimulationEngine(double dt, long seed) {
+        this(dt, seed, DEFAULT_ROBOTS_PER_TEAM);
+    }
+
+    /**
+     * Same as {@link #SimulationEngine(double, long)} with a {@link RobotRegistry#standard(int)}
+     * roster of {@code robotsPerTeam} robots per side (e.g. 16 for large-roster scaling runs).
+     */
+    public SimulationEngine(double dt, long seed, int robotsPerTeam) {
+        this.dt = dt;
+        this.seed = seed;
+        this.ballModel = new BallModel(dt);
+        this.carryDamping = Math.pow(CARRY_DAMPING_PER_60HZ_TICK, dt / DEFAULT_DT);
+        this.registry = RobotRegistry.standard(robotsPerTeam);
+        this.oppTaken = new boolean[registry.size()];
+        this.usedDef = new boolean[registry.size()];
+        SplittableRandom root = new SplittableRandom(seed);
+        this.attacker = new PasserAttackerBehavior(+1, root.split(), searchBudget, situationCache,
+                blueAttackRaster);
+        this.oppAttacker = new PasserAttackerBehavior(+1, root.split(), searchBudget, situationCache,
+                redAttackRaster);
+        this.clock = new SimClock(dt);
+        this.ctx = new MatchContext(clock, registry);
+        this.world = new WorldState();
+        world.ballModel = ballModel;
+        mirrored.ballModel = ballModel;
+
+        // ボールの初期位置（センター）
+        world.ball = new Ball(0.0, 0.0);
+
+        // --- Default 6v6: GK + (3-2) formation ---
+        // Convention:
+        // - Blue (ourRobots) defends left goal (-x), attacks +x
+        // - Red  (oppRobots) defends right goal (+x), attacks -x
+        resetFormation(world, registry);
+        ctx.lastBallX = world.ball.x;
+        ctx.lastBallY = world.ball.y;
+    }
+
+    public WorldState getWorld() {
+        return world;
+    }
+
+    /** Per-match state of this engine (score, marks, planned targets, possession). */
+    public MatchContext getContext() {
+        return ctx;
+    }
+
+    public double getDt() {
+        return dt;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /** Number of ticks simulated so far. */
+    public long getTickCount() {
+        return clock.getTicks();
+    }
+
+    /** Per-term profile of this match's off-ball searches; off until {@link ScorerProfile#setEnabled}. */
+    public ScorerProfile getScorerProfile() {
+        return scorerProfile;
+    }
+
+    /** Per-tick budget of this match's position searches; unlimited until {@link SearchBudget#setBudgetNanos}. */
+    public SearchBudget getSearchBudget() {
+        return searchBudget;
+    }
+
+    /** Whether attacking runners share team-assigned peaks instead of searching on their own. */
+    public boolean isTeamAssignment() {
+        return teamAssignment;
+    }
+
+    /**
+     * Turn team-level attack assignment on (the default) or off. Off, each runner searches the field
+     * on its own and is pushed apart from its teammates' targets afterwards.
+     */
+    public void setTeamAssignment(boolean on) {
+        teamAssignment = on;
+    }
+
+    /** Whether coarse raster cells are filled on the fork/join pool before the searches read them. */
+    public boolean isParallelFill() {
+        return parallelFill;
+    }
+
+    /**
+     * Fill each pass's coarse raster cells on the common fork/join pool (see
+     * {@link TeamRaster#fillCoarse}) before the team's searches read them, or let the searches fill
+     * them as they go. On by default when there is more than one core. Play is identical either way.
+     * Skipped under a search budget, whose scan may stop before it reads every cell.
+     */
+    public void setParallelFill(boolean on) {
+        parallelFill = on;
+    }
+
+    /**
+     * Score the passers' raster-less search rows with batched geometry kernels (on by default) or
+     * point by point; the targets are the same either way. A passer only runs that search when its
+     * team's shared attack search did not run this tick (ball in our half, or assignment off). The
+     * off-ball searches read their team's {@link TeamRaster} per cell and do not use the kernels.
+     */
+    public void setRowKernels(boolean on) {
+        attacker.setRowKernels(on);
+        oppAttacker.setRowKernels(on);
+    }
+
+    /** Targets reused across ticks for recurring situations; off until {@link SituationCache#setCapacity}. */
+    public SituationCache getSituationCache() {
+        return situationCache;
+    }
+
+    /** Match clock; advances by exactly {@link #getDt()} per {@link #step()}. */
+    public SimClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Hash of the physical state (ball, robots, possession, score). Two runs with the same seed and
+     * starting weights must report the same value after the same number of ticks.
+     */
+    public long stateHash() {
+        long h = 1125899906842597L;
+        h = 31 * h + Double.doubleToLongBits(world.ball.x);
+        h = 31 * h + Double.doubleToLongBits(world.ball.y);
+        h = 31 * h + Double.doubleToLongBits(world.ball.vx);
+        h = 31 * h + Double.doubleToLongBits(world.ball.vy);
+        for (java.util.List<Robot> team : java.util.List.of(world.ourRobots, world.oppRobots)) {
+            for (Robot r : team) {
+                h = 31 * h + r.id;
+                h = 31 * h + Double.doubleToLongBits(r.x);
+                h = 31 * h + Double.doubleToLongBits(r.y);
+                h = 31 * h + Double.doubleToLongBits(r.orientation);
+            }
+        }
+        h = 31 * h + ctx.ballOwnerId;
+        h = 31 * h + ctx.scoreBlue;
+        h = 31 * h + ctx.scoreRed;
+        return h;
+    }
+
+    /** Run {@code nTicks} ticks back to back, without sleeping. */
+    public void run(long nTicks) {
+        for (long i = 0; i < nTicks; i++) {
+            step();
+        }
+    }
+
+    /** Reset robots to the kickoff formation and put the ball on the center spot. */
+    public void reset() {
+        resetFormation(world, registry);
+        world.ball.x = 0.0;
+        world.ball.y = 0.0;
+        world.ball.vx = 0.0;
+        world.ball.vy = 0.0;
+        clearPossession();
+        java.util.Arrays.fill(ctx.lastRobotHas, false);
+        java.util.Arrays.fill(ctx.lastAttackHas, false);
+    }
+
+    /**
+     * Place a stopped ball in front of a goalkeeper (for symmetric GK-catch testing).
+     *
+     * @param teamSign +1: near the blue GK (left goal), -1: near the red GK (right goal)
+     */
+    public void placeBallNearGoalkeeper(int teamSign) {
+        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+        world.ball.x = (teamSign == +1) ? (-halfL + 0.75) : (halfL - 0.75);
+        world.ball.y = 0.0;
+        world.ball.vx = 0.0;
+        world.ball.vy = 0.0;
+        clearPossession();
+    }
+
+    private void clearPossession() {
+        ctx.ballOwnerId = -1;
+        ctx.ballOwnerTeam = 0;
+        ctx.gkHoldUntilNanos = 0L;
+        ctx.gkHoldOwnerId = -1;
+        ctx.gkHoldOwnerTeam = 0;
+        ctx.stuckSinceNanos = -1;
+        ctx.lastBallX = world.ball.x;
+        ctx.lastBallY = world.ball.y;
+    }
+
+    /** Advance the match by one fixed tick of {@link #getDt()} seconds. */
+    public void step() {
+        clock.advance();
+        searchBudget.beginTick();
+
+        // Reset planned target cache for this frame.
+        java.util.Arrays.fill(ctx.plannedHas, false);
+        java.util.Arrays.fill(ctx.markHas, false);
+        java.util.Arrays.fill(ctx.assignedHas, false);
+
+        // Reset per-frame pass-intent flags.
+        ctx.teamPassingBlue = false;
+        ctx.teamPassingRed = false;
+        ctx.teamRegainSoonBlue = false;
+        ctx.teamRegainSoonRed = false;
+
+        // Pre-compute marking assignments (defense only).
+        // Blue is defending when ball.x <= 0; Red is defending when ball.x >= 0.
+        if (!isAttackingWithTeamSign(world, +1)) {
+            assignMarks(world, +1);
+        }
+        if (!isAttackingWithTeamSign(world, -1)) {
+            assignMarks(world, -1);
+        }
+
+        // 1) Decide + 2) Apply
+        // --- Our team (blue) ---
+        Robot ourClosest = findClosestRobot(world.ourRobots, world.ball);
+        Robot oppClosestToBall = findClosestRobot(world.oppRobots, world.ball);
+        long now = clock.nowNanos();
+        if (shouldSwitchAttacker(now, ctx.lastSwitchNanosOur, holdNanos,
+                ctx.ourAttackerId, ourClosest, world.ball, world.ourRobots)) {
+            ctx.ourAttackerId = ourClosest.id;
+            ctx.lastSwitchNanosOur = now;
+        }
+
+        situationCache.begin(world, ctx.ballOwnerId, ctx.ballOwnerTeam);
+
+        // Team-level off-ball terms are shared by the whole blue pass and updated incrementally.
+        // Started before the ball-winner decides, so the team's shared attack search also answers
+        // its requested pass.
+        blueAttackRaster.begin(world, +1);
+        blueDefenseRaster.begin(world, +1);
+        if (!isAttackingWithTeamSign(world, +1)) fillCoarse(blueDefenseRaster, false);
+        GridPoint blueTarget = assignAttackTargets(world, +1, ourClosest, blueAttackRaster);
+
+        // Precompute ball-winner command first so other robots can react (spread) in the same frame.
+        RobotCommand ourWinnerCmd = null;
+        int ourWinnerId = (ourClosest == null) ? -1 : ourClosest.id;
+        if (ourClosest != null && !isGoalkeeper(ourClosest)) {
+            ourWinnerCmd = attacker.decide(ourClosest, world, blueTarget);
+            ctx.teamPassingBlue = (ourWinnerCmd != null && ourWinnerCmd.kick && ourWinnerCmd.passTargetId >= 0 && !ourWinnerCmd.shotIntent);
+        }
+
+        // If we are likely to regain the ball soon (and it's not a close contest), spread early.
+        // Exclude true contests (opponent close enough to challenge).
+        if (world.ball != null && ourClosest != null && !isGoalkeeper(ourClosest) && ctx.ballOwnerTeam != +1) {
+            double dOur = Math.sqrt(dist2(ourClosest.x, ourClosest.y, world.ball.x, world.ball.y));
+            double dOpp = (oppClosestToBall == null) ? 9.0 : Math.sqrt(dist2(oppClosestToBall.x, oppClosestToBall.y, world.ball.x, world.ball.y));
+            // "Likely regain" when we clearly arrive first and the opponent isn't close enough to contest.
+            boolean opponentClose = dOpp <= 0.75;
+            boolean weArriveSoon = dOur <= 0.75;
+            boolean clearLead = (dOur + 0.18) < dOpp;
+            ctx.teamRegainSoonBlue = weArriveSoon && clearLead && !opponentClose;
+        }
+
+        for (Robot r : world.ourRobots) {
+            // GK: stay defender always
+            boolean isGK = isGoalkeeper(r);
+            boolean isBallWinner = (ourClosest != null && r.id == ourClosest.id);
+            boolean isBackup = isSecondClosestRobot(world.ourRobots, world.ball, r);
+
+            Behavior b;
+            if (isGK) {
+                b = goalkeeper;
+            } else if (isBallWinner) {
+                b = attacker;
+            } else {
+                // Tactical off-ball roles: create passing lanes (attack) or mark/cut lanes (defense).
+                b = selectTacticalOffBallBehaviorForOur(r, world, supporter, defender);
+            }
+
+            RobotCommand cmd;
+            if (isBallWinner && ourWinnerCmd != null && r.id == ourWinnerId) {
+                cmd = ourWinnerCmd;
+            } else {
+                cmd = b.decide(r, world);
+            }
+            // Extra tactical positioning beyond the base Behavior
+            if (isGK) {
+                cmd = applyGoalkeeperConstraints(cmd, r, world, +1);
+            } else if (!isBallWinner) {
+                cmd = applyTacticalOffBallAdjustment(cmd, r, world, +1, blueAttackRaster, blueDefenseRaster);
+            }
+            if (!isGK) {
+                if (!isBallWinner && isBackup) {
+                    cmd = applyBackupSupport(cmd, r, world, +1);
+                }
+                if (!isBallWinner) {
+                    applyDeconflictBias(cmd, r, world, +1);
+                }
+            }
+            applyCommand(world, r, cmd, dt, +1);
+        }
+
+        // --- Opponent team (red) ---
+        WorldState mWorld = mirrorWorld(world);
+        Robot oppClosestM = findClosestRobot(mWorld.ourRobots, mWorld.ball);
+        Robot blueClosestToBallM = findClosestRobot(mWorld.oppRobots, mWorld.ball);
+        if (shouldSwitchAttacker(now, ctx.lastSwitchNanosOpp, holdNanos,
+                ctx.oppAttackerId, oppClosestM, mWorld.ball, mWorld.ourRobots)) {
+            ctx.oppAttackerId = oppClosestM.id;
+            ctx.lastSwitchNanosOpp = now;
+        }
+
+        situationCache.begin(mWorld, ctx.ballOwnerId, -ctx.ballOwnerTeam);
+
+        redAttackRaster.begin(mWorld, +1);
+        redDefenseRaster.begin(mWorld, +1);
+        if (!isAttackingWithTeamSign(mWorld, +1)) fillCoarse(redDefenseRaster, false);
+        GridPoint redTargetM = assignAttackTargets(mWorld, +1, oppClosestM, redAttackRaster);
+
+        // Precompute opponent ball-winner (in mirrored frame) first.
+        RobotCommand oppWinnerCmdM = null;
+        int oppWinnerId = (oppClosestM == null) ? -1 : oppClosestM.id;
+        if (oppClosestM != null && !isGoalkeeper(oppClosestM)) {
+            oppWinnerCmdM = oppAttacker.decide(oppClosestM, mWorld, redTargetM);
+            ctx.teamPassingRed = (oppWinnerCmdM != null && oppWinnerCmdM.kick && oppWinnerCmdM.passTargetId >= 0 && !oppWinnerCmdM.shotIntent);
+        }
+
+        // Regain-soon for Red team in mirrored frame.
+        if (mWorld.ball != null && oppClosestM != null && !isGoalkeeper(oppClosestM) && ctx.ballOwnerTeam != -1) {
+            double dRed = Math.sqrt(dist2(oppClosestM.x, oppClosestM.y, mWorld.ball.x, mWorld.ball.y));
+            double dBlue = (blueClosestToBallM == null) ? 9.0 : Math.sqrt(dist2(blueClosestToBallM.x, blueClosestToBallM.y, mWorld.ball.x, mWorld.ball.y));
+            boolean opponentClose = dBlue <= 0.75;
+            boolean weArriveSoon = dRed <= 0.75;
+            boolean clearLead = (dRed + 0.18) < dBlue;
+            ctx.teamRegainSoonRed = weArriveSoon && clearLead && !opponentClose;
+        }
+
+        for (int i = 0; i < world.oppRobots.size(); i++) {
+            Robot r = world.oppRobots.get(i);
+            boolean isGK = isGoalkeeper(r);
+
+            // Same robot in the mirrored frame. Red robots only move in their own applyCommand(),
+            // so it still matches r exactly.
+            Robot mr = mWorld.ourRobots.get(i);
+            Behavior b;
+            boolean isBallWinnerM = (oppClosestM != null && r.id == oppClosestM.id);
+            boolean isBackupM = isSecondClosestRobot(mWorld.ourRobots, mWorld.ball, mr);
+            if (isGK) {
+                // In mirrored frame, GK defends the left goal (same as our team).
+                b = goalkeeper;
+            } else if (isBallWinnerM) {
+                b = oppAttacker;
+            } else {
+                b = selectTacticalOffBallBehaviorForOur(mr, mWorld, oppSupporter, oppDefender);
+            }
+
+            RobotCommand cmd;
+            if (isBallWinnerM && oppWinnerCmdM != null && mr.id == oppWinnerId) {
+                cmd = oppWinnerCmdM;
+            } else {
+                cmd = b.decide(mr, mWorld);
+            }
+            if (isGK) {
+                cmd = applyGoalkeeperConstraints(cmd, mr, mWorld, +1);
+            } else if (!isBallWinnerM) {
+                cmd = applyTacticalOffBallAdjustment(cmd, mr, mWorld, +1, redAttackRaster, redDefenseRaster);
+            }
+            if (!isGK) {
+                if (!isBallWinnerM && isBackupM) {
+                    cmd = applyBackupSupport(cmd, mr, mWorld, +1);
+                }
+                if (!isBallWinnerM) {
+                    applyDeconflictBias(cmd, mr, mWorld, +1);
+                }
+            }
+            applyCommand(world, r, unmirrorCommand(cmd), dt, -1);
+        }
+
+        // 3) Integrate ball motion
+        integrateBall(world, dt, ctx.ballOwnerId, ctx.ballOwnerTeam);
+
+        // If a goal was detected during ball integration, reset state cleanly here.
+        if (ctx.goalPendingTeam != 0) {
+            reset();
+            ctx.goalPendingTeam = 0;
+            return;
+        }
+
+        // 3.5) Ball-robot collision for all robots (both teams)
+        // If someone currently "owns" the ball, exclude that robot so the carry model isn't undone.
+        resolveBallRobotCollisions(world, ctx.ballOwnerId, ctx.ballOwnerTeam);
+
+        // 3.6) Robot-robot collision (prevent robot overlap)
+        resolveRobotRobotCollisions(world);
+
+        // 3.7) Possession / dribble: attach ball to an owner when controllable
+        // Run after collisions so robots can actually "reach" the ball.
+        updatePossessionAndDribble(world, dt);
+
+        // Resolve timeouts for shoot-vs-pass learning (progress-based fallback).
+        ctx.maybeTimeoutLastAction(ctx.ballOwnerTeam, world.ball.x);
+
+        // 3.75) Break rare stuck contests by randomly assigning possession
+        maybeBreakStuckContest(world);
+    }
+
+    /**
+     * Off-ball tactical selection (for the "our" side in the passed world frame).
+     * - If attacking: spread into pass lanes (SupporterBehavior)
+     * - If defending: cut pass lanes / mark receivers (DefenderBehavior)
+     */
+    private static Behavior selectTacticalOffBallBehaviorForOur(Robot self,
+                                                                WorldState world,
+                                                                Behavior supporter,
+                                                                Behavior defender) {
+        if (self == null || world == null || world.ball == null) return defender;
+        boolean attacking = isAttackingWithTeamSign(world, +1);
+        // When attacking, we want almost everyone to behave like an off-ball receiver/runner.
+        // The actual positioning (rest-defense vs push-up) is handled by applyTacticalOffBallAdjustment
+        // via the scorer selection.
+        return attacking ? supporter : defender;
+    }
+
+    /**
+     * Goalkeeper should not join midfield contests: keep it near its goal and inside a small box.
+     * This is applied as a post-processing constraint on cmd.
+     */
+    private static RobotCommand applyGoalkeeperConstraints(RobotCommand cmd,
+                                                           Robot self,
+                                                           WorldState world,
+                                                           int teamSign) {
+        if (cmd == null) cmd = new RobotCommand();
+        if (self == null || world == null || world.ball == null) return cmd;
+
+        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+
+        // Allowed GK box (defensive area)
+        double boxDepth = 1.15; // meters from goal line into field
+        double boxHalfW = 1.05; // meters
+
+        double ownGoalX = -halfL * teamSign;
+        double fieldDirFromGoal = teamSign; // direction from our goal into the field
+
+        // GK home X: slightly in front of goal line (inside field)
+        double homeX = ownGoalX + fieldDirFromGoal * 0.35;
+        double homeY = 0.0;
+
+        // Clamp range inside the GK box
+        double edgeX = ownGoalX + fieldDirFromGoal * FieldConfig.ROBOT_RADIUS_M;
+        double deepX = ownGoalX + fieldDirFromGoal * boxDepth;
+        double minX = Math.min(edgeX, deepX);
+        double maxX = Math.max(edgeX, deepX);
+        double minY = -boxHalfW;
+        double maxY = boxHalfW;
+
+        boolean ballInGKBox = isBallInGKBox(world.ball, teamSign);
+
+        double targetX;
+        double targetY;
+
+        if (ballInGKBox) {
+            // If the ball is in our box, go to the ball (so the GK can actually take possession).
+            targetX = clamp(world.ball.x, minX, maxX);
+            targetY = clamp(world.ball.y, minY, maxY);
+        } else {
+            // Otherwise, stay between the ball and our goal, inside the box.
+            double towardGoalX = (world.ball.x + ownGoalX) * 0.5;
+            double towardGoalY = world.ball.y * 0.7;
+            targetX = clamp(towardGoalX, minX, maxX);
+            targetY = clamp(towardGoalY, minY, maxY);
+
+            // If ball is far away (deep in opponent half), just go home.
+            if ((world.ball.x * teamSign) > 0.5) {
+                targetX = homeX;
+                targetY = homeY;
+            }
+        }
+
+        double dx = targetX - self.x;
+        double dy = targetY - self.y;
+        double d = Math.sqrt(dx * dx + dy * dy);
+        if (d > 1e-6) {
+            double speed = ballInGKBox ? 1.7 : 1.4;
+            cmd.vx = (dx / d) * speed;
+            cmd.vy = (dy / d) * speed;
+        } else {
+            cmd.vx = 0;
+            cmd.vy = 0;
+        }
+        cmd.omega = 0;
+        // GK only kicks if it's already in the kick range (handled in DefenderBehavior); don't force it.
+        return cmd;
+    }
+
+    private static boolean isBallInGKBox(Ball ball, int teamSign) {
+        if (ball == null) return false;
+        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+        double boxDepth = 1.15;
+        double boxHalfW = 1.05;
+
+        double ownGoalX = -halfL * teamSign;
+        double fieldDirFromGoal = teamSign;
+
+        double xFromGoal = (ball.x - ownGoalX) * fieldDirFromGoal;
+        if (xFromGoal < 0.0 || xFromGoal > boxDepth + 0.05) return false;
+        return Math.abs(ball.y) <= (boxHalfW + 0.05);
+    }
+
+    /**
+     * Tactical off-ball adjustment:
+     * - When attacking: move to a "pass-receive" point that opens a lane away from nearest defender.
+     * - When defending: mark the most threatening receiver (opponent closest to ball, excluding their ball-winner).
+     *
+     * The rasters hold this team's shared score terms, carried over between ticks (see {@link TeamRaster}).
+     */
+    private RobotCommand applyTacticalOffBallAdjustment(RobotCommand cmd,
+                                                        Robot self,
+                                                        WorldState world,
+                                                        int teamSign,
+                                                        TeamRaster attackRaster,
+                                                        TeamRaster defenseRaster) {
+        if (cmd == null) cmd = new RobotCommand();
+        if (self == null || world == null || world.ball == null) return cmd;
+        cmd.robotId = self.id;
+
+        Ball ball = world.ball;
+        boolean attacking = isAttackingWithTeamSign(world, teamSign);
+
+    // If the ball is already in the opponent half, we want the *side defenders* to join the attack
+    // and behave like the front roles (receive / create lanes).
+    // NOTE: we still keep exactly one safety as rest-defense (typically the center defender).
+    boolean ballInOppHalf = (teamSign == +1) ? (ball.x > 0.0) : (ball.x < 0.0);
+
+        // When attacking (but not yet deep), we still need "rest-defense": keep exactly ONE robot as the safety.
+        // Option A: choose the deepest (closest to our goal) non-GK robot as the rest-defender.
+        // This works for both teams because red runs in the mirrored frame.
+        int restDefId;
+        if (!attacking) {
+            restDefId = -1;
+        } else if (ballInOppHalf) {
+            // Force the rest-defender to be the "center defender" so BOTH side defenders join the attack.
+            restDefId = findCenterRestDefenderId(world, teamSign);
+        } else {
+            // Normal case: choose the deepest robot as safety.
+            restDefId = findRestDefenderId(world, teamSign);
+        }
+        boolean isRestDefender = (self.id == restDefId);
+
+        if (attacking) {
+            // --- ATTACK: score grid points and move to the best receiving location ---
+            // Wide defenders are treated as temporary midfielders: they also pick receiving points.
+            // Central defender uses a rest-defense / high-line scorer.
+            boolean isSideDefender = (Math.abs(self.y) > 0.55);
+
+            // Everyone except the designated rest-defender should play high: receive, shoot, create lanes.
+            // When the ball is in opponent half, side defenders should explicitly join as MF-like runners.
+            PositionScorer scorer;
+            int variant;
+            if (isRestDefender) {
+                scorer = TacticalScorers.defendWhileAttacking(attackRaster);
+                variant = 0;
+            } else if (ballInOppHalf && isSideDefender) {
+                scorer = TacticalScorers.wideDefenderJoinAttack(attackRaster);
+                variant = 1;
+            } else {
+                scorer = TacticalScorers.attackOffBall(attackRaster, scorerProfile);
+                variant = 2;
+            }
+
+            // Add a small learned bonus on top of the heuristic scorer.
+            boolean teamTryingToPass = isTeamPassingNow(self.id);
+            boolean teamRegainSoon = isTeamRegainSoonNow(self.id);
+            PositionScorer learnedScorer = PositionScorer.prepared((w, s, ts) -> {
+                CellEvaluator eval = scorer.prepare(w, s, ts);
+                return new CellEvaluator() {
+                    @Override
+                    public double score(double x, double y) {
+                        double base = eval.score(x, y) + PositionLearning.attackCellBonus(attackRaster, w, s, x, y, ts);
+                        if (teamTryingToPass && !isRestDefender) {
+                            base += passSpreadBonus(w, s, x, y, ts);
+                        }
+                        if (teamRegainSoon && !isRestDefender) {
+                            base += preRegainSpreadBonus(w, s, x, y, ts);
+                        }
+                        return base;
+                    }
+
+                    @Override
+                    public void explain(double x, double y, TermSink sink) {
+                        eval.explain(x, y, sink);
+                        sink.term("learnedAttack", PositionLearning.attackCellBonus(attackRaster, w, s, x, y, ts));
+                        if (teamTryingToPass && !isRestDefender) {
+                            sink.term("passSpread", passSpreadBonus(w, s, x, y, ts));
+                        }
+                        if (teamRegainSoon && !isRestDefender) {
+                            sink.term("preRegainSpread", preRegainSpreadBonus(w, s, x, y, ts));
+                        }
+                    }
+                };
+            });
+
+            int slot = registry.slotOf(self.id);
+            boolean hasPrev = (slot >= 0 && ctx.lastAttackHas[slot]);
+            // Runners with a team-assigned peak only look for their own best point around it.
+            boolean assigned = (variant == 2 && slot >= 0 && ctx.assignedHas[slot]);
+            int kind = SituationCache.KIND_ATTACK | (variant << SituationCache.KIND_BITS)
+                    | (teamTryingToPass ? 1 << (SituationCache.KIND_BITS + 2) : 0)
+                    | (teamRegainSoon ? 1 << (SituationCache.KIND_BITS + 3) : 0)
+                    | (assigned ? 1 << (SituationCache.KIND_BITS + 4) : 0);
+            // A cached target only stands if it still beats the search's coarse pass.
+            long inputs = assigned
+                    ? SituationCache.inputs(attackRaster, ctx.assignedTx[slot], ctx.assignedTy[slot])
+                    : SituationCache.inputs(attackRaster, hasPrev ? ctx.lastAttackTx[slot] : Double.NaN,
+                            hasPrev ? ctx.lastAttackTy[slot] : Double.NaN);
+            GridPoint cached = situationCache.get(world, self.id, kind, inputs);
+            GridPoint best = assigned
+                    ? ScoreGrid.refineFrom(world, self, teamSign, attackRaster.step(), learnedScorer,
+                            ctx.assignedTx[slot], ctx.assignedTy[slot], searchBudget, cached)
+                    : ScoreGrid.findBestCandidates(world, self, teamSign, learnedScorer, attackCandidates,
+                            hasPrev ? ctx.lastAttackTx[slot] : Double.NaN, hasPrev ? ctx.lastAttackTy[slot] : Double.NaN,
+                            searchBudget, cached);
+            situationCache.put(world, self.id, kind, inputs, best);
+            profileWinner(self, world, teamSign, learnedScorer, best);
+            if (slot >= 0) {
+                ctx.lastAttackHas[slot] = true;
+                ctx.lastAttackTx[slot] = best.x;
+                ctx.lastAttackTy[slot] = best.y;
+            }
+
+            double targetX = best.x;
+            double targetY = best.y;
+
+            // Extra team-level deconfliction: if many robots choose the same best grid point,
+            // add a small repulsion away from teammates' intended targets. Assigned peaks are
+            // already apart.
+            if (!assigned) {
+                double[] off = computeTargetDeconflictOffset(self, world, targetX, targetY, teamSign);
+                targetX += off[0];
+                targetY += off[1];
+            }
+
+            // Publish our final planned target for later robots in this frame.
+            recordPlannedTarget(self, targetX, targetY);
+
+            // Store attack positioning features for later reward.
+            if (slot >= 0) {
+                ctx.lastAttackPosFeatures[slot] = PositionLearning.attackFeatures(world, self, targetX, targetY, teamSign);
+                ctx.lastAttackPosAtNanos[slot] = clock.nowNanos();
+            }
+
+            // Publish a representative target for debug overlay (FINAL target after deconfliction).
+            if (teamSign == +1) {
+                ctx.debugTargets[0] = targetX;
+                ctx.debugTargets[1] = targetY;
+            } else {
+                ctx.debugTargets[2] = targetX;
+                ctx.debugTargets[3] = targetY;
+            }
+
+            // Replace movement: go to best spot.
+            double mx = targetX - self.x;
+            double my = targetY - self.y;
+            double md = Math.sqrt(mx * mx + my * my);
+            if (md > 1e-6) {
+                double speed = 1.35;
+                cmd.vx = (mx / md) * speed;
+                cmd.vy = (my / md) * speed;
+            } else {
+                cmd.vx = 0;
+                cmd.vy = 0;
+            }
+            cmd.omega = 0;
+            cmd.kick = false;
+            return cmd;
+        }
+
+        // --- DEFENSE: score grid points to cut lanes / stay goal-side ---
+        {
+            double step = defenseRaster.step();
+            PositionScorer base = TacticalScorers.defendOffBall(ctx::getMarkTargetForRobot, defenseRaster);
+            PositionScorer learned = PositionScorer.prepared((w, s, ts) -> {
+                CellEvaluator eval = base.prepare(w, s, ts);
+                double[] mark = ctx.getMarkTargetForRobot(s.id);
+                // If we are about to regain the ball and this robot isn't assigned to man-mark,
+                // start spreading early to prepare for the next pass/move.
+                boolean spreadEarly = (mark == null && isTeamRegainSoonNow(s.id));
+                return new CellEvaluator() {
+                    @Override
+                    public double score(double x, double y) {
+                        double v = eval.score(x, y) + PositionLearning.defenseCellBonus(w, s, x, y, ts, mark);
+                        if (spreadEarly) {
+                            v += preRegainSpreadBonus(w, s, x, y, ts);
+                        }
+                        return v;
+                    }
+
+                    @Override
+                    public void explain(double x, double y, TermSink sink) {
+                        eval.explain(x, y, sink);
+                        sink.term("learnedDefense", PositionLearning.defenseCellBonus(w, s, x, y, ts, mark));
+                        if (spreadEarly) {
+                            sink.term("preRegainSpread", preRegainSpreadBonus(w, s, x, y, ts));
+                        }
+                    }
+                };
+            });
+            int kind = SituationCache.KIND_DEFENSE
+                    | (ctx.getMarkTargetForRobot(self.id) != null ? 1 << SituationCache.KIND_BITS : 0)
+                    | (isTeamRegainSoonNow(self.id) ? 1 << (SituationCache.KIND_BITS + 1) : 0);
+            long inputs = SituationCache.inputs(defenseRaster, Double.NaN, Double.NaN);
+            GridPoint cached = situationCache.get(world, self.id, kind, inputs);
+            GridPoint best = ScoreGrid.findBestRefined(world, self, teamSign, step, learned, searchBudget, cached);
+            situationCache.put(world, self.id, kind, inputs, best);
+            profileWinner(self, world, teamSign, learned, best);
+
+            // Publish a representative target for debug overlay.
+            if (teamSign == +1) {
+                ctx.debugTargets[0] = best.x;
+                ctx.debugTargets[1] = best.y;
+            } else {
+                ctx.debugTargets[2] = best.x;
+                ctx.debugTargets[3] = best.y;
+            }
+            double targetX = best.x;
+            double targetY = best.y;
+
+            // If we have a man-mark assignment, do NOT apply spacing/deconfliction.
+            // Marking should be decisive and is allowed to ignore attack-like distance shaping.
+            if (ctx.getMarkTargetForRobot(self.id) == null) {
+                double[] off = computeTargetDeconflictOffset(self, world, targetX, targetY, teamSign);
+                targetX += off[0];
+                targetY += off[1];
+            }
+
+            recordPlannedTarget(self, targetX, targetY);
+
+            // Store defense positioning features for later reward.
+            int slot = registry.slotOf(self.id);
+            if (slot >= 0) {
+                double[] mark = ctx.getMarkTargetForRobot(self.id);
+                ctx.lastDefPosFeatures[slot] = PositionLearning.defenseFeatures(world, self, targetX, targetY, teamSign, mark);
+                ctx.lastDefPosAtNanos[slot] = clock.nowNanos();
+            }
+
+            double dx = targetX - self.x;
+            double dy = targetY - self.y;
+            double d = Math.sqrt(dx * dx + dy * dy);
+            if (d > 1e-6) {
+                double speed = 1.25;
+                cmd.vx = (dx / d) * speed;
+                cmd.vy = (dy / d) * speed;
+            } else {
+                cmd.vx = 0;
+                cmd.vy = 0;
+            }
+            cmd.omega = 0;
+            cmd.kick = false;
+        }
+
+        return cmd;
+    }
+
+    private boolean isTeamPassingNow(int robotId) {
+        if (registry.teamOf(robotId) == -1) return ctx.teamPassingRed;
+        return ctx.teamPassingBlue;
+    }
+
+    private boolean isTeamRegainSoonNow(int robotId) {
+        if (registry.teamOf(robotId) == -1) return ctx.teamRegainSoonRed;
+        return ctx.teamRegainSoonBlue;
+    }
+
+    // With scorer profiling on, record the terms of the cell a search picked.
+    private void profileWinner(Robot self, WorldState world, int teamSign, PositionScorer scorer, GridPoint best) {
+        if (!scorerProfile.isEnabled()) return;
+        scorer.prepare(world, self, teamSign)
+                .explain(best.x, best.y, scorerProfile.winner(self.id, clock.getTicks(), best.x, best.y));
+    }
+
+    private static double passSpreadBonus(WorldState world, Robot self, double x, double y, int teamSign) {
+        if (world == null || world.ball == null || self == null) return 0.0;
+
+        double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+
+        // 1) Use width: encourage wide positions (but not hard-corner camping).
+        double width01 = Math.min(1.0, Math.abs(y) / (halfW + 1e-9));
+        double widthBonus = 0.85 * width01;
+
+        // 2) Avoid clustering near the ball (prevents tiny triangles around the passer).
+        double db = Math.sqrt(dist2(x, y, world.ball.x, world.ball.y));
+        double ballPenalty = 0.0;
+        if (db < 1.10) {
+            ballPenalty = -1.35 * (1.10 - db) / 1.10;
+        }
+
+        // 3) Encourage spacing from teammates.
+        java.util.List<Robot> mates = (teamSign == +1) ? world.ourRobots : world.oppRobots;
+        double nearest = 9.0;
+        if (mates != null) {
+            for (Robot r : mates) {
+                if (r == null) continue;
+                if (r.id == self.id) continue;
+                double d = Math.sqrt(dist2(x, y, r.x, r.y));
+                if (d < nearest) nearest = d;
+            }
+        }
+        // Prefer >= ~1.4m separation; small penalty if closer.
+        double spacing = clamp((nearest - 1.4) / 1.2, -1.0, 1.0);
+        double spacingBonus = 0.65 * spacing;
+
+        // 4) Small forward bias so "wide" doesn't mean drifting backwards.
+        double forward = (x - world.ball.x) * teamSign;
+        double forwardBonus = 0.20 * clamp(forward / 2.5, -1.0, 1.0);
+
+        return widthBonus + spacingBonus + ballPenalty + forwardBonus;
+    }
+
+    private static double preRegainSpreadBonus(WorldState world, Robot self, double x, double y, int teamSign) {
+        if (world == null || world.ball == null || self == null) return 0.0;
+
+        double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+
+        // Lighter version of passSpreadBonus: spread and get ready, but don't abandon structure.
+        double width01 = Math.min(1.0, Math.abs(y) / (halfW + 1e-9));
+        double widthBonus = 0.55 * width01;
+
+        double db = Math.sqrt(dist2(x, y, world.ball.x, world.ball.y));
+        double ballPenalty = 0.0;
+        if (db < 1.05) {
+            ballPenalty = -0.90 * (1.05 - db) / 1.05;
+        }
+
+        java.util.List<Robot> mates = (teamSign == +1) ? world.ourRobots : world.oppRobots;
+        double nearest = 9.0;
+        if (mates != null) {
+            for (Robot r : mates) {
+                if (r == null) continue;
+                if (r.id == self.id) continue;
+                double d = Math.sqrt(dist2(x, y, r.x, r.y));
+                if (d < nearest) nearest = d;
+            }
+        }
+        double spacing = clamp((nearest - 1.35) / 1.1, -1.0, 1.0);
+        double spacingBonus = 0.45 * spacing;
+
+        double forward = (x - world.ball.x) * teamSign;
+        double forwardBonus = 0.12 * clamp(forward / 2.8, -1.0, 1.0);
+
+        return widthBonus + spacingBonus + ballPenalty + forwardBonus;
+    }
+
+    /**
+     * Team-level attack targets, once per team and frame: the top peaks of one shared off-ball score
+     * field (non-maximum suppressed, see {@link ScoreGrid#findPeaks}) are assigned to the team's
+     * runners by minimum total (move cost - peak score). Runners are the attacking off-ball robots
+     * on the plain attackOffBall scorer: not the GK, ball-winner, rest-defender or a wide robot
+     * joining from the back. Writes ctx.assignedHas/Tx/Ty.
+     *
+     * Unlike computeTargetDeconflictOffset this does not depend on the order robots decide in, and
+     * each runner then only refines its own point around its peak instead of searching the field.
+     *
+     * Returns the best peak, which answers the ball-winner's requested pass, or null when the field
+     * was not searched (assignment off, not attacking, or no runners).
+     */
+    private GridPoint assignAttackTargets(WorldState world, int teamSign, Robot ballWinner, TeamRaster raster) {
+        if (!teamAssignment) return null;
+        if (world == null || world.ball == null) return null;
+        if (!isAttackingWithTeamSign(world, teamSign)) return null;
+
+        // Same roles as applyTacticalOffBallAdjustment picks per robot.
+        boolean ballInOppHalf = (teamSign == +1) ? (world.ball.x > 0.0) : (world.ball.x < 0.0);
+        int restDefId = ballInOppHalf ? findCenterRestDefenderId(world, teamSign) : findRestDefenderId(world, teamSign);
+        assignRunners.clear();
+        for (Robot r : world.ourRobots) {
+            if (isGoalkeeper(r)) continue;
+            if (ballWinner != null && r.id == ballWinner.id) continue;
+            if (r.id == restDefId) continue;
+            if (ballInOppHalf && Math.abs(r.y) > 0.55) continue;
+            assignRunners.add(r);
+        }
+        int n = assignRunners.size();
+        if (n == 0) return null;
+
+        // The field has no self terms; travel only enters the assignment cost.
+        fillCoarse(raster, true);
+        GridPoint[] peaks = ScoreGrid.findPeaks(world, teamSign, TacticalScorers.attackOffBallTeam(raster),
+                attackPeaks, n + ASSIGN_SPARE_PEAKS, ASSIGN_PEAK_SEP_M, searchBudget);
+        GridPoint best = null;
+        for (GridPoint p : peaks) {
+            if (best == null || p.score > best.score) best = p;
+        }
+        if (peaks.length < n) return best; // not enough separated peaks: runners search on their own
+
+        if (assignCost.length < n || assignCost[0].length < peaks.length) {
+            assignCost = new double[Math.max(n, assignCost.length)][Math.max(peaks.length, n + ASSIGN_SPARE_PEAKS)];
+        }
+        double[][] cost = assignCost;
+        for (int i = 0; i < n; i++) {
+            Robot r = assignRunners.get(i);
+            for (int p = 0; p < peaks.length; p++) {
+                double d = Math.sqrt(dist2(r.x, r.y, peaks[p].x, peaks[p].y));
+                cost[i][p] = ASSIGN_MOVE_COST_PER_M * d - peaks[p].score;
+            }
+        }
+        int[] peakOf = TargetAssignment.solve(cost, n, peaks.length);
+        for (int i = 0; i < n; i++) {
+            int s = registry.slotOf(assignRunners.get(i).id);
+            if (s < 0) continue;
+            ctx.assignedHas[s] = true;
+            ctx.assignedTx[s] = peaks[peakOf[i]].x;
+            ctx.assignedTy[s] = peaks[peakOf[i]].y;
+        }
+        return best;
+    }
+
+    // Coarse cells the pass's searches are about to read in full: the peak search on the attack
+    // raster, every defender's coarse pass on the defense raster (which has no interception term).
+    private void fillCoarse(TeamRaster raster, boolean interception) {
+        if (parallelFill && !searchBudget.isLimited()) raster.fillCoarse(ForkJoinPool.commonPool(), interception);
+    }
+
+    /**
+     * Pick exactly one rest-defender while attacking: the deepest (closest to our own goal) non-GK robot.
+     * Excludes the current ball-winner so we don't accidentally force the attacker to "stay".
+     */
+    private int findRestDefenderId(WorldState world, int teamSign) {
+        if (world == null || world.ball == null) return -1;
+
+        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+        double ourGoalX = (teamSign == +1) ? -halfL : halfL;
+
+        // Identify ball winner (closest to ball) to exclude.
+        Robot closest = findClosestRobot((teamSign == +1) ? world.ourRobots : world.oppRobots, world.ball);
+        int ballWinnerId = (closest == null) ? Integer.MIN_VALUE : closest.id;
+
+        java.util.List<Robot> mates = (teamSign == +1) ? world.ourRobots : world.oppRobots;
+        if (mates == null || mates.isEmpty()) return -1;
+
+        Robot best = null;
+        double bestDist = Double.POSITIVE_INFINITY;
+        for (Robot r : mates) {
+            if (r == null) continue;
+            if (isGoalkeeper(r)) continue;
+            if (r.id == ballWinnerId) continue;
+
+            double d = Math.abs(r.x - ourGoalX);
+            if (d < bestDist) {
+                bestDist = d;
+                best = r;
+            }
+        }
+        return (best == null) ? -1 : best.id;
+    }
+
+    /**
+     * Choose the "center defender" as the single rest-defender (smallest |y| among field players).
+     * This is used when we want BOTH side defenders to join attack.
+     */
+    private int findCenterRestDefenderId(WorldState world, int teamSign) {
+        if (world == null || world.ball == null) return -1;
+
+        // Exclude the ball-winner (closest to ball) so the attacker isn't forced into rest-defense.
+        Robot closest = findClosestRobot((teamSign == +1) ? world.ourRobots : world.oppRobots, world.ball);
+        int ballWinnerId = (closest == null) ? Integer.MIN_VALUE : closest.id;
+
+        java.util.List<Robot> mates = (teamSign == +1) ? world.ourRobots : world.oppRobots;
+        if (mates == null || mates.isEmpty()) return -1;
+
+        Robot best = null;
+        double bestAbsY = Double.POSITIVE_INFINITY;
+        for (Robot r : mates) {
+            if (r == null) continue;
+            if (isGoalkeeper(r)) continue;
+            if (r.id == ballWinnerId) continue;
+
+            double ay = Math.abs(r.y);
+            if (ay < bestAbsY) {
+                bestAbsY = ay;
+                best = r;
+            }
+        }
+        return (best == null) ? -1 : best.id;
+    }
+
+    /**
+     * If multiple teammates are trying to go to almost the same (x,y), push them apart.
+     * This is a post-process on the selected grid target, so it works for any scorer.
+     */
+    private double[] computeTargetDeconflictOffset(Robot self,
+                                                   WorldState world,
+                                                   double targetX,
+                                                   double targetY,
+                                                   int teamSign) {
+        if (self == null || world == null) return new double[] { 0.0, 0.0 };
+
+        double pushX = 0.0;
+        double pushY = 0.0;
+
+        // Stronger deconfliction for defenders to avoid the 3 defenders collapsing to the same lane-cut point.
+        double radius = 0.95; // meters: if planned targets are within this, push apart
+        double gain = 0.42;   // overall strength
+        boolean isDefenderLike = (Math.abs(self.y) <= 1.2); // GK excluded earlier; center-ish => often defender
+        if (isDefenderLike) {
+            radius = 1.15;
+            gain = 0.55;
+        }
+
+        // Repel from teammates' PLANNED targets (only those already processed this frame).
+        // Slots are registered in id order, so this visits targets exactly as an id-indexed scan would.
+        for (int s = 0; s < ctx.plannedHas.length; s++) {
+            if (!ctx.plannedHas[s]) continue;
+            int i = registry.idAt(s);
+            if (i == self.id) continue;
+
+            double rx = ctx.plannedTx[s];
+            double ry = ctx.plannedTy[s];
+            double dx = targetX - rx;
+            double dy = targetY - ry;
+            double d2 = dx * dx + dy * dy;
+            if (d2 < 1e-9) {
+                // Identical point: add a deterministic tiny push so robots don't stack.
+                double ang = (self.id * 1.7 + i * 0.9);
+                pushX += Math.cos(ang);
+                pushY += Math.sin(ang);
+                continue;
+            }
+
+            double d = Math.sqrt(d2);
+            if (d > radius) continue;
+
+            double strength = (radius - d) / radius;
+            strength = strength * strength; // stronger repulsion when very close
+            pushX += (dx / d) * strength;
+            pushY += (dy / d) * strength;
+        }
+
+        // Limit the offset to keep targets stable.
+        double maxOff = 0.70;
+        double mag = Math.sqrt(pushX * pushX + pushY * pushY);
+        if (mag > 1e-6) {
+            pushX = (pushX / mag) * Math.min(maxOff, mag * gain);
+            pushY = (pushY / mag) * Math.min(maxOff, mag * gain);
+        }
+
+        // Clamp inside field.
+        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+        double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+        double margin = FieldConfig.ROBOT_RADIUS_M + 0.05;
+        double nx = clamp(targetX + pushX, -halfL + margin, halfL - margin);
+        double ny = clamp(targetY + pushY, -halfW + margin, halfW - margin);
+        return new double[] { nx - targetX, ny - targetY };
+    }
+
+    private void recordPlannedTarget(Robot self, double x, double y) {
+        if (self == null) return;
+        int s = registry.slotOf(self.id);
+        if (s < 0) return;
+        ctx.plannedHas[s] = true;
+        ctx.plannedTx[s] = x;
+        ctx.plannedTy[s] = y;
+    }
+
+    /**
+     * Assign simple, stable man-marks for the defending team.
+     *
+     * Contract:
+     * - Writes ctx.markHas/markTx/markTy for defender-like robots only.
+     * - Skips GK and the current ball-winner (closest to ball), so the challenger can pressure.
+     * - Picks distinct opponents by greedy matching (good enough for 3 defenders).
+     */
+    private void assignMarks(WorldState world, int teamSign) {
+        if (world == null || world.ball == null) return;
+
+        int ownerId = ctx.ballOwnerId;
+        int ownerTeam = ctx.ballOwnerTeam;
+
+        java.util.List<Robot> defenders = (teamSign == +1) ? world.ourRobots : world.oppRobots;
+        java.util.List<Robot> opponents = (teamSign == +1) ? world.oppRobots : world.ourRobots;
+        if (defenders == null || defenders.isEmpty()) return;
+        if (opponents == null || opponents.isEmpty()) return;
+
+        // Ball winner on the defending team (the one who should pressure).
+        Robot ballWinner = findClosestRobot(defenders, world.ball);
+        int ballWinnerId = (ballWinner == null) ? Integer.MIN_VALUE : ballWinner.id;
+
+        // Mark candidates: normally ignore opponent GK.
+        java.util.ArrayList<Robot> oppCandidates = markOppCandidates;
+        oppCandidates.clear();
+        for (Robot o : opponents) {
+            if (o == null) continue;
+            oppCandidates.add(o);
+        }
+        if (oppCandidates.isEmpty()) return;
+
+        java.util.Arrays.fill(oppTaken, false);
+
+        // Restrict marking assignments to the back line defenders only (ROLE_DEFENDER in the roster;
+        // ids 1..3 for blue and 11..13 for red in the default 6v6).
+        // This avoids attackers/supporters also taking marks and collapsing.
+        java.util.ArrayList<Robot> defList = markDefenders;
+        defList.clear();
+        for (Robot d : defenders) {
+            if (d == null) continue;
+            if (isGoalkeeper(d)) continue;
+            if (d.id == ballWinnerId) continue;
+            if (!registry.isDefender(d.id)) continue;
+            defList.add(d);
+        }
+        defList.sort((a, b) -> Double.compare(Math.abs(a.y), Math.abs(b.y)));
+
+        // --- Priority marks ---
+        // 1) Mark opponent ball holder (highest priority)
+        // 2) Mark likely receiver (next priority)
+        int oppTeamSign = -teamSign;
+        Robot oppHolder = null;
+        if (ownerId != -1 && ownerTeam == oppTeamSign) {
+            oppHolder = findRobotById(world, ownerId, ownerTeam);
+        }
+
+        // Likely receiver: closest non-GK opponent to the ball, excluding the holder.
+        Robot likelyReceiver = null;
+        double bestRecvD2 = Double.POSITIVE_INFINITY;
+        for (Robot o : opponents) {
+            if (o == null) continue;
+            if (isGoalkeeper(o)) continue;
+            if (oppHolder != null && o.id == oppHolder.id) continue;
+            double d2 = dist2(o.x, o.y, world.ball.x, world.ball.y);
+            if (d2 < bestRecvD2) {
+                bestRecvD2 = d2;
+                likelyReceiver = o;
+            }
+        }
+
+        java.util.Arrays.fill(usedDef, false);
+
+        if (oppHolder != null) {
+            Robot bestDef = null;
+            double bestD2 = Double.POSITIVE_INFINITY;
+            for (Robot d : defList) {
+                if (d == null) continue;
+                double d2 = dist2(d.x, d.y, oppHolder.x, oppHolder.y);
+                if (d2 < bestD2) {
+                    bestD2 = d2;
+                    bestDef = d;
+                }
+            }
+            if (bestDef != null) {
+                setMark(bestDef, oppHolder);
+                usedDef[registry.slotOf(bestDef.id)] = true;
+            }
+        }
+
+        if (likelyReceiver != null) {
+            Robot bestDef = null;
+            double bestD2 = Double.POSITIVE_INFINITY;
+            for (Robot d : defList) {
+                if (d == null) continue;
+                if (usedDef[registry.slotOf(d.id)]) continue;
+                double d2 = dist2(d.x, d.y, likelyReceiver.x, likelyReceiver.y);
+                if (d2 < bestD2) {
+                    bestD2 = d2;
+                    bestDef = d;
+                }
+            }
+            if (bestDef != null) {
+                setMark(bestDef, likelyReceiver);
+                usedDef[registry.slotOf(bestDef.id)] = true;
+            }
+        }
+
+        for (Robot d : defList) {
+            if (d == null) continue;
+            if (usedDef[registry.slotOf(d.id)]) continue;
+
+            Robot best = null;
+            double bestCost = Double.POSITIVE_INFINITY;
+
+            for (Robot o : oppCandidates) {
+                if (o == null) continue;
+                int os = registry.slotOf(o.id);
+                if (os >= 0 && oppTaken[os]) continue;
+
+                // Skip opponent GK unless it is the ball holder.
+                if (isGoalkeeper(o) && (oppHolder == null || o.id != oppHolder.id)) continue;
+
+                double cost = markCost(world, d, o, teamSign);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    best = o;
+                }
+            }
+
+            if (best != null) {
+                setMark(d, best);
+            }
+        }
+    }
+
+    // Record that defender d marks opponent o this frame.
+    private void setMark(Robot d, Robot o) {
+        int ds = registry.slotOf(d.id);
+        if (ds >= 0) {
+            ctx.markHas[ds] = true;
+            ctx.markTx[ds] = o.x;
+            ctx.markTy[ds] = o.y;
+        }
+        int os = registry.slotOf(o.id);
+        if (os >= 0) {
+            oppTaken[os] = true;
+        }
+    }
+
+    /**
+     * Lower cost is better.
+     * We want each defender to pick a threatening opponent, but keep lane stability.
+     */
+    private static double markCost(WorldState world, Robot defender, Robot opp, int teamSign) {
+        // Threat: opponents more advanced toward OUR goal are more dangerous.
+        // In our convention, teamSign is the direction this team attacks.
+        // So "toward our goal" for the opponent is along (-teamSign).
+        double advToOurGoal = opp.x * (-teamSign);
+
+        // We are defending, so an opponent being more forward (adv large) is dangerous.
+        // Convert to threat by rewarding adv, i.e., reduce cost.
+    double threatBonus = clamp(advToOurGoal, -6.0, 6.0) * 0.75;
+
+        // If opponent is closer to the ball, they are more likely to receive soon.
+        double dBall = Math.sqrt(dist2(opp.x, opp.y, world.ball.x, world.ball.y));
+        double receiveBonus = clamp(2.2 - dBall, -2.2, 2.2) * 0.60;
+
+        // Lane stability: match by y to avoid all defenders picking the same central man.
+    double yCost = Math.abs(opp.y - defender.y) * 1.05;
+
+        // Note: Do NOT penalize long mark distances here.
+        // When marking, we want priorities (ball holder / likely receiver) to dominate.
+        double distCost = 0.0;
+
+        // Prefer to mark someone who is in front of (or level with) us in attack direction.
+        // Marking a player behind you often pulls you out of line.
+        double ahead = (opp.x - defender.x) * teamSign;
+        double behindPenalty = (ahead < -0.2) ? (-ahead) * 0.65 : 0.0;
+
+        // Total cost
+        double cost = 0.0;
+        cost += yCost + distCost + behindPenalty;
+        cost -= threatBonus;
+        cost -= receiveBonus;
+        return cost;
+    }
+
+    /**
+     * Kickoff formation for the roster: GK on the goal line, the defenders in a line in front of it
+     * and the attackers near the half-way line. The default 6v6 gives the original GK + 3-2 shape.
+     */
+    private static void resetFormation(WorldState world, RobotRegistry registry) {
+        if (world == null) return;
+        world.ourRobots.clear();
+        world.oppRobots.clear();
+
+        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+        double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+        double usableW = 2.0 * (halfW - 0.3);
+
+        for (int team : new int[] { +1, -1 }) {
+            int nDef = 0;
+            int nAtt = 0;
+            for (int s = 0; s < registry.size(); s++) {
+                if (registry.teamAt(s) != team) continue;
+                if (registry.roleAt(s) == RobotRegistry.ROLE_DEFENDER) nDef++;
+                if (registry.roleAt(s) == RobotRegistry.ROLE_ATTACKER) nAtt++;
+            }
+            // 6v6: defenders at y = -1, 0, 1; attackers at y = -0.9, 0.9.
+            double defGap = Math.min(1.0, usableW / Math.max(1, nDef));
+            double attGap = Math.min(1.8, usableW / Math.max(1, nAtt));
+
+            java.util.List<Robot> out = (team == +1) ? world.ourRobots : world.oppRobots;
+            double orientation = (team == +1) ? 0.0 : Math.PI;
+            int kDef = 0;
+            int kAtt = 0;
+            for (int s = 0; s < registry.size(); s++) {
+                if (registry.teamAt(s) != team) continue;
+                double x;
+                double y;
+                switch (registry.roleAt(s)) {
+                    case RobotRegistry.ROLE_GOALKEEPER:
+                        x = -halfL + 0.35;
+                        y = 0.0;
+                        break;
+                    case RobotRegistry.ROLE_DEFENDER:
+                        x = -halfL + 1.35;
+                        y = (kDef++ - (nDef - 1) / 2.0) * defGap;
+                        break;
+                    default:
+                        x = -0.6;
+                        y = (kAtt++ - (nAtt - 1) / 2.0) * attGap;
+                        break;
+                }
+                // Red mirrors blue along x.
+                out.add(new Robot(registry.idAt(s), x * team, y, orientation));
+            }
+        }
+
+        // Keep inside field just in case
+        for (Robot r : world.ourRobots) keepInsideField(r);
+        for (Robot r : world.oppRobots) keepInsideField(r);
+    }
+
+    private boolean isGoalkeeper(Robot r) {
+        if (r == null) return false;
+        return registry.isGoalkeeper(r.id);
+    }
+
+    private void maybeBreakStuckContest(WorldState world) {
+        if (world == null || world.ball == null) return;
+        final double[] lastRobotX = ctx.lastRobotX;
+        final double[] lastRobotY = ctx.lastRobotY;
+        final boolean[] lastRobotHas = ctx.lastRobotHas;
+
+        // Stuck detection: if the ball position barely changes for some time, assume a deadlock.
+        // This catches "hard contests" where robots keep pushing but the ball doesn't go anywhere.
+        double dx = world.ball.x - ctx.lastBallX;
+        double dy = world.ball.y - ctx.lastBallY;
+        ctx.lastBallX = world.ball.x;
+        ctx.lastBallY = world.ball.y;
+
+        double move2 = dx * dx + dy * dy;
+        // In corners, friction + wall constraints can make the ball appear almost static even though
+        // robots are pushing. Use a slightly looser threshold to detect that case.
+        double stuckMove = STUCK_BALL_SPEED_MPS * dt; // 2cm per frame at 60 Hz
+        boolean ballBarelyMoved = move2 < (stuckMove * stuckMove);
+
+        // If the ball moved meaningfully, reset stuck timer immediately.
+        if (!ballBarelyMoved) {
+            ctx.stuckSinceNanos = -1;
+            return;
+        }
+
+        // Track robot motion (kept for diagnostics / future tuning; not required for triggering).
+        double sumMove2 = 0.0;
+        double maxMove2 = 0.0;
+        int moveCount = 0;
+
+        java.util.List<Robot> all = stuckRobots;
+        all.clear();
+        all.addAll(world.ourRobots);
+        all.addAll(world.oppRobots);
+
+        for (Robot r : all) {
+            if (r == null) continue;
+            int id = registry.slotOf(r.id);
+            if (id < 0) continue;
+
+            if (lastRobotHas[id]) {
+                double rdx = r.x - lastRobotX[id];
+                double rdy = r.y - lastRobotY[id];
+                double rm2 = rdx * rdx + rdy * rdy;
+                sumMove2 += rm2;
+                if (rm2 > maxMove2) maxMove2 = rm2;
+                moveCount++;
+            }
+            lastRobotX[id] = r.x;
+            lastRobotY[id] = r.y;
+            lastRobotHas[id] = true;
+        }
+
+        // If we don't have enough history yet, don't trigger stuck logic.
+        if (moveCount < 4) {
+            ctx.stuckSinceNanos = -1;
+            return;
+        }
+
+        // Additional gates to reduce false positives:
+        // - require at least one nearby robot (otherwise a stationary ball in open space is fine)
+        // - respect GK protected hold window (never override)
+        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+        double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+        boolean ballNearWall = (Math.abs(world.ball.x) > (halfL - 0.10)) || (Math.abs(world.ball.y) > (halfW - 0.10));
+
+        Robot blueC = findClosestRobot(world.ourRobots, world.ball);
+        Robot redC = findClosestRobot(world.oppRobots, world.ball);
+        if (blueC == null || redC == null) {
+            ctx.stuckSinceNanos = -1;
+            return;
+        }
+        double blueD2 = dist2(blueC.x, blueC.y, world.ball.x, world.ball.y);
+        double redD2 = dist2(redC.x, redC.y, world.ball.x, world.ball.y);
+        long now = clock.nowNanos();
+
+        // If GK is currently in its protected hold window, never override possession.
+        if (ctx.ballOwnerId != -1 && ctx.gkHoldOwnerId == ctx.ballOwnerId && now < ctx.gkHoldUntilNanos) {
+            ctx.stuckSinceNanos = -1;
+            return;
+        }
+
+        boolean someoneNearBall = (blueD2 < (0.65 * 0.65)) || (redD2 < (0.65 * 0.65)) || (ctx.ballOwnerId != -1);
+        if (!someoneNearBall) {
+            ctx.stuckSinceNanos = -1;
+            return;
+        }
+
+        if (ctx.stuckSinceNanos == -1) {
+            ctx.stuckSinceNanos = now;
+            return;
+        }
+
+        double stuckSec = (now - ctx.stuckSinceNanos) / 1e9;
+
+        // Require a short persistence window.
+        if (stuckSec < 0.65) return;
+
+        // True contest: both teams are right on the ball.
+        // Loosen slightly so "almost-contact" corner fights are detected too.
+        boolean closeContest = blueD2 < (0.33 * 0.33) && redD2 < (0.33 * 0.33);
+
+        // If we're not in a close contest, treat it as a pin/stall and nudge the ball into play.
+        if (!closeContest) {
+            // Clear ownership so the ball can actually move away.
+            ctx.ballOwnerId = -1;
+            ctx.ballOwnerTeam = 0;
+
+            // Nudge direction: toward field center, plus a small component away from the nearest wall.
+            double toCenterX = -world.ball.x;
+            double toCenterY = -world.ball.y;
+            double cd = Math.sqrt(toCenterX * toCenterX + toCenterY * toCenterY);
+            if (cd > 1e-6) {
+                toCenterX /= cd;
+                toCenterY /= cd;
+            }
+
+            double nx = 0.0;
+            double ny = 0.0;
+            double margin = FieldConfig.ROBOT_RADIUS_M + 0.06;
+            if (world.ball.x < -halfL + margin) nx = 1.0;
+            else if (world.ball.x > halfL - margin) nx = -1.0;
+            if (world.ball.y < -halfW + margin) ny = 1.0;
+            else if (world.ball.y > halfW - margin) ny = -1.0;
+
+            double kickX = toCenterX;
+            double kickY = toCenterY;
+            if (nx != 0.0 || ny != 0.0) {
+                double nm = Math.sqrt(nx * nx + ny * ny);
+                nx /= nm;
+                ny /= nm;
+                kickX = kickX * 0.70 + nx * 0.30;
+                kickY = kickY * 0.70 + ny * 0.30;
+            }
+            double km = Math.sqrt(kickX * kickX + kickY * kickY);
+            if (km > 1e-9) {
+                kickX /= km;
+                kickY /= km;
+            }
+
+            double speed = ballNearWall ? 1.9 : 1.5;
+            world.ball.vx = kickX * speed;
+            world.ball.vy = kickY * speed;
+
+            // Also move the ball slightly away from the boundary to break immediate re-stick.
+            world.ball.x = clamp(world.ball.x + kickX * 0.10, -halfL + margin, halfL - margin);
+            world.ball.y = clamp(world.ball.y + kickY * 0.10, -halfW + margin, halfW - margin);
+
+            ctx.stuckSinceNanos = -1;
+            return;
+        }
+
+        // Award possession deterministically:
+        // - If someone owns the ball, give it to the closest robot from the NON-owning team.
+        // - If no owner, give it to the closest robot overall.
+        Robot winner;
+        int team;
+        if (ctx.ballOwnerTeam == +1) {
+            winner = redC;
+            team = -1;
+        } else if (ctx.ballOwnerTeam == -1) {
+            winner = blueC;
+            team = +1;
+        } else {
+            // No owner: pick closest overall.
+            winner = (blueD2 <= redD2) ? blueC : redC;
+            team = (winner == blueC) ? +1 : -1;
+        }
+        ctx.ballOwnerId = winner.id;
+        ctx.ballOwnerTeam = team;
+
+        // Snap ball slightly in front to break symmetry.
+        double fx = Math.cos(winner.orientation);
+        double fy = Math.sin(winner.orientation);
+        double carryOffset = FieldConfig.ROBOT_RADIUS_M + 0.012;
+        world.ball.x = winner.x + fx * carryOffset;
+        world.ball.y = winner.y + fy * carryOffset;
+        world.ball.vx *= 0.2;
+        world.ball.vy *= 0.2;
+
+        // Extra nudge away from walls/corners to avoid instantly re-sticking.
+        halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+        halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+        double margin = FieldConfig.ROBOT_RADIUS_M + 0.06;
+        double nx = 0.0;
+        double ny = 0.0;
+
+        if (world.ball.x < -halfL + margin) nx = 1.0;
+        else if (world.ball.x > halfL - margin) nx = -1.0;
+        if (world.ball.y < -halfW + margin) ny = 1.0;
+        else if (world.ball.y > halfW - margin) ny = -1.0;
+
+        if (nx != 0.0 || ny != 0.0) {
+            double mag = Math.sqrt(nx * nx + ny * ny);
+            nx /= mag;
+            ny /= mag;
+
+            world.ball.x = clamp(world.ball.x + nx * 0.10, -halfL + margin, halfL - margin);
+            world.ball.y = clamp(world.ball.y + ny * 0.10, -halfW + margin, halfW - margin);
+            world.ball.vx += nx * 0.35;
+            world.ball.vy += ny * 0.35;
+        }
+
+        ctx.stuckSinceNanos = -1;
+    }
+
+    /**
+     * Mirror robot into a coordinate frame where the opponent attacks toward +x.
+     * Current convention: Blue attacks toward +x, Red attacks toward -x.
+     * Mirroring: (x,y) -> (-x,-y)
+     */
+    private static void mirrorRobotInto(Robot r, Robot m) {
+        m.id = r.id;
+        m.x = -r.x;
+        m.y = -r.y;
+        m.orientation = r.orientation + Math.PI;
+        m.vx = -r.vx;
+        m.vy = -r.vy;
+    }
+
+    /** Overwrite {@code dst} with the mirrored robots of {@code src}, reusing its Robot objects. */
+    private static void mirrorTeamInto(java.util.List<Robot> src, java.util.List<Robot> dst) {
+        while (dst.size() > src.size()) dst.remove(dst.size() - 1);
+        for (int i = 0; i < src.size(); i++) {
+            if (i == dst.size()) dst.add(new Robot(0, 0.0, 0.0, 0.0));
+            mirrorRobotInto(src.get(i), dst.get(i));
+        }
+    }
+
+    private WorldState mirrorWorld(WorldState world) {
+        WorldState m = mirrored;
+        if (world.ball != null) {
+            m.ball = mirroredBall;
+            m.ball.x = -world.ball.x;
+            m.ball.y = -world.ball.y;
+            m.ball.vx = -world.ball.vx;
+            m.ball.vy = -world.ball.vy;
+        } else {
+            m.ball = null;
+        }
+
+        // Swap teams (so behaviors can still look at world.ourRobots / world.oppRobots)
+        mirrorTeamInto(world.oppRobots, m.ourRobots);
+        mirrorTeamInto(world.ourRobots, m.oppRobots);
+        return m;
+    }
+
+    /** Transform a command decided in the mirrored frame back to field coordinates, in place. */
+    private static RobotCommand unmirrorCommand(RobotCommand cmd) {
+        if (cmd == null) return null;
+        // Inverse transform for velocities: (vx,vy) -> (-vx,-vy)
+        cmd.vx = -cmd.vx;
+        cmd.vy = -cmd.vy;
+        cmd.kickVx = -cmd.kickVx;
+        cmd.kickVy = -cmd.kickVy;
+        // Red's pass/shot tags were never forwarded to the simulator; keep it that way.
+        cmd.shotIntent = false;
+        cmd.passTargetId = -1;
+        return cmd;
+    }
+
+    private static boolean isAttackingWithTeamSign(WorldState world, int teamSign) {
+        if (world == null || world.ball == null) return false;
+        // teamSign +1: blue attacks toward +x -> opponent half is x > 0
+        // teamSign -1: red attacks toward -x -> opponent half is x < 0
+        return (teamSign == +1) ? (world.ball.x > 0.0) : (world.ball.x < 0.0);
+    }
+
+    private static boolean shouldSwitchAttacker(long now,
+                                                long lastSwitch,
+                                                long holdNanos,
+                                                int currentAttackerId,
+                                                Robot closest,
+                                                Ball ball,
+                                                java.util.List<Robot> teamRobots) {
+        if (closest == null || ball == null) return false;
+        if (now - lastSwitch < holdNanos) return false;
+        if (closest.id == currentAttackerId) return false;
+
+        // Find current attacker robot (if missing, allow switch).
+        Robot current = null;
+        if (teamRobots != null) {
+            for (Robot r : teamRobots) {
+                if (r.id == currentAttackerId) {
+                    current = r;
+                    break;
+                }
+            }
+        }
+        if (current == null) return true;
+
+        // Distances (squared) to ball
+        double candD2 = dist2(closest.x, closest.y, ball.x, ball.y);
+        double curD2 = dist2(current.x, current.y, ball.x, ball.y);
+
+        // Hysteresis margin to prevent flip-flops. Candidate must be sufficiently closer.
+        // - Base margin: 25% closer (or 0.25m absolute if distances are tiny)
+        double minAbs = 0.25; // meters
+        double minAbs2 = minAbs * minAbs;
+        boolean clearlyCloser = candD2 < curD2 * 0.75 || (curD2 - candD2) > minAbs2;
+        if (!clearlyCloser) return false;
+
+        // Near center line, require an even stronger advantage to switch.
+        double centerDeadband = 0.15; // meters
+        if (Math.abs(ball.x) < centerDeadband) {
+            boolean veryClearlyCloser = candD2 < curD2 * 0.55 || (curD2 - candD2) > (0.35 * 0.35);
+            return veryClearlyCloser;
+        }
+
+        return true;
+    }
+
+    private static double dist2(double ax, double ay, double bx, double by) {
+        double dx = bx - ax;
+        double dy = by - ay;
+        return dx * dx + dy * dy;
+    }
+
+    private static Robot findClosestRobot(java.util.List<Robot> robots, Ball ball) {
+        if (robots == null || ball == null || robots.isEmpty()) return null;
+        Robot best = null;
+        double bestD2 = Double.POSITIVE_INFINITY;
+        for (Robot r : robots) {
+            double dx = ball.x - r.x;
+            double dy = ball.y - r.y;
+            double d2 = dx * dx + dy * dy;
+            if (d2 < bestD2) {
+                bestD2 = d2;
+                best = r;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isSecondClosestRobot(java.util.List<Robot> robots, Ball ball, Robot candidate) {
+        if (robots == null || ball == null || candidate == null || robots.size() < 2) return false;
+        Robot best = null;
+        Robot second = null;
+        double bestD2 = Double.POSITIVE_INFINITY;
+        double secondD2 = Double.POSITIVE_INFINITY;
+        for (Robot r : robots) {
+            double d2 = dist2(r.x, r.y, ball.x, ball.y);
+            if (d2 < bestD2) {
+                second = best;
+                secondD2 = bestD2;
+                best = r;
+                bestD2 = d2;
+            } else if (d2 < secondD2) {
+                second = r;
+                secondD2 = d2;
+            }
+        }
+        return second != null && second.id == candidate.id;
+    }
+
+    private static RobotCommand applyBackupSupport(RobotCommand base, Robot self, WorldState world, int teamSign) {
+        if (base == null) base = new RobotCommand();
+        if (self == null || world == null || world.ball == null) return base;
+
+        Ball ball = world.ball;
+
+        // --- "Behind defender" backup positioning ---
+        // Find the nearest opponent to the ball (likely blocker/defender).
+        // Then position ourselves just behind that opponent relative to the ball->goal direction,
+        // plus a small lateral offset to create a clean passing lane.
+        Robot nearestOpp = findClosestRobot(world.oppRobots, ball);
+
+        double goalX = (teamSign == +1)
+                ? (FieldConfig.FIELD_LENGTH_M / 2.0)
+                : (-FieldConfig.FIELD_LENGTH_M / 2.0);
+        double goalY = 0.0;
+
+        double dirX = goalX - ball.x;
+        double dirY = goalY - ball.y;
+        double dirD = Math.sqrt(dirX * dirX + dirY * dirY);
+        if (dirD < 1e-6) {
+            dirX = teamSign;
+            dirY = 0.0;
+            dirD = 1.0;
+        }
+        dirX /= dirD;
+        dirY /= dirD;
+
+        double latX = -dirY;
+        double latY = dirX;
+        double lateral = ((self.id % 2) == 0) ? 0.45 : -0.45;
+
+        double targetX;
+        double targetY;
+        if (nearestOpp != null) {
+            double behindDef = 0.55;
+            targetX = nearestOpp.x - dirX * behindDef + latX * lateral;
+            targetY = nearestOpp.y - dirY * behindDef + latY * lateral;
+        } else {
+            // Fallback: behind the ball (relative to attack direction)
+            double behind = 0.8;
+            targetX = ball.x - behind * teamSign;
+            targetY = ball.y + (((self.id % 2) == 0) ? 0.7 : -0.7);
+        }
+
+        // Clamp inside field
+        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+        double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+        double margin = FieldConfig.ROBOT_RADIUS_M + 0.05;
+        targetX = clamp(targetX, -halfL + margin, halfL - margin);
+        targetY = clamp(targetY, -halfW + margin, halfW - margin);
+
+        // Overwrite movement to go to backup point.
+        double dx = targetX - self.x;
+        double dy = targetY - self.y;
+        double dist = Math.sqrt(dx * dx + dy * dy);
+        if (dist > 1e-6) {
+            double speed = 1.2;
+            base.vx = (dx / dist) * speed;
+            base.vy = (dy / dist) * speed;
+        } else {
+            base.vx = 0;
+            base.vy = 0;
+        }
+        base.omega = 0;
+        base.kick = false;
+        return base;
+    }
+
+    private static void applyDeconflictBias(RobotCommand cmd, Robot self, WorldState world, int teamSign) {
+        if (cmd == null || self == null || world == null || world.ball == null) return;
+
+        // If command is basically "go to ball" (very similar direction to ball), spread robots laterally.
+        double dx = world.ball.x - self.x;
+        double dy = world.ball.y - self.y;
+        double d = Math.sqrt(dx * dx + dy * dy);
+        if (d < 1e-6) return;
+
+        double vx = cmd.vx;
+        double vy = cmd.vy;
+        double v = Math.sqrt(vx * vx + vy * vy);
+        if (v < 0.2) return;
+
+        // Are we moving roughly toward the ball? (cosine similarity)
+        double cos = (vx * dx + vy * dy) / (v * d);
+        if (cos < 0.85) return;
+
+        // Add a small bias perpendicular to ball direction.
+        double latX = -dy / d;
+        double latY = dx / d;
+        double sign = ((Math.abs(self.id) % 2) == 0) ? 1.0 : -1.0;
+        double bias = 0.18; // m/s
+
+        cmd.vx += latX * bias * sign;
+        cmd.vy += latY * bias * sign;
+    }
+
+    private void applyCommand(WorldState world,
+                              Robot self,
+                              RobotCommand cmd,
+                              double dt,
+                              int teamSign) {
+        if (cmd == null) return;
+
+        // Clamp speeds a bit so debug is easier.
+        double maxV = 2.0;       // m/s
+        double maxOmega = 6.0;   // rad/s
+
+        double vx = clamp(cmd.vx, -maxV, maxV);
+        double vy = clamp(cmd.vy, -maxV, maxV);
+        double omega = clamp(cmd.omega, -maxOmega, maxOmega);
+
+        // --- If we currently own the ball, avoid endless "dribble to corner" and wall pinning ---
+        boolean isOwner = (ctx.ballOwnerId == self.id) && (ctx.ballOwnerTeam == teamSign);
+
+        if (isOwner && world != null && world.ball != null) {
+            double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+            double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+            double wallBand = 0.35; // meters from wall considered "near wall"
+
+            boolean nearWall = (Math.abs(self.x) > (halfL - wallBand)) || (Math.abs(self.y) > (halfW - wallBand));
+            if (nearWall) {
+                // Slow down near walls so we don't glue ourselves into the corner.
+                vx *= 0.55;
+                vy *= 0.55;
+
+                // If opponent is close while we're near the wall, auto-clear or auto-pass out.
+                Robot nearestOpp = findClosestRobot(world.oppRobots, world.ball);
+                double oppD2 = (nearestOpp == null) ? Double.POSITIVE_INFINITY
+                        : dist2(nearestOpp.x, nearestOpp.y, world.ball.x, world.ball.y);
+                boolean pressure = oppD2 < (0.55 * 0.55);
+
+                // Also trigger if the ball is very close to the boundary.
+                boolean ballNearWall = (Math.abs(world.ball.x) > (halfL - 0.08)) || (Math.abs(world.ball.y) > (halfW - 0.08));
+
+                if (pressure || ballNearWall) {
+                    cmd.kick = true;
+
+                    // Kick direction: push back toward field center, with a small forward component.
+                    double toCenterX = -world.ball.x;
+                    double toCenterY = -world.ball.y;
+                    double d = Math.sqrt(toCenterX * toCenterX + toCenterY * toCenterY);
+                    if (d < 1e-6) {
+                        toCenterX = 0.0;
+                        toCenterY = 0.0;
+                        d = 1.0;
+                    }
+                    toCenterX /= d;
+                    toCenterY /= d;
+
+                    double forwardX = teamSign;
+                    double forwardY = 0.0;
+
+                    double kx = (toCenterX * 0.8 + forwardX * 0.2);
+                    double ky = (toCenterY * 0.8 + forwardY * 0.2);
+                    double kd = Math.sqrt(kx * kx + ky * ky);
+                    if (kd > 1e-9) {
+                        kx /= kd;
+                        ky /= kd;
+                    }
+                    cmd.kickVx = kx * 4.2;
+                    cmd.kickVy = ky * 4.2;
+                }
+            }
+        }
+
+        // --- Priority / right-of-way near ball (NO hard distance keeping) ---
+        // When ball is free or being contested, only the designated "ball winner" should fully attack.
+        // Other robots should yield near the ball so it becomes reachable.
+        // This is a speed/steering rule (not a distance constraint), so robots can still approach if needed.
+        if (world != null && world.ball != null) {
+            // Allow direct ball contests: the closest robot of EACH team should be able to collide and fight.
+            // So we only apply "yield" to robots that are NOT one of the two closest robots to the ball.
+            Robot ourClosest = findClosestRobot(world.ourRobots, world.ball);
+            Robot oppClosest = findClosestRobot(world.oppRobots, world.ball);
+
+            boolean isTeamClosest = (teamSign == +1)
+                    ? (ourClosest != null && ourClosest.id == self.id)
+                    : (oppClosest != null && oppClosest.id == self.id);
+            boolean isContestant = isTeamClosest;
+
+            double ballD2 = dist2(self.x, self.y, world.ball.x, world.ball.y);
+            double nearBall2 = (0.55 * 0.55);
+
+            boolean gkPriority = isGoalkeeper(self) && isBallInGKBox(world.ball, teamSign);
+            if (!isContestant && !gkPriority && ballD2 < nearBall2) {
+                // Non-contestants yield to keep the contest area clear.
+                vx *= 0.35;
+                vy *= 0.35;
+                double awayX = self.x - world.ball.x;
+                double awayY = self.y - world.ball.y;
+                double d = Math.sqrt(awayX * awayX + awayY * awayY);
+                if (d > 1e-6) {
+                    vx += (awayX / d) * 0.25;
+                    vy += (awayY / d) * 0.25;
+                }
+            }
+
+            // If there is a real contest (both teams have a close robot near the ball),
+            // bias the contestants to push toward the ball so they can actually make contact.
+            if (ourClosest != null && oppClosest != null) {
+                double ourD2 = dist2(ourClosest.x, ourClosest.y, world.ball.x, world.ball.y);
+                double oppD2 = dist2(oppClosest.x, oppClosest.y, world.ball.x, world.ball.y);
+                double contest2 = (0.65 * 0.65);
+                boolean isCloseContest = (ourD2 < contest2) && (oppD2 < contest2);
+
+                if (isCloseContest && isContestant) {
+                    double toBallX = world.ball.x - self.x;
+                    double toBallY = world.ball.y - self.y;
+                    double d = Math.sqrt(toBallX * toBallX + toBallY * toBallY);
+                    if (d > 1e-6) {
+                        // Push toward the ball direction. Keep small so we still respect Behavior steering.
+                        double push = 0.45;
+                        vx += (toBallX / d) * push;
+                        vy += (toBallY / d) * push;
+                    }
+                }
+            }
+        }
+
+        self.vx = vx;
+        self.vy = vy;
+        self.x += vx * dt;
+        self.y += vy * dt;
+        self.orientation += omega * dt;
+
+        // Very simple kick: if close enough to ball, add ball velocity toward opponent goal.
+        if (cmd.kick && world.ball != null) {
+            // GK special: do NOT auto-kick on first touch.
+            // DefenderBehavior clears when the ball is close in our half, which makes the GK
+            // always punt the ball forward before possession logic can attach it.
+            // If the ball is controllable, suppress the kick and let updatePossessionAndDribble
+            // grant GK possession (catch/hold) instead.
+            if (self != null && isGoalkeeper(self)) {
+                double bs2 = world.ball.vx * world.ball.vx + world.ball.vy * world.ball.vy;
+                double attachBallSpeed = 0.85;
+                boolean controllable = bs2 <= (attachBallSpeed * attachBallSpeed);
+                boolean inGkBox = isBallInGKBox(world.ball, teamSign);
+                if (controllable && inGkBox) {
+                    keepInsideField(self);
+                    return;
+                }
+            }
+
+            double dx = world.ball.x - self.x;
+            double dy = world.ball.y - self.y;
+            double dist = Math.sqrt(dx * dx + dy * dy);
+
+            double kickRange = FieldConfig.ROBOT_RADIUS_M + 0.03; // 3cm margin
+            if (dist <= kickRange) {
+                // If this kick is tagged as a pass and we were the owner, record it for learning.
+                // Note: features are recomputed here (cheap) to keep sim/Main independent of behavior internals.
+                boolean isOwnerNow = (ctx.ballOwnerId == self.id) && (ctx.ballOwnerTeam == teamSign);
+                if (isOwnerNow && cmd.passTargetId >= 0) {
+                    // Blue's raster was begun this pass on the unmirrored frame and red has not moved since;
+                    // red's is mirrored, so red scans.
+                    ArrivalField oppArrival = (teamSign == +1) ? blueAttackRaster.oppArrival() : null;
+                    double[] feats = ai.PassLearning.featuresForReceiver(world, teamSign, cmd.passTargetId, oppArrival);
+                    ctx.recordPassAttempt(self.id, teamSign, cmd.passTargetId, world.ball.x, feats);
+                }
+
+                // Record the shoot-vs-pass action (for learning). We tag only deliberate passes (passTargetId>=0)
+                // and deliberate shots (shotIntent=true).
+                if (isOwnerNow && (cmd.passTargetId >= 0 || cmd.shotIntent)) {
+                    double[] actionFeats = ai.ActionLearning.features(world, teamSign, self.id);
+                    ctx.recordActionAttempt(self.id, teamSign, cmd.shotIntent, cmd.passTargetId, world.ball.x, actionFeats);
+                }
+
+                // Preferred: use explicit kick vector if provided by behavior.
+                double kx = cmd.kickVx;
+                double ky = cmd.kickVy;
+
+                // Fallback: Blue attacks +x, Red attacks -x
+                if (Math.abs(kx) < 1e-9 && Math.abs(ky) < 1e-9) {
+                    kx = 4.0 * teamSign;
+                    ky = 0.0;
+                }
+
+                world.ball.vx = kx;
+                world.ball.vy = ky;
+
+                // Release ownership immediately on kick so the ball can leave.
+                if (ctx.ballOwnerId == self.id && ctx.ballOwnerTeam == teamSign) {
+                    ctx.ballOwnerId = -1;
+                    ctx.ballOwnerTeam = 0;
+                }
+            }
+        }
+
+        keepInsideField(self);
+    }
+
+    private void updatePossessionAndDribble(WorldState world, double dt) {
+        if (world == null || world.ball == null) return;
+        final java.util.Map<Integer, Long> pickupBanUntilNanos = ctx.pickupBanUntilNanos;
+
+        Ball ball = world.ball;
+        long now = clock.nowNanos();
+
+        // --- parameters (tunable) ---
+        final double controlDist = FieldConfig.ROBOT_RADIUS_M + 0.035; // needs to be close
+        final double controlDist2 = controlDist * controlDist;
+        final double attachBallSpeed = 0.85; // m/s, ball must be relatively slow to be trapped
+        final double detachDist = FieldConfig.ROBOT_RADIUS_M + 0.10; // if owner moves away, release
+        final double detachDist2 = detachDist * detachDist;
+        final double carryOffset = FieldConfig.ROBOT_RADIUS_M + 0.012; // ball in front of robot
+
+        // If there is an owner, verify it is still valid.
+        if (ctx.ballOwnerId != -1) {
+            Robot owner = findRobotById(world, ctx.ballOwnerId, ctx.ballOwnerTeam);
+            if (owner == null) {
+                // Owner disappeared: treat as lost possession.
+                if (ctx.gkHoldOwnerId == ctx.ballOwnerId) {
+                    ctx.gkHoldUntilNanos = 0L;
+                    ctx.gkHoldOwnerId = -1;
+                    ctx.gkHoldOwnerTeam = 0;
+                }
+                ctx.recentlyLostOwnerId = ctx.ballOwnerId;
+                ctx.recentlyLostOwnerTeam = ctx.ballOwnerTeam;
+                ctx.recentlyLostAtNanos = now;
+                ctx.ballOwnerId = -1;
+                ctx.ballOwnerTeam = 0;
+            } else {
+                boolean ownerIsGK = isGoalkeeper(owner);
+
+                // GK special: start/maintain a protected hold window.
+                if (ownerIsGK) {
+                    if (ctx.gkHoldOwnerId != owner.id || ctx.gkHoldOwnerTeam != ctx.ballOwnerTeam || ctx.gkHoldUntilNanos <= 0L) {
+                        ctx.gkHoldOwnerId = owner.id;
+                        ctx.gkHoldOwnerTeam = ctx.ballOwnerTeam;
+                        ctx.gkHoldUntilNanos = now + Math.max(0L, gkHoldNanos);
+                    }
+
+                    // Force a pass shortly before the hold window ends.
+                    // This prevents GK from wandering while holding and ensures fast distribution.
+                    long timeLeft = ctx.gkHoldUntilNanos - now;
+                    long passLead = (long) (0.35e9); // pass when <= 0.35s left
+                    if (timeLeft <= passLead) {
+                        Robot recv = pickBestGkPassReceiver(world, ctx.ballOwnerTeam, owner.id, ball);
+                        if (recv != null) {
+                            double px = recv.x - ball.x;
+                            double py = recv.y - ball.y;
+                            double pd = Math.sqrt(px * px + py * py);
+                            if (pd > 1e-6) {
+                                px /= pd;
+                                py /= pd;
+                            }
+                            ball.vx = px * GK_PASS_SPEED_MPS;
+                            ball.vy = py * GK_PASS_SPEED_MPS;
+                        } else {
+                            // Fallback: clear toward opponent half.
+                            ball.vx = 4.4 * ctx.ballOwnerTeam;
+                            ball.vy = 0.0;
+                        }
+
+                        // Release ownership so the ball can travel.
+                        ctx.ballOwnerId = -1;
+                        ctx.ballOwnerTeam = 0;
+                        ctx.gkHoldUntilNanos = 0L;
+                        ctx.gkHoldOwnerId = -1;
+                        ctx.gkHoldOwnerTeam = 0;
+                        return;
+                    }
+                } else {
+                    // Not GK: clear GK hold state if it was stale.
+                    if (ctx.gkHoldOwnerId == owner.id) {
+                        ctx.gkHoldUntilNanos = 0L;
+                        ctx.gkHoldOwnerId = -1;
+                        ctx.gkHoldOwnerTeam = 0;
+                    }
+                }
+
+                double d2 = dist2(owner.x, owner.y, ball.x, ball.y);
+                if (d2 > detachDist2) {
+                    // Owner drifted away: treat as lost possession.
+                    if (ctx.gkHoldOwnerId == ctx.ballOwnerId) {
+                        ctx.gkHoldUntilNanos = 0L;
+                        ctx.gkHoldOwnerId = -1;
+                        ctx.gkHoldOwnerTeam = 0;
+                    }
+                    ctx.recentlyLostOwnerId = ctx.ballOwnerId;
+                    ctx.recentlyLostOwnerTeam = ctx.ballOwnerTeam;
+                    ctx.recentlyLostAtNanos = now;
+                    ctx.ballOwnerId = -1;
+                    ctx.ballOwnerTeam = 0;
+                } else {
+                    // Failed steal cooldown: if a non-GK robot from the opposing team gets close enough
+                    // to "try" taking the ball but does not become owner, ban it briefly from re-trying.
+                    // This reduces oscillations and ambiguous contests.
+                    boolean ownerGKProtected = ownerIsGK && (ctx.gkHoldOwnerId == owner.id) && (now < ctx.gkHoldUntilNanos);
+                    if (!ownerGKProtected) {
+                        final long failBanNanos = (long) (0.8e9); // 0.8s
+                        double bs2 = ball.vx * ball.vx + ball.vy * ball.vy;
+                        if (bs2 <= attachBallSpeed * attachBallSpeed) {
+                            java.util.List<Robot> stealers = (ctx.ballOwnerTeam == +1) ? world.oppRobots : world.ourRobots;
+                            Robot closestStealer = null;
+                            double closestD2 = Double.POSITIVE_INFINITY;
+                            for (Robot s : stealers) {
+                                if (s == null) continue;
+                                if (isGoalkeeper(s)) continue;
+                                double sd2 = dist2(s.x, s.y, ball.x, ball.y);
+                                if (sd2 < closestD2) {
+                                    closestD2 = sd2;
+                                    closestStealer = s;
+                                }
+                            }
+
+                            if (closestStealer != null && closestD2 <= controlDist2) {
+                                Long until = pickupBanUntilNanos.get(closestStealer.id);
+                                if (until == null || now >= until) {
+                                    pickupBanUntilNanos.put(closestStealer.id, now + failBanNanos);
+                                }
+                            }
+                        }
+                    }
+
+                    // Carry the ball: keep it in front of the robot and follow robot motion.
+                    double fx = Math.cos(owner.orientation);
+                    double fy = Math.sin(owner.orientation);
+                    double bx = owner.x + fx * carryOffset;
+                    double by = owner.y + fy * carryOffset;
+
+                    // Wall slide: if the carried ball would go outside, slide it along the wall a bit
+                    // (and bias slightly away from the wall) to avoid pinning / deadlocks at edges.
+                    double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+                    double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+                    double margin = 0.02; // minimal safety margin
+
+                    double clampedX = clamp(bx, -halfL + margin, halfL - margin);
+                    double clampedY = clamp(by, -halfW + margin, halfW - margin);
+
+                    boolean hitWallX = Math.abs(bx - clampedX) > 1e-9;
+                    boolean hitWallY = Math.abs(by - clampedY) > 1e-9;
+                    if (hitWallX || hitWallY) {
+                        // Slide direction = perpendicular to robot forward.
+                        double latX = -fy;
+                        double latY = fx;
+                        double slideStep = CARRY_WALL_SLIDE_MPS * dt; // 3cm per frame at 60 Hz
+                        double slide = ((Math.abs(owner.id) % 2) == 0) ? slideStep : -slideStep;
+
+                        // If pinned on X wall, allow sliding mostly in Y; if pinned on Y wall, slide mostly in X.
+                        if (hitWallX) {
+                            clampedY = clamp(clampedY + latY * slide, -halfW + margin, halfW - margin);
+                        }
+                        if (hitWallY) {
+                            clampedX = clamp(clampedX + latX * slide, -halfL + margin, halfL - margin);
+                        }
+                    }
+
+                    ball.x = clampedX;
+                    ball.y = clampedY;
+
+                    // Ball velocity follows the owner (light damping so it doesn't explode).
+                    // We approximate owner velocity by looking at how much position changed is hard here,
+                    // so keep it small and rely on kicks to impart speed.
+                    ball.vx *= carryDamping;
+                    ball.vy *= carryDamping;
+                    return;
+                }
+            }
+        }
+
+        // No owner: try to attach if a robot is close and the ball is slow / controllable.
+        double ballSpeed2 = ball.vx * ball.vx + ball.vy * ball.vy;
+        if (ballSpeed2 > attachBallSpeed * attachBallSpeed) return;
+
+        Robot best = null;
+        int bestTeam = 0;
+        double bestD2 = Double.POSITIVE_INFINITY;
+
+        // Helper: skip robots that are temporarily banned from picking up the ball.
+        java.util.function.IntPredicate isBanned = (rid) -> {
+            Long until = pickupBanUntilNanos.get(rid);
+            if (until == null) return false;
+            if (now >= until) {
+                pickupBanUntilNanos.remove(rid);
+                return false;
+            }
+            return true;
+        };
+
+        for (Robot r : world.ourRobots) {
+            if (r == null) continue;
+            if (isBanned.test(r.id)) continue;
+            double d2 = dist2(r.x, r.y, ball.x, ball.y);
+            if (d2 < bestD2) {
+                bestD2 = d2;
+                best = r;
+                bestTeam = +1;
+            }
+        }
+        for (Robot r : world.oppRobots) {
+            if (r == null) continue;
+            if (isBanned.test(r.id)) continue;
+            double d2 = dist2(r.x, r.y, ball.x, ball.y);
+            if (d2 < bestD2) {
+                bestD2 = d2;
+                best = r;
+                bestTeam = -1;
+            }
+        }
+
+        if (best != null && bestD2 <= controlDist2) {
+            // If an opponent picked up shortly after someone lost it, ban the loser for ~1s.
+            // This prevents immediate re-steals that often cause corner deadlocks.
+            final long banNanos = (long) 1e9; // 1 second
+            final long stealWindowNanos = (long) 2e9; // consider it a "steal" if within 2s
+            int lostId = ctx.recentlyLostOwnerId;
+            int lostTeam = ctx.recentlyLostOwnerTeam;
+            long lostAt = ctx.recentlyLostAtNanos;
+            if (lostId != -1 && lostAt > 0
+                    && (now - lostAt) <= stealWindowNanos
+                    && lostTeam != 0
+                    && bestTeam != lostTeam
+                    && best.id != lostId) {
+                pickupBanUntilNanos.put(lostId, now + banNanos);
+            }
+
+            ctx.ballOwnerId = best.id;
+            ctx.ballOwnerTeam = bestTeam;
+
+            // If we just resolved a tagged pass attempt, reward it.
+            ctx.maybeRewardLastPass(world, ctx.ballOwnerId, ctx.ballOwnerTeam, ball.x);
+
+            // If this was a steal / turnover, update team-level positioning rewards.
+            // (lostTeam is set when an owner detached due to steal/lose; it is 0 otherwise.)
+            if (lostTeam != 0 && lostTeam != bestTeam) {
+                // The losing team gets a small negative (attack shape didn’t protect the ball).
+                ctx.applyTeamAttackPositionReward(world, lostTeam, -0.25);
+                // The winning team gets a small positive (defensive shape / pressure worked).
+                ctx.applyTeamDefensePositionReward(world, bestTeam, +0.25);
+
+                // Also penalize the last action if it likely caused a turnover.
+                if (ctx.lastActionTeam == lostTeam && ctx.lastActionFeatures != null) {
+                    ai.ActionLearning.applyReward(ctx.lastActionShoot, -1.0, ctx.lastActionFeatures);
+                    ctx.clearLastAction();
+                }
+            }
+
+            // Clear "recent loss" bookkeeping once the ball is claimed again.
+            ctx.recentlyLostOwnerId = -1;
+            ctx.recentlyLostOwnerTeam = 0;
+            ctx.recentlyLostAtNanos = -1L;
+
+            // If GK picked up, start its hold window now.
+            if (isGoalkeeper(best)) {
+                ctx.gkHoldOwnerId = best.id;
+                ctx.gkHoldOwnerTeam = bestTeam;
+                ctx.gkHoldUntilNanos = now + Math.max(0L, gkHoldNanos);
+            }
+
+            // Snap ball to front immediately
+            double fx = Math.cos(best.orientation);
+            double fy = Math.sin(best.orientation);
+            ball.x = best.x + fx * carryOffset;
+            ball.y = best.y + fy * carryOffset;
+            ball.vx *= 0.2;
+            ball.vy *= 0.2;
+        }
+    }
+
+    private Robot pickBestGkPassReceiver(WorldState world, int teamSign, int excludeId, Ball ball) {
+        if (world == null || ball == null) return null;
+        java.util.List<Robot> mates = (teamSign == +1) ? world.ourRobots : world.oppRobots;
+        java.util.List<Robot> opps = (teamSign == +1) ? world.oppRobots : world.ourRobots;
+        if (mates == null || mates.isEmpty()) return null;
+
+        Robot best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        gkPassOpponents.begin(opps, TeamRaster.ROBOT_SPEED_MPS);
+
+        for (Robot r : mates) {
+            if (r == null) continue;
+            if (r.id == excludeId) continue;
+            if (isGoalkeeper(r)) continue;
+
+            double dBall = Math.sqrt(dist2(r.x, r.y, ball.x, ball.y));
+            if (dBall < 0.65) continue; // too close to pass
+
+            // Prefer receivers the ball reaches well before any opponent: the lead, in metres of
+            // opponent travel (none if the ball stops short).
+            double lead = (gkPassOpponents.time(r.x, r.y) - ballModel.timeToDistance(GK_PASS_SPEED_MPS, dBall))
+                    * TeamRaster.ROBOT_SPEED_MPS;
+
+            // Prefer forward options (toward opponent goal) but not extremely deep.
+            double forward = (r.x * teamSign);
+            double forwardScore = clamp(forward, -3.0, 6.0) * 0.35;
+
+            // Prefer medium range passes.
+            double rangeScore = -Math.abs(dBall - 2.0) * 0.35;
+
+            double openScore = (lead > 0.0) ? Math.min(lead, 3.0) * 0.55 : 0.0;
+            double score = openScore + forwardScore + rangeScore;
+
+            if (score > bestScore) {
+                bestScore = score;
+                best = r;
+            }
+        }
+
+        return best;
+    }
+
+    private static Robot findRobotById(WorldState world, int robotId, int teamSign) {
+        if (world == null) return null;
+        java.util.List<Robot> list = (teamSign == +1) ? world.ourRobots : world.oppRobots;
+        if (list == null) return null;
+        for (Robot r : list) {
+            if (r != null && r.id == robotId) return r;
+        }
+        return null;
+    }
+
+    private void resolveBallRobotCollisions(WorldState world) {
+        resolveBallRobotCollisions(world, -1, 0);
+    }
+
+    private void resolveBallRobotCollisions(WorldState world, int ballOwnerId, int ballOwnerTeam) {
+        if (world.ball == null) return;
+
+        // Slightly relax separation so the ball is not constantly pushed out before a kick can happen.
+        // This helps contested-ball situations where both robots "touch" the ball.
+        double minDist = BALL_CONTACT_DIST_M;
+        double minDist2 = minDist * minDist;
+
+        // Only robots in the cells around the ball can touch it; visit them in the old order
+        // (our team first, then opp team).
+        collisionGrid.rebuild(world.ourRobots, world.oppRobots);
+        int ourCount = world.ourRobots.size();
+        int n = collisionGrid.collectNear(world.ball.x, world.ball.y);
+        for (int k = 0; k < n; k++) {
+            int i = collisionGrid.near(k);
+            Robot r = collisionGrid.body(i);
+            int team = (i < ourCount) ? +1 : -1;
+            if (ballOwnerId != -1 && ballOwnerTeam == team && r.id == ballOwnerId) continue;
+            pushBallOutOfRobot(world.ball, r, minDist, minDist2);
+        }
+    }
+
+    private void resolveRobotRobotCollisions(WorldState world) {
+        if (world == null) return;
+
+        // Only prevent overlap (no extra distance keeping).
+        double minDist = FieldConfig.ROBOT_RADIUS_M * 2.0;
+        double minDist2 = minDist * minDist;
+
+        // Iterate a couple of times to reduce multi-overlap cases.
+        for (int iter = 0; iter < 2; iter++) {
+            collisionGrid.rebuild(world.ourRobots, world.oppRobots);
+            int pairs = collisionGrid.collectPairs();
+            for (int k = 0; k < pairs; k++) {
+                Robot a = collisionGrid.body(collisionGrid.pairA(k));
+                Robot b = collisionGrid.body(collisionGrid.pairB(k));
+                pushRobotsApart(a, b, minDist, minDist2);
+            }
+        }
+    }
+
+    private static void pushRobotsApart(Robot a, Robot b, double minDist, double minDist2) {
+        double dx = b.x - a.x;
+        double dy = b.y - a.y;
+        double d2 = dx * dx + dy * dy;
+        if (d2 >= minDist2) return;
+
+        double d = Math.sqrt(Math.max(d2, 1e-9));
+        double nx = dx / d;
+        double ny = dy / d;
+
+        double overlap = (minDist - d);
+        double push = overlap * 0.5;
+
+        a.x -= nx * push;
+        a.y -= ny * push;
+        b.x += nx * push;
+        b.y += ny * push;
+
+        keepInsideField(a);
+        keepInsideField(b);
+    }
+
+    private static void pushBallOutOfRobot(Ball ball, Robot robot, double minDist, double minDist2) {
+        double dx = ball.x - robot.x;
+        double dy = ball.y - robot.y;
+        double d2 = dx * dx + dy * dy;
+        if (d2 >= minDist2) return;
+
+        double d = Math.sqrt(Math.max(d2, 1e-9));
+        double nx = dx / d;
+        double ny = dy / d;
+
+        // Place ball on boundary (simple separation)
+        ball.x = robot.x + nx * minDist;
+        ball.y = robot.y + ny * minDist;
+
+        // Dampen ball velocity along collision normal (crude)
+        double vn = ball.vx * nx + ball.vy * ny;
+        if (vn < 0) {
+            // reflect and damp
+            ball.vx -= (1.6 * vn) * nx;
+            ball.vy -= (1.6 * vn) * ny;
+        }
+    }
+
+    private void integrateBall(WorldState world, double dt, int ballOwnerId, int ballOwnerTeam) {
+        if (world.ball == null) return;
+        Ball ball = world.ball;
+
+        // Swept ball-vs-robot test: with a large dt (or a hard shot) the ball can jump over a robot
+        // between two ticks. Stop it at the first contact, bounce there and carry the rest of the
+        // move along the reflected velocity. Only robots in the cells along the path can be hit.
+        collisionGrid.rebuild(world.ourRobots, world.oppRobots);
+        int ourCount = world.ourRobots.size();
+        double x0 = ball.x;
+        double y0 = ball.y;
+        double rest = 1.0; // fraction of this tick's move still to go
+        for (int bounce = 0; bounce < MAX_SWEEP_BOUNCES; bounce++) {
+            x0 = ball.x;
+            y0 = ball.y;
+            double sx = ball.vx * dt * rest;
+            double sy = ball.vy * dt * rest;
+
+            Robot hit = null;
+            double hitT = 1.0;
+            int n = collisionGrid.collectAlong(x0, y0, x0 + sx, y0 + sy);
+            for (int k = 0; k < n; k++) {
+                int i = collisionGrid.near(k);
+                Robot r = collisionGrid.body(i);
+                int team = (i < ourCount) ? +1 : -1;
+                if (ballOwnerId != -1 && ballOwnerTeam == team && r.id == ballOwnerId) continue;
+                double t = sweepCircleEntry(x0, y0, sx, sy, r.x, r.y, BALL_CONTACT_DIST_M);
+                if (t < hitT) {
+                    hitT = t;
+                    hit = r;
+                }
+            }
+            // Ending inside the robot is left to resolveBallRobotCollisions (as for a slow ball);
+            // only a step that passes through and out the other side is cut short.
+            if (hit == null || dist2(x0 + sx, y0 + sy, hit.x, hit.y) < BALL_CONTACT_DIST_M * BALL_CONTACT_DIST_M) {
+                ball.x = x0 + sx;
+                ball.y = y0 + sy;
+                break;
+            }
+            ball.x = x0 + sx * hitT;
+            ball.y = y0 + sy * hitT;
+            double nx = (ball.x - hit.x) / BALL_CONTACT_DIST_M;
+            double ny = (ball.y - hit.y) / BALL_CONTACT_DIST_M;
+            double vn = ball.vx * nx + ball.vy * ny;
+            if (vn < 0) {
+                // Same reflect-and-damp as pushBallOutOfRobot.
+                ball.vx -= (1.6 * vn) * nx;
+                ball.vy -= (1.6 * vn) * ny;
+            }
+            rest *= (1.0 - hitT);
+        }
+
+        // Simple friction
+        ball.vx *= ballModel.damping;
+        ball.vy *= ballModel.damping;
+
+        // Simple wall bounce within field boundaries
+        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+        double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+
+        // Goal detection: if the ball crosses the goal line within the goal mouth, count a goal.
+        // Use the y where the path (its last leg after any bounce) crosses the line, not where the
+        // step ends.
+        double goalHalfW = FieldConfig.GOAL_WIDTH_M / 2.0;
+        if (ball.x < -halfL && Math.abs(crossingY(x0, y0, ball.x, ball.y, -halfL)) <= goalHalfW) {
+            ctx.onGoal(world, -1);
+            ctx.goalPendingTeam = -1;
+            // Put the ball at center immediately; main loop will clear ownership and reset formation.
+            ball.x = 0.0;
+            ball.y = 0.0;
+            ball.vx = 0.0;
+            ball.vy = 0.0;
+            return;
+        }
+        if (ball.x > halfL && Math.abs(crossingY(x0, y0, ball.x, ball.y, halfL)) <= goalHalfW) {
+            ctx.onGoal(world, +1);
+            ctx.goalPendingTeam = +1;
+            ball.x = 0.0;
+            ball.y = 0.0;
+            ball.vx = 0.0;
+            ball.vy = 0.0;
+            return;
+        }
+
+        if (ball.x < -halfL) {
+            ball.x = -halfL;
+            ball.vx = -ball.vx;
+        } else if (ball.x > halfL) {
+            ball.x = halfL;
+            ball.vx = -ball.vx;
+        }
+
+        if (ball.y < -halfW) {
+            ball.y = -halfW;
+            ball.vy = -ball.vy;
+        } else if (ball.y > halfW) {
+            ball.y = halfW;
+            ball.vy = -ball.vy;
+        }
+    }
+
+    /**
+     * Fraction t in [0, 1] of the move (sx, sy) at which a point starting at (x0, y0) enters the
+     * circle (cx, cy, radius), or +inf if it starts inside or never enters during this move.
+     */
+    private static double sweepCircleEntry(double x0, double y0, double sx, double sy,
+                                           double cx, double cy, double radius) {
+        double fx = x0 - cx;
+        double fy = y0 - cy;
+        double c = fx * fx + fy * fy - radius * radius;
+        if (c <= 0.0) return Double.POSITIVE_INFINITY;
+        double a = sx * sx + sy * sy;
+        if (a < 1e-18) return Double.POSITIVE_INFINITY;
+        double b = fx * sx + fy * sy;
+        if (b >= 0.0) return Double.POSITIVE_INFINITY; // moving away
+        double disc = b * b - a * c;
+        if (disc < 0.0) return Double.POSITIVE_INFINITY;
+        double t = (-b - Math.sqrt(disc)) / a;
+        return (t <= 1.0) ? Math.max(0.0, t) : Double.POSITIVE_INFINITY;
+    }
+
+    /** y where the segment (x0, y0) -> (x1, y1) crosses the vertical line x = lineX. */
+    private static double crossingY(double x0, double y0, double x1, double y1, double lineX) {
+        double dx = x1 - x0;
+        if (Math.abs(dx) < 1e-12) return y1;
+        double t = clamp((lineX - x0) / dx, 0.0, 1.0);
+        return y0 + t * (y1 - y0);
+    }
+
+    private static void keepInsideField(Robot r) {
+        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+        double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+
+        // Keep centers inside play area (roughly)
+        double margin = FieldConfig.ROBOT_RADIUS_M;
+        r.x = clamp(r.x, -halfL + margin, halfL - margin);
+        r.y = clamp(r.y, -halfW + margin, halfW - margin);
+    }
+
+    private static double clamp(double v, double min, double max) {
+        return Math.max(min, Math.min(max, v));
+    }
+}
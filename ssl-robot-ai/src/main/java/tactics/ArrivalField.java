@@ -0,0 +1,127 @@
+package tactics;
+
+import java.util.Arrays;
+import java.util.List;
+import world.Robot;
+import world.RobotArrays;
+
+/**
+ * How soon one team can reach each point: the "who gets there first" field behind openness and
+ * teammate-spacing terms.
+ *
+ * Speed model: every robot heads straight for the point at {@link #speedMps()}, so the team's
+ * arrival time is the distance to its nearest robot over the speed. The field also keeps the
+ * second-nearest robot, so the same question without one robot (a robot asking how close its
+ * teammates are) is a lookup as well.
+ *
+ * Values are stored per {@link SearchLattice} cell. A cell is filled the first time it is sampled
+ * after {@link #begin}; every later sample in that pass, by any robot's search, is a lookup.
+ * Points off the lattice are evaluated directly. Either way the distances are exactly those of
+ * {@link ScoreGrid#nearestDist2}.
+ *
+ * Readers: the raster scorers' teammate spacing and interception terms, PositionLearning's attack
+ * bonus, PassLearning's receiver openness and the goalkeeper's distribution.
+ */
+public final class ArrivalField {
+    private final SearchLattice lat;
+
+    // Robots of the current pass.
+    private final RobotArrays team = new RobotArrays();
+    private double speedMps = 1.0;
+    private int version = 0;
+
+    // Per cell; stamp 0 = never filled.
+    private final int[] stamp;
+    private final double[] nearest2;
+    private final double[] second2;
+    private final int[] nearestId;
+
+    /** Field laid out for searches with step {@code step}. */
+    public ArrivalField(double step) {
+        this(new SearchLattice(step));
+    }
+
+    ArrivalField(SearchLattice lat) {
+        this.lat = lat;
+        int cells = lat.cells();
+        stamp = new int[cells];
+        nearest2 = new double[cells];
+        second2 = new double[cells];
+        nearestId = new int[cells];
+    }
+
+    /** Start a pass with the current positions of {@code robots}, moving at {@code speedMps}. */
+    public void begin(List<Robot> robots, double speedMps) {
+        team.load(robots);
+        this.speedMps = speedMps;
+        version++;
+        if (version == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            version = 1;
+        }
+    }
+
+    public double speedMps() {
+        return speedMps;
+    }
+
+    /** Distance from (x, y) to the nearest robot (+inf if there is none). */
+    public double dist(double x, double y) {
+        return dist(lat.cell(x, y), x, y);
+    }
+
+    /** Distance from (x, y) to the nearest robot other than {@code robotId} (+inf if there is none). */
+    public double distExcluding(int robotId, double x, double y) {
+        return distExcluding(lat.cell(x, y), robotId, x, y);
+    }
+
+    /** Time for the team to reach (x, y). */
+    public double time(double x, double y) {
+        return dist(x, y) / speedMps;
+    }
+
+    double time(int c, double x, double y) {
+        return dist(c, x, y) / speedMps;
+    }
+
+    /** Time for the team without {@code robotId} to reach (x, y). */
+    public double timeExcluding(int robotId, double x, double y) {
+        return distExcluding(robotId, x, y) / speedMps;
+    }
+
+    // Same, for a cell index already looked up by the caller (-1 = off the lattice).
+    double dist(int c, double x, double y) {
+        if (c < 0) return Math.sqrt(ScoreGrid.nearestDist2(team, x, y));
+        fill(c, x, y);
+        return Math.sqrt(nearest2[c]);
+    }
+
+    double distExcluding(int c, int robotId, double x, double y) {
+        if (c < 0) return Math.sqrt(ScoreGrid.nearestDist2Excluding(team, robotId, x, y));
+        fill(c, x, y);
+        return Math.sqrt((nearestId[c] == robotId) ? second2[c] : nearest2[c]);
+    }
+
+    private void fill(int c, double x, double y) {
+        if (stamp[c] == version) return;
+        double best = Double.POSITIVE_INFINITY;
+        double next = Double.POSITIVE_INFINITY;
+        int bestId = Integer.MIN_VALUE;
+        for (int i = 0; i < team.count; i++) {
+            double dx = team.x[i] - x;
+            double dy = team.y[i] - y;
+            double d2 = dx * dx + dy * dy;
+            if (d2 < best) {
+                next = best;
+                best = d2;
+                bestId = team.id[i];
+            } else if (d2 < next) {
+                next = d2;
+            }
+        }
+        nearest2[c] = best;
+        second2[c] = next;
+        nearestId[c] = bestId;
+        stamp[c] = version;
+    }
+}
@@ -0,0 +1,234 @@
+package tactics;
+
+import java.util.Arrays;
+import world.Ball;
+import world.Robot;
+import world.RobotArrays;
+import world.WorldState;
+
+/**
+ * Proposes the few points worth scoring for an off-ball search, instead of the whole lattice.
+ *
+ * Candidates, in priority order:
+ * - the robot's previous target and its neighbours, and the robot's own position;
+ * - gaps between opponents as seen from the ball: the midpoint of two angularly adjacent opponents
+ *   near the ball, and a receiving point just behind it on the pass line;
+ * - vertices of the opponents' Voronoi diagram, including where its edges meet the field margins:
+ *   the points locally farthest from every opponent;
+ * - rings of short and medium pass targets around the ball.
+ *
+ * Candidates are snapped to the nearest coarse sample of the same {@link SearchLattice} as
+ * {@link ScoreGrid#findBestRefined}, the previous target's neighbourhood to fine cells, and
+ * duplicates are dropped. Coarse samples barely move with the opponents, so their
+ * {@link TeamRaster} terms are shared by the team's robots and reused across ticks; unsnapped
+ * points would be new cells every tick. {@link ScoreGrid#findBestCandidates} scores the
+ * candidates and refines the best few.
+ *
+ * Reuses its buffers between searches; one generator per thread.
+ */
+public final class CandidateGenerator {
+    // Gaps are only looked for between opponents this close to the ball.
+    private static final double GAP_RANGE_M = 4.5;
+    // Receiving point behind a gap, along the ball -> gap line.
+    private static final double GAP_DEPTH_M = 0.9;
+    // Pass-range rings around the ball: radii, and directions per ring.
+    private static final double[] RING_RADII_M = { 1.5, 3.0 };
+    private static final int RING_POINTS = 8;
+    // Slack when testing that no other opponent is inside a Voronoi vertex's circle.
+    private static final double EMPTY_EPS_M2 = 1e-9;
+
+    final SearchLattice lat;
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+
+    // Output, valid until the next generate().
+    int count;
+    int[] ci = new int[64];
+    int[] cj = new int[64];
+
+    // Duplicate filter, per fine cell.
+    private final int[] seen;
+    private int version = 0;
+
+    // Gap scratch: opponents near the ball, sorted by angle from it.
+    private double[] gapAngle = new double[8];
+    private int[] gapSlot = new int[8];
+
+    public CandidateGenerator(double step) {
+        lat = new SearchLattice(step);
+        minX = lat.x(lat.iMin);
+        maxX = lat.x(lat.iMax);
+        minY = lat.y(lat.jMin);
+        maxY = lat.y(lat.jMax);
+        seen = new int[lat.cells()];
+    }
+
+    /** Search step this generator was built for. */
+    public double step() {
+        return lat.coarse / SearchLattice.COARSE_FACTOR;
+    }
+
+    /**
+     * Candidates for {@code self} in the current frame (world arrays must be refreshed).
+     * {@code prevX}/{@code prevY} is the robot's previous target, NaN if it has none.
+     */
+    void generate(WorldState world, Robot self, double prevX, double prevY) {
+        count = 0;
+        version++;
+        if (version == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            version = 1;
+        }
+
+        // Priority order: a search cut short by its budget keeps the first ones.
+        if (!Double.isNaN(prevX) && !Double.isNaN(prevY)) {
+            int pi = lat.snapI(prevX);
+            int pj = lat.snapJ(prevY);
+            int h = lat.stride / 2;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    addCell(lat.clampI(pi + dx * h), lat.clampJ(pj + dy * h));
+                }
+            }
+        }
+        add(self.x, self.y);
+
+        RobotArrays opps = world.oppArrays;
+        if (world.ball != null) laneGaps(opps, world.ball);
+        voronoiVertices(opps);
+        voronoiBoundary(opps);
+        if (world.ball != null) passRing(world.ball);
+    }
+
+    // Circumcenters of opponent triples whose circle holds no other opponent.
+    private void voronoiVertices(RobotArrays opps) {
+        int n = opps.count;
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                for (int c = b + 1; c < n; c++) {
+                    double ax = opps.x[a], ay = opps.y[a];
+                    double bx = opps.x[b] - ax, by = opps.y[b] - ay;
+                    double cx = opps.x[c] - ax, cy = opps.y[c] - ay;
+                    double d = 2.0 * (bx * cy - by * cx);
+                    if (Math.abs(d) < 1e-9) continue; // collinear
+                    double b2 = bx * bx + by * by;
+                    double c2 = cx * cx + cy * cy;
+                    double ux = (cy * b2 - by * c2) / d;
+                    double uy = (bx * c2 - cx * b2) / d;
+                    double px = ax + ux;
+                    double py = ay + uy;
+                    if (!inside(px, py)) continue;
+                    if (emptyCircle(opps, px, py, ux * ux + uy * uy, a, b, c)) add(px, py);
+                }
+            }
+        }
+    }
+
+    // Where the bisector of two opponents crosses a field margin with no opponent closer.
+    private void voronoiBoundary(RobotArrays opps) {
+        int n = opps.count;
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                double mx = 0.5 * (opps.x[a] + opps.x[b]);
+                double my = 0.5 * (opps.y[a] + opps.y[b]);
+                // Bisector direction: perpendicular to a -> b.
+                double dx = -(opps.y[b] - opps.y[a]);
+                double dy = opps.x[b] - opps.x[a];
+                if (dx != 0.0) {
+                    boundaryPoint(opps, a, b, minX, my + (minX - mx) / dx * dy);
+                    boundaryPoint(opps, a, b, maxX, my + (maxX - mx) / dx * dy);
+                }
+                if (dy != 0.0) {
+                    boundaryPoint(opps, a, b, mx + (minY - my) / dy * dx, minY);
+                    boundaryPoint(opps, a, b, mx + (maxY - my) / dy * dx, maxY);
+                }
+            }
+        }
+    }
+
+    private void boundaryPoint(RobotArrays opps, int a, int b, double px, double py) {
+        if (!inside(px, py)) return;
+        double r2 = ScoreGrid.dist2(px, py, opps.x[a], opps.y[a]);
+        if (emptyCircle(opps, px, py, r2, a, b, -1)) add(px, py);
+    }
+
+    // Midpoints of angularly adjacent opponent pairs near the ball, and a point behind each.
+    private void laneGaps(RobotArrays opps, Ball ball) {
+        if (opps.count > gapSlot.length) {
+            gapAngle = new double[opps.count];
+            gapSlot = new int[opps.count];
+        }
+        int m = 0;
+        double range2 = GAP_RANGE_M * GAP_RANGE_M;
+        for (int k = 0; k < opps.count; k++) {
+            if (ScoreGrid.dist2(opps.x[k], opps.y[k], ball.x, ball.y) > range2) continue;
+            double ang = Math.atan2(opps.y[k] - ball.y, opps.x[k] - ball.x);
+            // Insertion sort by angle; there are only a handful.
+            int p = m++;
+            while (p > 0 && gapAngle[p - 1] > ang) {
+                gapAngle[p] = gapAngle[p - 1];
+                gapSlot[p] = gapSlot[p - 1];
+                p--;
+            }
+            gapAngle[p] = ang;
+            gapSlot[p] = k;
+        }
+        if (m < 2) return;
+        for (int p = 0; p < m; p++) {
+            int q = (p + 1) % m;
+            double span = gapAngle[q] - gapAngle[p];
+            if (q == 0) span += 2.0 * Math.PI;
+            if (span >= Math.PI) continue; // not a gap between the two, but the open side
+            int a = gapSlot[p];
+            int b = gapSlot[q];
+            double gx = 0.5 * (opps.x[a] + opps.x[b]);
+            double gy = 0.5 * (opps.y[a] + opps.y[b]);
+            add(gx, gy);
+            double lx = gx - ball.x;
+            double ly = gy - ball.y;
+            double len = Math.sqrt(lx * lx + ly * ly);
+            if (len > 1e-6) add(gx + lx / len * GAP_DEPTH_M, gy + ly / len * GAP_DEPTH_M);
+        }
+    }
+
+    // Short and medium passes in every direction, whatever the opponents do.
+    private void passRing(Ball ball) {
+        for (double r : RING_RADII_M) {
+            for (int k = 0; k < RING_POINTS; k++) {
+                double ang = k * (2.0 * Math.PI / RING_POINTS);
+                add(ball.x + r * Math.cos(ang), ball.y + r * Math.sin(ang));
+            }
+        }
+    }
+
+    private static boolean emptyCircle(RobotArrays opps, double px, double py, double r2, int a, int b, int c) {
+        for (int k = 0; k < opps.count; k++) {
+            if (k == a || k == b || k == c) continue;
+            if (ScoreGrid.dist2(px, py, opps.x[k], opps.y[k]) < r2 - EMPTY_EPS_M2) return false;
+        }
+        return true;
+    }
+
+    private boolean inside(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    private void add(double x, double y) {
+        addCell(lat.snapCoarseI(x), lat.snapCoarseJ(y));
+    }
+
+    private void addCell(int i, int j) {
+        int c = lat.index(i, j);
+        if (seen[c] == version) return;
+        seen[c] = version;
+        if (count == ci.length) {
+            ci = Arrays.copyOf(ci, count * 2);
+            cj = Arrays.copyOf(cj, count * 2);
+        }
+        ci[count] = i;
+        cj[count] = j;
+        count++;
+    }
+}
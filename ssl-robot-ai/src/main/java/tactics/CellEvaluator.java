@@ -0,0 +1,35 @@
+package tactics;
+
+/**
+ * Scores candidate points for one robot in one frame; see {@link PositionScorer#prepare}.
+ *
+ * An evaluator may keep scratch buffers, so it belongs to the search (and thread) that prepared it.
+ */
+@FunctionalInterface
+public interface CellEvaluator {
+    double score(double x, double y);
+
+    /**
+     * out[j] = score(x, ys[j]) for j < n. Evaluators that can batch the geometry of a row (see
+     * {@link geom.RowKernels}) override this; the result must be exactly what score() returns for
+     * each point. ScoreGrid scores its coarse lattice rows through this.
+     */
+    default void scoreRow(double x, double[] ys, int n, double[] out) {
+        for (int j = 0; j < n; j++) out[j] = score(x, ys[j]);
+    }
+
+    /** Receives the named terms of one score; see {@link #explain}. */
+    @FunctionalInterface
+    interface TermSink {
+        void term(String name, double value);
+    }
+
+    /**
+     * Report the terms of score(x, y) to {@code sink}; they add up to the score. Evaluators without
+     * a breakdown report the whole score as one term. Meant for a single cell per search (the
+     * winner), not for the scan itself.
+     */
+    default void explain(double x, double y, TermSink sink) {
+        sink.term("score", score(x, y));
+    }
+}
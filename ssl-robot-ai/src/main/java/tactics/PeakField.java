@@ -0,0 +1,30 @@
+package tactics;
+
+/**
+ * Reusable coarse score field for {@link ScoreGrid#findPeaks}: the lattice for one search step and
+ * the per-sample buffers, allocated once instead of on every team-level scan.
+ *
+ * One field per thread; its contents are only valid during a findPeaks call.
+ */
+public final class PeakField {
+    final SearchLattice lat;
+    final double[] cs;   // coarse sample scores, NaN = not scored
+    final double[] ys;   // y of each coarse row
+    final double[] row;  // scoreRow output
+    final int[] order;   // column visiting order, filled per search
+    int[] picked = new int[8];
+
+    public PeakField(double step) {
+        lat = new SearchLattice(step);
+        cs = new double[lat.nx * lat.ny];
+        ys = new double[lat.ny];
+        for (int j = 0; j < lat.ny; j++) ys[j] = lat.y(j * lat.stride);
+        row = new double[lat.ny];
+        order = new int[lat.nx];
+    }
+
+    /** Search step this field was built for. */
+    public double step() {
+        return lat.coarse / SearchLattice.COARSE_FACTOR;
+    }
+}
@@ -4,11 +4,12 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
 import java.util.Properties;
+import geom.Geometry;
 import ui.FieldConfig;
 import world.Ball;
 import world.Robot;
+import world.RobotArrays;
 import world.WorldState;
 
 /**
@@ -17,6 +18,10 @@ import world.WorldState;
  * Two small linear models provide an additive bonus term:
  * - attack: prefers receiving locations that historically led to good outcomes
  * - defense: prefers defensive locations that historically prevented opponent progress/passes
+ *
+ * The bonus and feature functions are called for every candidate point of a search, and matches
+ * run side by side share the weights (see sim.MatchRunner), so they do not lock: they read an
+ * immutable weight snapshot. Reward updates are synchronized and publish a new snapshot.
  */
 public final class PositionLearning {
 
@@ -42,10 +47,18 @@ public final class PositionLearning {
     private static final int D_MOVE = 4;
     private static final int D_COUNT = 5;
 
-    private static final double[] WA = new double[A_COUNT];
-    private static final double[] WD = new double[D_COUNT];
+    // Published weights; never modified after publication.
+    private static final class Weights {
+        final double[] wa;
+        final double[] wd;
+
+        Weights(double[] wa, double[] wd) {
+            this.wa = wa;
+            this.wd = wd;
+        }
+    }
 
-    private static boolean loaded = false;
+    private static volatile Weights weights = null;
     private static int updatesSinceSave = 0;
 
     private static Path weightsPath() {
@@ -53,21 +66,24 @@ public final class PositionLearning {
     }
 
     public static synchronized void ensureLoaded() {
-        if (loaded) return;
+        if (weights != null) return;
+
+        double[] wa = new double[A_COUNT];
+        double[] wd = new double[D_COUNT];
 
         // Defaults: mild preference in same direction as the handcrafted heuristics.
-        WA[A_FORWARD] = 0.35;
-        WA[A_OPEN] = 0.65;
-        WA[A_LANE] = 0.75;
-        WA[A_RANGE] = 0.25;
-        WA[A_CENTRAL] = 0.10;
-        WA[A_TEAMSPACE] = 0.20;
-
-        WD[D_GOALSIDE] = 0.65;
-        WD[D_LINEHOLD] = 0.45;
-        WD[D_LANECUT] = 0.55;
-        WD[D_MARKDIST] = 0.20;
-        WD[D_MOVE] = -0.15;
+        wa[A_FORWARD] = 0.35;
+        wa[A_OPEN] = 0.65;
+        wa[A_LANE] = 0.75;
+        wa[A_RANGE] = 0.25;
+        wa[A_CENTRAL] = 0.10;
+        wa[A_TEAMSPACE] = 0.20;
+
+        wd[D_GOALSIDE] = 0.65;
+        wd[D_LINEHOLD] = 0.45;
+        wd[D_LANECUT] = 0.55;
+        wd[D_MARKDIST] = 0.20;
+        wd[D_MOVE] = -0.15;
 
         Path p = weightsPath();
         if (Files.exists(p)) {
@@ -77,16 +93,26 @@ public final class PositionLearning {
                     props.load(in);
                 }
                 for (int i = 0; i < A_COUNT; i++) {
-                    WA[i] = parse(props.getProperty("wa." + i), WA[i]);
+                    wa[i] = parse(props.getProperty("wa." + i), wa[i]);
                 }
                 for (int i = 0; i < D_COUNT; i++) {
-                    WD[i] = parse(props.getProperty("wd." + i), WD[i]);
+                    wd[i] = parse(props.getProperty("wd." + i), wd[i]);
                 }
             } catch (IOException ignore) {
             }
         }
 
-        loaded = true;
+        weights = new Weights(wa, wd);
+    }
+
+    // Current weights, loading them on first use.
+    private static Weights weights() {
+        Weights w = weights;
+        if (w == null) {
+            ensureLoaded();
+            w = weights;
+        }
+        return w;
     }
 
     private static double parse(String s, double fallback) {
@@ -98,37 +124,73 @@ public final class PositionLearning {
         }
     }
 
-    public static synchronized double attackBonus(WorldState world, Robot self, double x, double y, int teamSign) {
-        ensureLoaded();
-        double[] f = attackFeatures(world, self, x, y, teamSign);
+    /** Learned attack bonus of target (x, y) for {@code self}, from the robots' current positions. */
+    public static double attackBonus(WorldState world, Robot self, double x, double y, int teamSign) {
+        if (world == null) return 0.0;
+        world.refreshArrays();
+        return attackCellBonus(null, world, self, x, y, teamSign);
+    }
+
+    /**
+     * Per-cell version of {@link #attackBonus(WorldState, Robot, double, double, int)} for scorers
+     * inside a search: reads world.ourArrays/oppArrays as the search refreshed them and takes the
+     * nearest-robot distances from the arrival fields of {@code raster} (may be null).
+     */
+    public static double attackCellBonus(TeamRaster raster, WorldState world, Robot self, double x, double y, int teamSign) {
+        Weights w = weights();
+        double[] f = attackFeatures(raster, world, self, x, y, teamSign);
         if (f == null) return 0.0;
         // Keep it as a small bonus so heuristics still dominate.
-        return dot(WA, f) * 0.55;
+        return dot(w.wa, f) * 0.55;
+    }
+
+    /** Learned defense bonus of target (x, y) for {@code self}, from the robots' current positions. */
+    public static double defenseBonus(WorldState world, Robot self, double x, double y, int teamSign, double[] mark) {
+        if (world == null) return 0.0;
+        world.refreshArrays();
+        return defenseCellBonus(world, self, x, y, teamSign, mark);
     }
 
-    public static synchronized double defenseBonus(WorldState world, Robot self, double x, double y, int teamSign, double[] mark) {
-        ensureLoaded();
-        double[] f = defenseFeatures(world, self, x, y, teamSign, mark);
+    /**
+     * Per-cell version of {@link #defenseBonus}: reads world.ourArrays/oppArrays as the search
+     * refreshed them.
+     */
+    public static double defenseCellBonus(WorldState world, Robot self, double x, double y, int teamSign, double[] mark) {
+        Weights w = weights();
+        double[] f = defenseFeaturesOf(world, self, x, y, teamSign, mark);
         if (f == null) return 0.0;
-        return dot(WD, f) * 0.55;
+        return dot(w.wd, f) * 0.55;
     }
 
-    public static synchronized double[] attackFeatures(WorldState world, Robot self, double x, double y, int teamSign) {
-        ensureLoaded();
+    /** Attack features of target (x, y) for {@code self}, from the robots' current positions. */
+    public static double[] attackFeatures(WorldState world, Robot self, double x, double y, int teamSign) {
+        if (world == null) return null;
+        world.refreshArrays();
+        return attackFeatures(null, world, self, x, y, teamSign);
+    }
+
+    // Reads world.ourArrays/oppArrays as they are: the bonus runs per cell inside a search, which
+    // refreshed them (see TacticalScorers). With a raster (whose "ours" must be teamSign's team),
+    // open/teamspace come from its arrival fields.
+    static double[] attackFeatures(TeamRaster raster, WorldState world, Robot self, double x, double y, int teamSign) {
         if (world == null || world.ball == null || self == null) return null;
         Ball ball = world.ball;
-        List<Robot> opps = (teamSign == +1) ? world.oppRobots : world.ourRobots;
-        List<Robot> mates = (teamSign == +1) ? world.ourRobots : world.oppRobots;
+        RobotArrays opps = (teamSign == +1) ? world.oppArrays : world.ourArrays;
+        RobotArrays mates = (teamSign == +1) ? world.ourArrays : world.oppArrays;
 
         double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
 
         double forward = (x - ball.x) * teamSign;
-        double open = nearestOpponentDistance(x, y, opps);
-        double lane = laneClearance(ball.x, ball.y, x, y, opps);
+        double open = (raster != null)
+                ? Math.min(9.0, raster.currentOppDist(x, y))
+                : nearestOpponentDistance(x, y, opps);
+        double lane = Geometry.segmentClearance(ball.x, ball.y, x, y, opps, 9.0);
         double d = Math.sqrt(ScoreGrid.dist2(x, y, ball.x, ball.y));
         double range = 1.0 - Math.abs(d - 2.0) / 2.0;
         double central = 1.0 - Math.min(1.0, Math.abs(y) / (halfW + 1e-9));
-        double mateMin = nearestMateDistance(x, y, mates, self.id);
+        double mateMin = (raster != null)
+                ? Math.min(9.0, raster.mateDist(self.id, x, y))
+                : nearestMateDistance(x, y, mates, self.id);
 
         double[] f = new double[A_COUNT];
         f[A_FORWARD] = clamp(forward / 3.5, -1.0, 1.0);
@@ -140,8 +202,15 @@ public final class PositionLearning {
         return f;
     }
 
-    public static synchronized double[] defenseFeatures(WorldState world, Robot self, double x, double y, int teamSign, double[] mark) {
-        ensureLoaded();
+    /** Defense features of target (x, y) for {@code self}, from the robots' current positions. */
+    public static double[] defenseFeatures(WorldState world, Robot self, double x, double y, int teamSign, double[] mark) {
+        if (world == null) return null;
+        world.refreshArrays();
+        return defenseFeaturesOf(world, self, x, y, teamSign, mark);
+    }
+
+    // Per-cell version of defenseFeatures(): reads world.ourArrays/oppArrays as the search left them.
+    private static double[] defenseFeaturesOf(WorldState world, Robot self, double x, double y, int teamSign, double[] mark) {
         if (world == null || world.ball == null || self == null) return null;
         Ball ball = world.ball;
 
@@ -163,26 +232,21 @@ public final class PositionLearning {
         // Lane cut to most advanced opponent (or mark if present)
         double cut = 0.0;
         if (mark != null) {
-            double[] p = ScoreGrid.closestPointOnSegment(ball.x, ball.y, mark[0], mark[1], x, y);
-            double d = Math.sqrt(ScoreGrid.dist2(x, y, p[0], p[1]));
+            double d = Geometry.distToSegment(x, y, ball.x, ball.y, mark[0], mark[1]);
             cut = -clamp(d / 2.0, 0.0, 1.0);
         } else {
-            Robot threat = null;
+            int threat = -1;
             double best = Double.NEGATIVE_INFINITY;
-            List<Robot> opps = (teamSign == +1) ? world.oppRobots : world.ourRobots;
-            if (opps != null) {
-                for (Robot o : opps) {
-                    if (o == null) continue;
-                    double adv = o.x * teamSign;
-                    if (adv > best) {
-                        best = adv;
-                        threat = o;
-                    }
+            RobotArrays opps = (teamSign == +1) ? world.oppArrays : world.ourArrays;
+            for (int i = 0; i < opps.count; i++) {
+                double adv = opps.x[i] * teamSign;
+                if (adv > best) {
+                    best = adv;
+                    threat = i;
                 }
             }
-            if (threat != null) {
-                double[] p = ScoreGrid.closestPointOnSegment(ball.x, ball.y, threat.x, threat.y, x, y);
-                double d = Math.sqrt(ScoreGrid.dist2(x, y, p[0], p[1]));
+            if (threat >= 0) {
+                double d = Geometry.distToSegment(x, y, ball.x, ball.y, opps.x[threat], opps.y[threat]);
                 cut = -clamp(d / 2.4, 0.0, 1.0);
             }
         }
@@ -208,12 +272,14 @@ public final class PositionLearning {
     }
 
     public static synchronized void applyAttackReward(double reward, double[] features) {
-        ensureLoaded();
+        Weights w = weights();
         if (features == null || features.length != A_COUNT) return;
         double r = clamp(reward, -2.0, 2.0);
+        double[] wa = w.wa.clone();
         for (int i = 0; i < A_COUNT; i++) {
-            WA[i] += LR * (r * features[i] - L2 * WA[i]);
+            wa[i] += LR * (r * features[i] - L2 * wa[i]);
         }
+        weights = new Weights(wa, w.wd);
         updatesSinceSave++;
         if (updatesSinceSave >= 18) {
             updatesSinceSave = 0;
@@ -222,12 +288,14 @@ public final class PositionLearning {
     }
 
     public static synchronized void applyDefenseReward(double reward, double[] features) {
-        ensureLoaded();
+        Weights w = weights();
         if (features == null || features.length != D_COUNT) return;
         double r = clamp(reward, -2.0, 2.0);
+        double[] wd = w.wd.clone();
         for (int i = 0; i < D_COUNT; i++) {
-            WD[i] += LR * (r * features[i] - L2 * WD[i]);
+            wd[i] += LR * (r * features[i] - L2 * wd[i]);
         }
+        weights = new Weights(w.wa, wd);
         updatesSinceSave++;
         if (updatesSinceSave >= 18) {
             updatesSinceSave = 0;
@@ -236,13 +304,13 @@ public final class PositionLearning {
     }
 
     public static synchronized void save() {
-        ensureLoaded();
+        Weights w = weights();
         Properties props = new Properties();
         for (int i = 0; i < A_COUNT; i++) {
-            props.setProperty("wa." + i, Double.toString(WA[i]));
+            props.setProperty("wa." + i, Double.toString(w.wa[i]));
         }
         for (int i = 0; i < D_COUNT; i++) {
-            props.setProperty("wd." + i, Double.toString(WD[i]));
+            props.setProperty("wd." + i, Double.toString(w.wd[i]));
         }
         try {
             try (var out = Files.newOutputStream(weightsPath())) {
@@ -252,51 +320,12 @@ public final class PositionLearning {
         }
     }
 
-    private static double nearestOpponentDistance(double x, double y, List<Robot> opps) {
-        if (opps == null || opps.isEmpty()) return 9.0;
-        double best = 9.0;
-        for (Robot o : opps) {
-            if (o == null) continue;
-            double d = Math.sqrt(ScoreGrid.dist2(o.x, o.y, x, y));
-            if (d < best) best = d;
-        }
-        return best;
-    }
-
-    private static double nearestMateDistance(double x, double y, List<Robot> mates, int selfId) {
-        if (mates == null || mates.isEmpty()) return 9.0;
-        double best = 9.0;
-        for (Robot r : mates) {
-            if (r == null || r.id == selfId) continue;
-            double d = Math.sqrt(ScoreGrid.dist2(r.x, r.y, x, y));
-            if (d < best) best = d;
-        }
-        return best;
-    }
-
-    private static double laneClearance(double ax, double ay, double bx, double by, List<Robot> opps) {
-        if (opps == null || opps.isEmpty()) return 9.0;
-        double best = 9.0;
-        for (Robot o : opps) {
-            if (o == null) continue;
-            double d = distancePointToSegment(o.x, o.y, ax, ay, bx, by);
-            if (d < best) best = d;
-        }
-        return best;
+    private static double nearestOpponentDistance(double x, double y, RobotArrays opps) {
+        return Math.min(9.0, Math.sqrt(ScoreGrid.nearestDist2(opps, x, y)));
     }
 
-    private static double distancePointToSegment(double px, double py, double ax, double ay, double bx, double by) {
-        double abx = bx - ax;
-        double aby = by - ay;
-        double apx = px - ax;
-        double apy = py - ay;
-        double ab2 = abx * abx + aby * aby;
-        if (ab2 <= 1e-9) return Math.sqrt((px - ax) * (px - ax) + (py - ay) * (py - ay));
-        double t = (apx * abx + apy * aby) / ab2;
-        t = clamp(t, 0.0, 1.0);
-        double cx = ax + t * abx;
-        double cy = ay + t * aby;
-        return Math.sqrt((px - cx) * (px - cx) + (py - cy) * (py - cy));
+    private static double nearestMateDistance(double x, double y, RobotArrays mates, int selfId) {
+        return Math.min(9.0, Math.sqrt(ScoreGrid.nearestDist2Excluding(mates, selfId, x, y)));
     }
 
     private static double dot(double[] w, double[] x) {
@@ -6,8 +6,42 @@ import world.WorldState;
 /**
  * Scores a candidate position for a specific robot.
  * Higher score means the robot would like to be there.
+ *
+ * A search scores hundreds of points for the same robot and frame, so it first calls
+ * {@link #prepare} and then only the returned {@link CellEvaluator}. Scorers that have per-frame
+ * work (ball prediction, goal coordinates, mark lookups, opponent scans) do it in prepare();
+ * {@link #prepared} builds such a scorer from its preparation alone.
  */
 @FunctionalInterface
 public interface PositionScorer {
     double score(WorldState world, Robot self, double x, double y, int teamSign);
+
+    /**
+     * Evaluator for the cells of one search by {@code self} in the current frame. It must return
+     * exactly what {@link #score} returns for the same point. The default calls score().
+     */
+    default CellEvaluator prepare(WorldState world, Robot self, int teamSign) {
+        return (x, y) -> score(world, self, x, y, teamSign);
+    }
+
+    /** Per-frame part of a scorer: everything that does not depend on the candidate point. */
+    @FunctionalInterface
+    interface Preparer {
+        CellEvaluator prepare(WorldState world, Robot self, int teamSign);
+    }
+
+    /** A scorer defined by its preparation; a single {@link #score} call prepares for that point. */
+    static PositionScorer prepared(Preparer preparer) {
+        return new PositionScorer() {
+            @Override
+            public double score(WorldState world, Robot self, double x, double y, int teamSign) {
+                return preparer.prepare(world, self, teamSign).score(x, y);
+            }
+
+            @Override
+            public CellEvaluator prepare(WorldState world, Robot self, int teamSign) {
+                return preparer.prepare(world, self, teamSign);
+            }
+        };
+    }
 }
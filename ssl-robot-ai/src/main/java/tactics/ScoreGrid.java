@@ -1,12 +1,15 @@
 package tactics;
 
+import java.util.Arrays;
 import java.util.List;
+import geom.Geometry;
 import ui.FieldConfig;
 import world.Robot;
+import world.RobotArrays;
 import world.WorldState;
 
 /**
- * Samples the field on a fixed grid and returns the best-scoring point.
+ * Samples the field on a lattice and returns the best-scoring point.
  *
  * This is intentionally lightweight: no path planning, just a position evaluation function.
  */
@@ -14,41 +17,362 @@ public final class ScoreGrid {
 
     private ScoreGrid() {}
 
+    // Coarse peaks refined further by findBestRefined.
+    private static final int REFINE_REGIONS = 3;
+
+    /**
+     * Multi-resolution position search: score a lattice twice as coarse as {@code step},
+     * keep the best few separated cells, and refine each by pattern search (probe the 8 neighbours,
+     * move to the best, halve the spacing) until the spacing is under 5 cm.
+     *
+     * For the steps we use (0.45-0.55 m) this makes fewer scorer calls than the uniform lattice and
+     * returns a point that is not snapped to the grid. All probes lie on a {@link SearchLattice}, so
+     * scorers backed by a {@link TeamRaster} of the same step can reuse team-level terms.
+     */
+    public static GridPoint findBestRefined(WorldState world,
+                                            Robot self,
+                                            int teamSign,
+                                            double step,
+                                            PositionScorer scorer) {
+        return findBestRefined(world, self, teamSign, step, scorer, null, null);
+    }
+
+    /**
+     * {@link #findBestRefined(WorldState, Robot, int, double, PositionScorer)} within {@code budget}
+     * (may be null): coarse columns are scored nearest the robot first, every
+     * {@link SearchBudget#coarseSkip()}-th sample, and the search returns its best point so far once
+     * the budget runs out. With an unlimited budget the result is the same as without one.
+     *
+     * {@code reuse} (may be null) is a target found earlier for a similar situation. It is re-scored
+     * and returned if it scores at least as well as the best coarse sample; the refinement is then
+     * skipped. Otherwise the search goes on as without it.
+     */
+    public static GridPoint findBestRefined(WorldState world,
+                                            Robot self,
+                                            int teamSign,
+                                            double step,
+                                            PositionScorer scorer,
+                                            SearchBudget budget,
+                                            GridPoint reuse) {
+        if (world == null || self == null || world.ball == null || scorer == null) {
+            return new GridPoint(self != null ? self.x : 0.0, self != null ? self.y : 0.0, Double.NEGATIVE_INFINITY);
+        }
+
+        SearchLattice lat = new SearchLattice(step);
+        world.refreshArrays();
+        if (budget != null) budget.startSearch();
+        CellEvaluator eval = scorer.prepare(world, self, teamSign);
+        int skip = (budget != null) ? budget.coarseSkip() : 1;
+
+        // --- Coarse pass: every skip-th sample; NaN = not scored ---
+        int nx = lat.nx;
+        int ny = lat.ny;
+        double[] cs = new double[nx * ny];
+        Arrays.fill(cs, Double.NaN);
+        int sx = (nx + skip - 1) / skip;
+        int sy = (ny + skip - 1) / skip;
+        double[] ys = new double[sy];
+        for (int k = 0; k < sy; k++) ys[k] = lat.y(k * skip * lat.stride);
+        double[] row = new double[sy];
+        int home = (int) Math.round((self.x - lat.x0) / (lat.coarse * skip));
+        int[] order = centerOut(home < 0 ? 0 : home >= sx ? sx - 1 : home, sx);
+        for (int k = 0; k < sx; k++) {
+            if (k > 0 && budget != null && budget.expired()) break;
+            int ix = order[k] * skip;
+            double x = lat.x(ix * lat.stride);
+            eval.scoreRow(x, ys, sy, row);
+            for (int r = 0; r < sy; r++) cs[ix * ny + r * skip] = row[r];
+        }
+
+        // --- Pick up to REFINE_REGIONS peaks, at least two samples apart ---
+        int[] picked = new int[REFINE_REGIONS];
+        int nPicked = 0;
+        while (nPicked < REFINE_REGIONS) {
+            int bestCell = -1;
+            for (int c = 0; c < cs.length; c++) {
+                if (Double.isNaN(cs[c])) continue;
+                if (bestCell >= 0 && !(cs[c] > cs[bestCell])) continue;
+                boolean nearPicked = false;
+                for (int p = 0; p < nPicked; p++) {
+                    int ddx = Math.abs(c / ny - picked[p] / ny);
+                    int ddy = Math.abs(c % ny - picked[p] % ny);
+                    if (ddx <= skip && ddy <= skip) {
+                        nearPicked = true;
+                        break;
+                    }
+                }
+                if (!nearPicked) bestCell = c;
+            }
+            if (bestCell < 0) break;
+            picked[nPicked++] = bestCell;
+        }
+        GridPoint kept = keepIfStillBest(eval, reuse, nPicked > 0 ? cs[picked[0]] : Double.NEGATIVE_INFINITY);
+        if (kept != null) {
+            if (budget != null) budget.endSearch();
+            return kept;
+        }
+
+        // --- Fine pass: pattern search around each peak, in fine-cell units ---
+        GridPoint best = new GridPoint(self.x, self.y, Double.NEGATIVE_INFINITY);
+        for (int p = 0; p < nPicked; p++) {
+            GridPoint g = patternSearch(lat, eval, (picked[p] / ny) * lat.stride, (picked[p] % ny) * lat.stride,
+                    cs[picked[p]], lat.stride * skip / 2, budget);
+            if (g.score > best.score) best = g;
+        }
+        if (budget != null) budget.endSearch();
+        return best;
+    }
+
+    /**
+     * {@link #findBestRefined} over the points proposed by {@code candidates} instead of the coarse
+     * lattice: score the candidates (tens instead of hundreds of points), keep the best few that are
+     * at least a coarse cell apart, and refine each by the same pattern search.
+     *
+     * Candidates are scored in the generator's priority order, so when {@code budget} (may be null)
+     * runs out the search refines the best of those scored so far.
+     *
+     * {@code reuse} (may be null) stands against the best candidate as in
+     * {@link #findBestRefined(WorldState, Robot, int, double, PositionScorer, SearchBudget, GridPoint)}.
+     *
+     * @param prevX robot's previous target x, or NaN (likewise prevY)
+     */
+    public static GridPoint findBestCandidates(WorldState world,
+                                               Robot self,
+                                               int teamSign,
+                                               PositionScorer scorer,
+                                               CandidateGenerator candidates,
+                                               double prevX,
+                                               double prevY,
+                                               SearchBudget budget,
+                                               GridPoint reuse) {
+        if (world == null || self == null || world.ball == null || scorer == null) {
+            return new GridPoint(self != null ? self.x : 0.0, self != null ? self.y : 0.0, Double.NEGATIVE_INFINITY);
+        }
+
+        SearchLattice lat = candidates.lat;
+        world.refreshArrays();
+        if (budget != null) budget.startSearch();
+        CellEvaluator eval = scorer.prepare(world, self, teamSign);
+        candidates.generate(world, self, prevX, prevY);
+
+        int n = candidates.count;
+        int[] ci = candidates.ci;
+        int[] cj = candidates.cj;
+        double[] cs = new double[n];
+        for (int c = 0; c < n; c++) {
+            if (c > 0 && budget != null && budget.expired()) {
+                n = c;
+                break;
+            }
+            cs[c] = eval.score(lat.x(ci[c]), lat.y(cj[c]));
+        }
+
+        // --- Pick up to REFINE_REGIONS peaks, more than a coarse cell apart ---
+        int[] picked = new int[REFINE_REGIONS];
+        int nPicked = 0;
+        while (nPicked < REFINE_REGIONS) {
+            int bestC = -1;
+            for (int c = 0; c < n; c++) {
+                if (bestC >= 0 && !(cs[c] > cs[bestC])) continue;
+                boolean nearPicked = false;
+                for (int p = 0; p < nPicked; p++) {
+                    if (Math.abs(ci[c] - ci[picked[p]]) <= lat.stride && Math.abs(cj[c] - cj[picked[p]]) <= lat.stride) {
+                        nearPicked = true;
+                        break;
+                    }
+                }
+                if (!nearPicked) bestC = c;
+            }
+            if (bestC < 0) break;
+            picked[nPicked++] = bestC;
+        }
+        GridPoint kept = keepIfStillBest(eval, reuse, nPicked > 0 ? cs[picked[0]] : Double.NEGATIVE_INFINITY);
+        if (kept != null) {
+            if (budget != null) budget.endSearch();
+            return kept;
+        }
+
+        GridPoint best = new GridPoint(self.x, self.y, Double.NEGATIVE_INFINITY);
+        for (int p = 0; p < nPicked; p++) {
+            GridPoint g = patternSearch(lat, eval, ci[picked[p]], cj[picked[p]], cs[picked[p]], lat.stride / 2, budget);
+            if (g.score > best.score) best = g;
+        }
+        if (budget != null) budget.endSearch();
+        return best;
+    }
+
+    /**
+     * Up to {@code k} separated peaks of one score field, for team-level target assignment: score the
+     * coarse lattice of {@link #findBestRefined} (columns nearest the ball first), repeatedly take
+     * the best sample at least {@code minSepM} from the peaks taken so far (non-maximum
+     * suppression), and refine each by the same pattern search. Peaks come out in the order taken,
+     * best coarse sample first; samples scoring NaN or infinity are never taken.
+     *
+     * Once {@code budget} (may be null) runs out the scan stops and the peaks come from the columns
+     * scored so far; a peak whose refinement would start after that is returned unrefined.
+     *
+     * The field belongs to no robot: {@code scorer} is prepared for null and must not read it (e.g.
+     * {@link TacticalScorers#attackOffBallTeam}). {@code field} holds the buffers.
+     */
+    public static GridPoint[] findPeaks(WorldState world,
+                                        int teamSign,
+                                        PositionScorer scorer,
+                                        PeakField field,
+                                        int k,
+                                        double minSepM,
+                                        SearchBudget budget) {
+        if (world == null || world.ball == null || scorer == null || k <= 0) {
+            return new GridPoint[0];
+        }
+
+        SearchLattice lat = field.lat;
+        world.refreshArrays();
+        if (budget != null) budget.startSearch();
+        CellEvaluator eval = scorer.prepare(world, null, teamSign);
+
+        int nx = lat.nx;
+        int ny = lat.ny;
+        double[] cs = field.cs;
+        double[] ys = field.ys;
+        double[] row = field.row;
+        Arrays.fill(cs, Double.NaN);
+        int home = (int) Math.round((world.ball.x - lat.x0) / lat.coarse);
+        int[] order = centerOut(home < 0 ? 0 : home >= nx ? nx - 1 : home, nx, field.order);
+        for (int c = 0; c < nx; c++) {
+            if (c > 0 && budget != null && budget.expired()) break;
+            int i = order[c];
+            double x = lat.x(i * lat.stride);
+            eval.scoreRow(x, ys, ny, row);
+            System.arraycopy(row, 0, cs, i * ny, ny);
+        }
+
+        double sep2 = minSepM * minSepM;
+        if (field.picked.length < k) field.picked = new int[k];
+        int[] picked = field.picked;
+        int nPicked = 0;
+        while (nPicked < k) {
+            int bestCell = -1;
+            for (int c = 0; c < cs.length; c++) {
+                if (!Double.isFinite(cs[c])) continue;
+                if (bestCell >= 0 && !(cs[c] > cs[bestCell])) continue;
+                double cx = lat.x((c / ny) * lat.stride);
+                double cy = lat.y((c % ny) * lat.stride);
+                boolean suppressed = false;
+                for (int p = 0; p < nPicked; p++) {
+                    double px = lat.x((picked[p] / ny) * lat.stride);
+                    double py = lat.y((picked[p] % ny) * lat.stride);
+                    if (dist2(cx, cy, px, py) < sep2) {
+                        suppressed = true;
+                        break;
+                    }
+                }
+                if (!suppressed) bestCell = c;
+            }
+            if (bestCell < 0) break;
+            picked[nPicked++] = bestCell;
+        }
+
+        GridPoint[] peaks = new GridPoint[nPicked];
+        for (int p = 0; p < nPicked; p++) {
+            int ci = (picked[p] / ny) * lat.stride;
+            int cj = (picked[p] % ny) * lat.stride;
+            GridPoint coarse = new GridPoint(lat.x(ci), lat.y(cj), cs[picked[p]]);
+            if (budget != null && budget.expired()) {
+                peaks[p] = coarse;
+                continue;
+            }
+            GridPoint g = patternSearch(lat, eval, ci, cj, cs[picked[p]], lat.stride / 2, budget);
+            peaks[p] = Double.isFinite(g.score) ? g : coarse;
+        }
+        if (budget != null) budget.endSearch();
+        return peaks;
+    }
+
     /**
-     * Find the best point on a grid.
+     * Local version of {@link #findBestRefined}: the pattern search alone, started from the fine
+     * cell nearest (x0, y0) with half a coarse cell of spacing. For a robot that already knows which
+     * region it goes to (an assigned peak) and only needs its own best point there.
      *
-     * @param step grid spacing in meters
+     * {@code reuse} (may be null) stands if it scores at least as well as the start cell.
      */
-    public static GridPoint findBest(WorldState world,
-                                     Robot self,
-                                     int teamSign,
-                                     double step,
-                                     PositionScorer scorer) {
+    public static GridPoint refineFrom(WorldState world,
+                                       Robot self,
+                                       int teamSign,
+                                       double step,
+                                       PositionScorer scorer,
+                                       double x0,
+                                       double y0,
+                                       SearchBudget budget,
+                                       GridPoint reuse) {
         if (world == null || self == null || world.ball == null || scorer == null) {
             return new GridPoint(self != null ? self.x : 0.0, self != null ? self.y : 0.0, Double.NEGATIVE_INFINITY);
         }
 
-        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
-        double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
-        double margin = FieldConfig.ROBOT_RADIUS_M + 0.06;
+        SearchLattice lat = new SearchLattice(step);
+        world.refreshArrays();
+        if (budget != null) budget.startSearch();
+        CellEvaluator eval = scorer.prepare(world, self, teamSign);
+        int ci = lat.snapI(x0);
+        int cj = lat.snapJ(y0);
+        double startScore = eval.score(lat.x(ci), lat.y(cj));
+        GridPoint best = keepIfStillBest(eval, reuse, startScore);
+        if (best == null) best = patternSearch(lat, eval, ci, cj, startScore, lat.stride / 2, budget);
+        if (budget != null) budget.endSearch();
+        return best;
+    }
 
-        double bestX = self.x;
-        double bestY = self.y;
-        double best = Double.NEGATIVE_INFINITY;
+    // The reused target re-scored, if it is still at least as good as firstPassBest (the best sample
+    // the search has so far); null if there is none or it lost.
+    private static GridPoint keepIfStillBest(CellEvaluator eval, GridPoint reuse, double firstPassBest) {
+        if (reuse == null) return null;
+        double s = eval.score(reuse.x, reuse.y);
+        return (s >= firstPassBest) ? new GridPoint(reuse.x, reuse.y, s) : null;
+    }
 
-        // Soft-focus search region: sample whole field, but give the scorer a chance to penalize far points.
-        for (double x = -halfL + margin; x <= halfL - margin; x += step) {
-            for (double y = -halfW + margin; y <= halfW - margin; y += step) {
-                double s = scorer.score(world, self, x, y, teamSign);
-                if (s > best) {
-                    best = s;
-                    bestX = x;
-                    bestY = y;
+    // Pattern search from fine cell (ci, cj) scoring cScore: probe the 8 neighbours at spacing h,
+    // move to the best, halve the spacing, down to one fine cell or until the budget runs out.
+    private static GridPoint patternSearch(SearchLattice lat, CellEvaluator eval, int ci, int cj, double cScore,
+                                           int h0, SearchBudget budget) {
+        for (int h = h0; h >= 1; h /= 2) {
+            if (budget != null && budget.expired()) break;
+            int nextI = ci;
+            int nextJ = cj;
+            double nextScore = cScore;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    int pi = lat.clampI(ci + dx * h);
+                    int pj = lat.clampJ(cj + dy * h);
+                    double s = eval.score(lat.x(pi), lat.y(pj));
+                    if (s > nextScore) {
+                        nextScore = s;
+                        nextI = pi;
+                        nextJ = pj;
+                    }
                 }
             }
+            ci = nextI;
+            cj = nextJ;
+            cScore = nextScore;
         }
+        return new GridPoint(lat.x(ci), lat.y(cj), cScore);
+    }
+
+    // 0..n-1 ordered by distance from home (home first, then alternately above and below).
+    private static int[] centerOut(int home, int n) {
+        return centerOut(home, n, new int[n]);
+    }
 
-        return new GridPoint(bestX, bestY, best);
+    // centerOut into order[0..n-1].
+    private static int[] centerOut(int home, int n, int[] order) {
+        int lo = home - 1;
+        int hi = home + 1;
+        order[0] = home;
+        for (int k = 1; k < n; k++) {
+            boolean up = (hi < n) && (lo < 0 || hi - home <= home - lo);
+            order[k] = up ? hi++ : lo--;
+        }
+        return order;
     }
 
     // --- helper utilities used by scorers ---
@@ -74,46 +398,50 @@ public final class ScoreGrid {
         return best;
     }
 
-    public static boolean segmentBlockedByOpponents(double ax, double ay,
-                                                    double bx, double by,
-                                                    List<Robot> opps,
-                                                    double dangerRadius) {
-        if (opps == null) return false;
-        double danger2 = dangerRadius * dangerRadius;
-        for (Robot o : opps) {
-            if (o == null) continue;
-            double[] p = closestPointOnSegment(ax, ay, bx, by, o.x, o.y);
-            double dx = o.x - p[0];
-            double dy = o.y - p[1];
-            if (dx * dx + dy * dy < danger2) return true;
+    /** Squared distance from (x, y) to the nearest robot in {@code team}, or +inf if empty. */
+    public static double nearestDist2(RobotArrays team, double x, double y) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < team.count; i++) {
+            double dx = team.x[i] - x;
+            double dy = team.y[i] - y;
+            double d2 = dx * dx + dy * dy;
+            if (d2 < best) best = d2;
         }
-        return false;
+        return best;
     }
 
-    public static double[] closestPointOnSegment(double ax, double ay,
-                                                 double bx, double by,
-                                                 double px, double py) {
-        double abx = bx - ax;
-        double aby = by - ay;
-        double apx = px - ax;
-        double apy = py - ay;
-
-        double ab2 = abx * abx + aby * aby;
-        if (ab2 <= 1e-9) {
-            return new double[] { ax, ay };
+    /** Same as {@link #nearestDist2(RobotArrays, double, double)} but ignores robot {@code excludeId}. */
+    public static double nearestDist2Excluding(RobotArrays team, int excludeId, double x, double y) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < team.count; i++) {
+            if (team.id[i] == excludeId) continue;
+            double dx = team.x[i] - x;
+            double dy = team.y[i] - y;
+            double d2 = dx * dx + dy * dy;
+            if (d2 < best) best = d2;
         }
+        return best;
+    }
+
+    /** Array version of {@link #segmentBlockedByOpponents(double, double, double, double, List, double)}. */
+    public static boolean segmentBlocked(double ax, double ay,
+                                         double bx, double by,
+                                         RobotArrays opps,
+                                         double dangerRadius) {
+        return Geometry.segmentBlocked(ax, ay, bx, by, opps, dangerRadius);
+    }
 
-        double t = (apx * abx + apy * aby) / ab2;
-        t = Math.max(0.0, Math.min(1.0, t));
-        return new double[] { ax + t * abx, ay + t * aby };
+    public static boolean segmentBlockedByOpponents(double ax, double ay,
+                                                    double bx, double by,
+                                                    List<Robot> opps,
+                                                    double dangerRadius) {
+        return Geometry.segmentBlocked(ax, ay, bx, by, opps, dangerRadius);
     }
 
-    /** Predict ball position after t seconds using current velocity (no acceleration). */
+    /** Predict ball position after t seconds under the simulator's friction ({@link WorldState#ballModel}). */
     public static double[] predictBallPos(WorldState world, double tSec) {
         if (world == null || world.ball == null) return new double[] { 0.0, 0.0 };
-        double x = world.ball.x + world.ball.vx * tSec;
-        double y = world.ball.y + world.ball.vy * tSec;
-        return new double[] { x, y };
+        return world.ballModel.positionAt(world.ball, tSec);
     }
 
     /**
@@ -137,15 +465,52 @@ public final class ScoreGrid {
         for (Robot o : opps) {
             if (o == null) continue;
             // Best intercept point is closest point on segment.
-            double[] p = closestPointOnSegment(ax, ay, bx, by, o.x, o.y);
-            double od = Math.sqrt(dist2(o.x, o.y, p[0], p[1]));
+            double t = Geometry.projectT(ax, ay, bx, by, o.x, o.y);
+            double px = ax + t * dx;
+            double py = ay + t * dy;
+            double od = Math.sqrt(dist2(o.x, o.y, px, py));
 
             // Estimate time for opponent to reach capture radius of that point.
             double need = Math.max(0.0, od - captureRadius);
             double tOpp = need / Math.max(0.1, oppMaxSpeed);
 
             // Estimate when ball arrives to that point (ratio along segment).
-            double along = Math.sqrt(dist2(ax, ay, p[0], p[1]));
+            double along = Math.sqrt(dist2(ax, ay, px, py));
+            double tBall = along / Math.max(0.1, ballSpeed);
+
+            if (tOpp < tBall && tBall <= travelTime + 1e-6) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Array version of {@link #passInterceptable(double, double, double, double, List, double, double, double)}. */
+    public static boolean passInterceptable(double ax, double ay,
+                                            double bx, double by,
+                                            RobotArrays opps,
+                                            double ballSpeed,
+                                            double oppMaxSpeed,
+                                            double captureRadius) {
+        if (opps.count == 0) return false;
+        double dx = bx - ax;
+        double dy = by - ay;
+        double dist = Math.sqrt(dx * dx + dy * dy);
+        if (dist < 1e-6) return false;
+        double travelTime = dist / Math.max(0.1, ballSpeed);
+
+        for (int i = 0; i < opps.count; i++) {
+            double ox = opps.x[i];
+            double oy = opps.y[i];
+            double t = Geometry.projectT(ax, ay, bx, by, ox, oy);
+            double px = ax + t * dx;
+            double py = ay + t * dy;
+            double od = Math.sqrt(dist2(ox, oy, px, py));
+
+            double need = Math.max(0.0, od - captureRadius);
+            double tOpp = need / Math.max(0.1, oppMaxSpeed);
+
+            double along = Math.sqrt(dist2(ax, ay, px, py));
             double tBall = along / Math.max(0.1, ballSpeed);
 
             if (tOpp < tBall && tBall <= travelTime + 1e-6) {
@@ -0,0 +1,156 @@
+package tactics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Opt-in instrumentation of the position scorers: per-term evaluation time and call counts, and
+ * each term's contribution to the cell a robot finally picked.
+ *
+ * Disabled (the default) a profile costs nothing per cell: scorers only check it in
+ * {@link PositionScorer#prepare}, and only then hand out timed evaluators. Enabled:
+ * - timed evaluators add the time of each term to its {@link Timer} (the two nanoTime calls
+ *   around a term are included, so compare terms with each other rather than with wall time);
+ * - the caller explains the winning cell of every search ({@link CellEvaluator#explain}) into
+ *   {@link #winner}, which keeps the latest breakdown per robot and sums contributions per term.
+ *
+ * A profile belongs to one match and is not thread-safe.
+ */
+public final class ScorerProfile {
+
+    /** Time and call count of one term. The timed evaluator owning it adds to the fields directly. */
+    public static final class Timer {
+        public long calls;
+        public long nanos;
+    }
+
+    /** Breakdown of the cell one robot picked in one search; terms in the order they were reported. */
+    public final class Winner implements CellEvaluator.TermSink {
+        public final int robotId;
+        public final long tick;
+        public final double x;
+        public final double y;
+        public final List<String> names = new ArrayList<>();
+        public final List<Double> values = new ArrayList<>();
+
+        private Winner(int robotId, long tick, double x, double y) {
+            this.robotId = robotId;
+            this.tick = tick;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public void term(String name, double value) {
+            names.add(name);
+            values.add(value);
+            Term t = ScorerProfile.this.term(name);
+            t.winners++;
+            t.contribution += value;
+            t.absContribution += Math.abs(value);
+        }
+
+        public double total() {
+            double s = 0.0;
+            for (double v : values) s += v;
+            return s;
+        }
+    }
+
+    private static final class Term {
+        final Timer timer = new Timer();
+        long winners;
+        double contribution;
+        double absContribution;
+    }
+
+    private volatile boolean enabled;
+    private final Map<String, Term> terms = new LinkedHashMap<>();
+    private final Map<Integer, Winner> lastWinner = new TreeMap<>();
+    private long searches;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /** Timer of term {@code name}; scorers look it up once per search, in prepare(). */
+    public Timer timer(String name) {
+        return term(name).timer;
+    }
+
+    /** Start the breakdown of the cell (x, y) that {@code robotId} picked; pass it to explain(). */
+    public Winner winner(int robotId, long tick, double x, double y) {
+        Winner w = new Winner(robotId, tick, x, y);
+        lastWinner.put(robotId, w);
+        searches++;
+        return w;
+    }
+
+    /** Latest breakdown per robot id. */
+    public List<Winner> lastWinners() {
+        return new ArrayList<>(lastWinner.values());
+    }
+
+    /** One line per robot: its latest pick, total score and the {@code maxTerms} largest terms. */
+    public List<String> winnerLines(int maxTerms) {
+        List<String> out = new ArrayList<>();
+        for (Winner w : lastWinner.values()) {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < w.values.size(); i++) order.add(i);
+            order.sort((a, b) -> Double.compare(Math.abs(w.values.get(b)), Math.abs(w.values.get(a))));
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("#%d (%.2f, %.2f) %.2f:", w.robotId, w.x, w.y, w.total()));
+            for (int k = 0; k < Math.min(maxTerms, order.size()); k++) {
+                int i = order.get(k);
+                sb.append(String.format(" %s %+.2f", w.names.get(i), w.values.get(i)));
+            }
+            out.add(sb.toString());
+        }
+        return out;
+    }
+
+    /** Forget all timings and contributions. */
+    public void reset() {
+        terms.clear();
+        lastWinner.clear();
+        searches = 0;
+    }
+
+    /**
+     * Per-term table: calls, total and per-call time, share of the timed total, and mean (signed and
+     * absolute) contribution to the winning cells. Terms are sorted by total time, untimed ones last.
+     */
+    public List<String> report() {
+        List<Map.Entry<String, Term>> rows = new ArrayList<>(terms.entrySet());
+        rows.sort((a, b) -> Long.compare(b.getValue().timer.nanos, a.getValue().timer.nanos));
+        long timed = 0;
+        for (Map.Entry<String, Term> e : rows) timed += e.getValue().timer.nanos;
+
+        List<String> out = new ArrayList<>();
+        out.add(String.format("scorer profile: %d searches", searches));
+        out.add(String.format("%-18s %12s %10s %8s %6s %10s %10s",
+                "term", "calls", "ms", "ns/call", "time%", "mean", "mean|.|"));
+        for (Map.Entry<String, Term> e : rows) {
+            Term t = e.getValue();
+            double ms = t.timer.nanos / 1e6;
+            double perCall = (t.timer.calls > 0) ? (double) t.timer.nanos / t.timer.calls : 0.0;
+            double share = (timed > 0) ? 100.0 * t.timer.nanos / timed : 0.0;
+            double mean = (t.winners > 0) ? t.contribution / t.winners : 0.0;
+            double meanAbs = (t.winners > 0) ? t.absContribution / t.winners : 0.0;
+            out.add(String.format("%-18s %12d %10.1f %8.1f %6.1f %10.3f %10.3f",
+                    e.getKey(), t.timer.calls, ms, perCall, share, mean, meanAbs));
+        }
+        return out;
+    }
+
+    private Term term(String name) {
+        return terms.computeIfAbsent(name, k -> new Term());
+    }
+}
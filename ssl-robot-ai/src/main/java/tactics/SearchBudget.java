@@ -0,0 +1,123 @@
+package tactics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-tick compute budget shared by all position searches of one match.
+ *
+ * Only time spent inside {@link ScoreGrid} searches counts. Once a tick's searches have used the
+ * budget, the running search stops evaluating and returns its best point so far; the searches
+ * still to come in that tick return after their first evaluations. Searches evaluate in priority
+ * order (coarse columns nearest the robot first, the likeliest candidates first) so a cut search
+ * still has the important part.
+ *
+ * After a tick that ran out, the next searches sample the coarse lattice more sparsely
+ * ({@link #coarseSkip()} doubles, up to {@link #MAX_SKIP}); after a tick that used less than a
+ * quarter of the budget it halves again. Sparse samples stay on the same lattice, so
+ * {@link TeamRaster} terms remain shared.
+ *
+ * The deadline is wall-clock time, so a limited budget makes matches depend on machine speed.
+ * The default budget is unlimited: searches are still timed for the report, but never cut, so runs
+ * stay reproducible from their seed.
+ */
+public final class SearchBudget {
+    public static final int MAX_SKIP = 4;
+
+    private long budgetNanos;     // <= 0: unlimited
+
+    // Current tick.
+    private long spentNanos;
+    private long searchStart;
+    private boolean cut;
+    private boolean searchCut;
+
+    // Adaptation and report.
+    private int coarseSkip = 1;
+    private long ticks;
+    private long overruns;
+    private long cutSearches;
+    private long lastSpentNanos;
+    private long maxSpentNanos;
+
+    /** Unlimited budget. */
+    public SearchBudget() {
+        this(0L);
+    }
+
+    public SearchBudget(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+    }
+
+    public boolean isLimited() {
+        return budgetNanos > 0;
+    }
+
+    /** Search time allowed per tick; zero or less means unlimited. */
+    public void setBudgetNanos(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+        if (budgetNanos <= 0) coarseSkip = 1;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /** Coarse samples the next searches step over per lattice sample (1 = every sample). */
+    public int coarseSkip() {
+        return coarseSkip;
+    }
+
+    /** Close the previous tick (count an overrun, adapt the sampling) and start a new one. */
+    public void beginTick() {
+        if (isLimited() && ticks > 0) {
+            if (cut) {
+                overruns++;
+                if (coarseSkip < MAX_SKIP) coarseSkip *= 2;
+            } else if (spentNanos < budgetNanos / 4 && coarseSkip > 1) {
+                coarseSkip /= 2;
+            }
+        }
+        lastSpentNanos = spentNanos;
+        if (spentNanos > maxSpentNanos) maxSpentNanos = spentNanos;
+        ticks++;
+        spentNanos = 0;
+        cut = false;
+    }
+
+    void startSearch() {
+        searchStart = System.nanoTime();
+        searchCut = false;
+    }
+
+    /** Whether the running search must stop; once true it stays true for the rest of the tick. */
+    boolean expired() {
+        if (!isLimited()) return false;
+        if (!cut && spentNanos + (System.nanoTime() - searchStart) <= budgetNanos) return false;
+        cut = true;
+        if (!searchCut) {
+            searchCut = true;
+            cutSearches++;
+        }
+        return true;
+    }
+
+    void endSearch() {
+        spentNanos += System.nanoTime() - searchStart;
+    }
+
+    public long overruns() {
+        return overruns;
+    }
+
+    /** Summary: budget, ticks, ticks that ran out, searches cut short, search time, current skip. */
+    public List<String> report() {
+        List<String> out = new ArrayList<>();
+        out.add(String.format("search budget: %s per tick, %d ticks, %d overruns, %d searches cut",
+                isLimited() ? String.format("%.2f ms", budgetNanos / 1e6) : "unlimited",
+                ticks, overruns, cutSearches));
+        out.add(String.format("search time: last %.2f ms, max %.2f ms, coarse skip %d",
+                lastSpentNanos / 1e6, maxSpentNanos / 1e6, coarseSkip));
+        return out;
+    }
+}
@@ -0,0 +1,114 @@
+package tactics;
+
+import ui.FieldConfig;
+
+/**
+ * The point lattice visited by {@link ScoreGrid#findBestRefined} for one step size.
+ *
+ * Coarse samples are {@code stride} fine cells apart and every refinement probe lands on a fine
+ * cell, so all candidate points are {@code x0 + i * fine}, {@code y0 + j * fine} for integer i, j.
+ * Computing coordinates only through {@link #x(int)}/{@link #y(int)} makes the same cell produce
+ * the same double for every robot, which lets {@link TeamRaster} share terms between searches.
+ */
+final class SearchLattice {
+    // Coarse lattice = step * this; refinement stops once the probe spacing is below the precision.
+    static final double COARSE_FACTOR = 2.0;
+    static final double PRECISION_M = 0.05;
+
+    final double coarse;
+    final double fine;
+    final int stride;  // fine cells per coarse cell (power of two)
+    final int nx;      // coarse samples along x
+    final int ny;      // coarse samples along y
+    final double x0;
+    final double y0;
+    // Fine index range that stays inside the field margins.
+    final int iMin;
+    final int iMax;
+    final int jMin;
+    final int jMax;
+
+    SearchLattice(double step) {
+        double halfL = FieldConfig.FIELD_LENGTH_M / 2.0;
+        double halfW = FieldConfig.FIELD_WIDTH_M / 2.0;
+        double margin = FieldConfig.ROBOT_RADIUS_M + 0.06;
+        double minX = -halfL + margin;
+        double maxX = halfL - margin;
+        double minY = -halfW + margin;
+        double maxY = halfW - margin;
+
+        coarse = step * COARSE_FACTOR;
+        int levels = 1;
+        for (double h = coarse / 2.0; h > PRECISION_M; h /= 2.0) levels++;
+        stride = 1 << levels;
+        fine = coarse / stride;
+
+        // Coarse lattice centered in the field.
+        nx = (int) ((maxX - minX) / coarse) + 1;
+        ny = (int) ((maxY - minY) / coarse) + 1;
+        x0 = minX + ((maxX - minX) - (nx - 1) * coarse) / 2.0;
+        y0 = minY + ((maxY - minY) - (ny - 1) * coarse) / 2.0;
+
+        iMin = (int) Math.ceil((minX - x0) / fine);
+        iMax = (int) Math.floor((maxX - x0) / fine);
+        jMin = (int) Math.ceil((minY - y0) / fine);
+        jMax = (int) Math.floor((maxY - y0) / fine);
+    }
+
+    double x(int i) {
+        return x0 + i * fine;
+    }
+
+    double y(int j) {
+        return y0 + j * fine;
+    }
+
+    /** Fine cells inside the margins. */
+    int cells() {
+        return (iMax - iMin + 1) * (jMax - jMin + 1);
+    }
+
+    /** Index of the fine cell at exactly (x, y), or -1 when (x, y) is not a lattice point. */
+    int cell(double x, double y) {
+        long i = Math.round((x - x0) / fine);
+        long j = Math.round((y - y0) / fine);
+        if (i < iMin || i > iMax || j < jMin || j > jMax) return -1;
+        if (x((int) i) != x || y((int) j) != y) return -1;
+        return index((int) i, (int) j);
+    }
+
+    /** Index of the fine cell (i, j); i and j must lie inside the margins. */
+    int index(int i, int j) {
+        return (i - iMin) * (jMax - jMin + 1) + (j - jMin);
+    }
+
+    /** Fine column of the coarse sample nearest to x. */
+    int snapCoarseI(double x) {
+        int k = (int) Math.round((x - x0) / coarse);
+        return Math.max(0, Math.min(nx - 1, k)) * stride;
+    }
+
+    /** Fine row of the coarse sample nearest to y. */
+    int snapCoarseJ(double y) {
+        int k = (int) Math.round((y - y0) / coarse);
+        return Math.max(0, Math.min(ny - 1, k)) * stride;
+    }
+
+    /** Fine column nearest to x, inside the margins. */
+    int snapI(double x) {
+        return clampI((int) Math.round((x - x0) / fine));
+    }
+
+    /** Fine row nearest to y, inside the margins. */
+    int snapJ(double y) {
+        return clampJ((int) Math.round((y - y0) / fine));
+    }
+
+    int clampI(int i) {
+        return Math.max(iMin, Math.min(iMax, i));
+    }
+
+    int clampJ(int j) {
+        return Math.max(jMin, Math.min(jMax, j));
+    }
+}
@@ -0,0 +1,227 @@
+package tactics;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import world.Ball;
+import world.Robot;
+import world.WorldState;
+
+/**
+ * Targets chosen in earlier ticks, keyed by a quantized picture of the situation, so a situation
+ * that comes back (the kickoff formation after every goal, a goalkeeper holding the ball, a
+ * contest that stalls) can start from the earlier answer instead of refining a new one.
+ *
+ * A situation is hashed once per team frame and tick by {@link #begin}: the ball's cell and
+ * velocity bucket, every robot's id and cell, and who has the ball. Entries are per situation,
+ * robot and search kind (a caller-chosen small int: which search, plus any flags that change its
+ * scorer). Keys are 64-bit hashes and are not checked against the full situation.
+ *
+ * Inputs of one search that the picture misses go into its key as well: see {@link #inputs}, for
+ * the search's {@link TeamRaster} reference state and the point that seeds it (for attack
+ * searches the robot's previous target). The key still leaves out exact positions and learned
+ * weights, so a hit is only a suggestion: callers hand it to the search as {@code reuse}, which
+ * keeps it only if it still scores at least as well as the best sample of the search's coarse
+ * pass, and otherwise searches as usual (see {@link ScoreGrid#findBestRefined}). Store what the
+ * search returned.
+ *
+ * With these keys about one lookup in fifty hits, mostly while nobody moves (kickoff waits, a
+ * goalkeeper holding the ball), so the saving is small; an earlier key without the search inputs
+ * hit one lookup in seven and held play in loops. Keep it an experiment switch.
+ *
+ * Memory is bounded: beyond the capacity the least recently used entry is dropped. A capacity of 0
+ * disables the cache (lookups miss without being counted, nothing is stored).
+ *
+ * Not thread-safe; one cache per match.
+ */
+public final class SituationCache {
+    /** Kinds used by the simulation; callers may add flag bits above {@link #KIND_BITS}. */
+    public static final int KIND_REQUESTED_PASS = 0;
+    public static final int KIND_ATTACK = 1;
+    public static final int KIND_DEFENSE = 2;
+    public static final int KIND_BITS = 4;
+
+    private int capacity;
+    private final double cellM;
+    private final double speedBucketMps;
+    private final LinkedHashMap<Long, GridPoint> entries;
+
+    // Situation hash of each world passed to begin() (the field frame and red's mirrored frame).
+    private final List<WorldState> frames = new ArrayList<>(2);
+    private final List<Long> frameHashes = new ArrayList<>(2);
+
+    private long hits;
+    private long misses;
+    private long overturned;
+    private long evictions;
+
+    /**
+     * @param capacity       entries kept before the least recently used one is dropped
+     * @param cellM          robot and ball cell size
+     * @param speedBucketMps ball velocity bucket, per component
+     */
+    public SituationCache(int capacity, double cellM, double speedBucketMps) {
+        this.capacity = capacity;
+        this.cellM = cellM;
+        this.speedBucketMps = speedBucketMps;
+        this.entries = new LinkedHashMap<Long, GridPoint>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, GridPoint> eldest) {
+                if (size() <= SituationCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    /** Entries kept before eviction; 0 disables the cache. Shrinking drops the least recently used. */
+    public void setCapacity(int entries) {
+        capacity = Math.max(0, entries);
+        Iterator<Long> it = this.entries.keySet().iterator();
+        while (this.entries.size() > capacity && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Hash the situation of {@code world} as it is now; later lookups in the same world use it until
+     * the next begin() for that world.
+     *
+     * @param ballOwnerId   robot holding the ball, -1 if none
+     * @param ballOwnerTeam +1 if it is "ours" in this world, -1 if theirs, 0 if nobody's
+     */
+    public void begin(WorldState world, int ballOwnerId, int ballOwnerTeam) {
+        if (!isEnabled()) return;
+        long h = 0x2545F4914F6CDD1DL;
+        Ball ball = world.ball;
+        if (ball != null) {
+            h = mix(h, cell(ball.x));
+            h = mix(h, cell(ball.y));
+            h = mix(h, Math.round(ball.vx / speedBucketMps));
+            h = mix(h, Math.round(ball.vy / speedBucketMps));
+        }
+        h = mix(h, ballOwnerId);
+        h = mix(h, ballOwnerTeam);
+        h = mixTeam(h, world.ourRobots);
+        h = mix(h, -1);
+        h = mixTeam(h, world.oppRobots);
+
+        int k = frames.indexOf(world);
+        if (k < 0) {
+            frames.add(world);
+            frameHashes.add(h);
+        } else {
+            frameHashes.set(k, h);
+        }
+    }
+
+    /**
+     * Key part for the inputs of one search beyond the situation: the reference state of the
+     * {@code raster} it reads (may be null) and the point (seedX, seedY) it starts from (NaN if none).
+     */
+    public static long inputs(TeamRaster raster, double seedX, double seedY) {
+        long h = mix(0L, (raster != null) ? raster.referenceVersion() : -1);
+        h = mix(h, Double.doubleToLongBits(seedX));
+        return mix(h, Double.doubleToLongBits(seedY));
+    }
+
+    /** Target cached for this robot and kind in the current situation of {@code world}, or null. */
+    public GridPoint get(WorldState world, int robotId, int kind) {
+        return get(world, robotId, kind, 0L);
+    }
+
+    /** {@link #get(WorldState, int, int)} for a search whose other {@link #inputs} are {@code inputs}. */
+    public GridPoint get(WorldState world, int robotId, int kind, long inputs) {
+        if (!isEnabled()) return null;
+        int k = frames.indexOf(world);
+        if (k < 0) return null;
+        GridPoint p = entries.get(key(frameHashes.get(k), robotId, kind, inputs));
+        if (p != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return p;
+    }
+
+    /**
+     * Remember {@code target} for this robot and kind in the current situation of {@code world}.
+     * Replacing a different target counts as a hit the search overturned.
+     */
+    public void put(WorldState world, int robotId, int kind, GridPoint target) {
+        put(world, robotId, kind, 0L, target);
+    }
+
+    /** {@link #put(WorldState, int, int, GridPoint)} for a search whose other {@link #inputs} are {@code inputs}. */
+    public void put(WorldState world, int robotId, int kind, long inputs, GridPoint target) {
+        if (!isEnabled()) return;
+        int k = frames.indexOf(world);
+        if (k < 0 || target == null) return;
+        GridPoint old = entries.put(key(frameHashes.get(k), robotId, kind, inputs), target);
+        if (old != null && (old.x != target.x || old.y != target.y)) overturned++;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    public long misses() {
+        return misses;
+    }
+
+    /** Hits whose target the search did not keep. */
+    public long overturned() {
+        return overturned;
+    }
+
+    /** Hits over lookups, 0 before the first lookup. */
+    public double hitRate() {
+        long n = hits + misses;
+        return (n > 0) ? (double) hits / n : 0.0;
+    }
+
+    /** Summary: lookups, hit rate, overturned hits, entries in use and dropped. */
+    public List<String> report() {
+        List<String> out = new ArrayList<>();
+        out.add(String.format("situation cache: %d lookups, %d hits (%.1f%%), %d overturned, %d/%d entries, %d evicted",
+                hits + misses, hits, 100.0 * hitRate(), overturned, entries.size(), capacity, evictions));
+        return out;
+    }
+
+    private long cell(double v) {
+        return (long) Math.floor(v / cellM);
+    }
+
+    private long mixTeam(long h, List<Robot> team) {
+        for (Robot r : team) {
+            h = mix(h, r.id);
+            h = mix(h, cell(r.x));
+            h = mix(h, cell(r.y));
+        }
+        return h;
+    }
+
+    private static long key(long situation, int robotId, int kind, long inputs) {
+        return mix(mix(mix(situation, robotId), kind), inputs);
+    }
+
+    // One round of a splitmix64-style mixer over (h, v).
+    private static long mix(long h, long v) {
+        long z = h + 0x9E3779B97F4A7C15L + v;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
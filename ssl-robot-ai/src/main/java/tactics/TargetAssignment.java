@@ -0,0 +1,97 @@
+package tactics;
+
+import java.util.Arrays;
+
+/**
+ * Minimum-cost assignment of robots to targets (Hungarian method, O(rows^2 * cols)).
+ *
+ * Used once per team and tick for a handful of robots and peaks, so it allocates freely.
+ */
+public final class TargetAssignment {
+
+    private TargetAssignment() {}
+
+    /**
+     * Column assigned to each row of {@code cost} (rows x cols, rows <= cols) such that the total
+     * cost is minimal and no column is used twice.
+     *
+     * @throws IllegalArgumentException if a row is shorter than the first, or an entry is NaN or
+     *                                  infinite (the augmenting search would never terminate)
+     */
+    public static int[] solve(double[][] cost) {
+        return solve(cost, cost.length, (cost.length > 0) ? cost[0].length : 0);
+    }
+
+    /**
+     * {@link #solve(double[][])} over the top-left {@code rows x cols} of {@code cost}, so callers can
+     * keep one matrix large enough for every tick.
+     */
+    public static int[] solve(double[][] cost, int rows, int cols) {
+        int n = rows;
+        if (n == 0) return new int[0];
+        int m = cols;
+        if (m < n) throw new IllegalArgumentException("fewer targets (" + m + ") than robots (" + n + ")");
+        for (int i = 0; i < n; i++) {
+            if (cost[i].length < m) throw new IllegalArgumentException("row " + i + " has " + cost[i].length + " of " + m + " costs");
+            for (int j = 0; j < m; j++) {
+                if (!Double.isFinite(cost[i][j])) {
+                    throw new IllegalArgumentException("cost[" + i + "][" + j + "] is " + cost[i][j]);
+                }
+            }
+        }
+
+        // Potentials and matching, 1-based; column 0 is the virtual start of each augmenting path.
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] rowOf = new int[m + 1];
+        int[] way = new int[m + 1];
+        double[] minv = new double[m + 1];
+        boolean[] used = new boolean[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            rowOf[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = rowOf[j0];
+                double delta = Double.POSITIVE_INFINITY;
+                int j1 = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (used[j]) continue;
+                    double cur = cost[i0 - 1][j - 1] - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[rowOf[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (rowOf[j0] != 0);
+            // Flip the augmenting path back to the start.
+            do {
+                int j1 = way[j0];
+                rowOf[j0] = rowOf[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] colOf = new int[n];
+        for (int j = 1; j <= m; j++) {
+            if (rowOf[j] != 0) colOf[rowOf[j] - 1] = j - 1;
+        }
+        return colOf;
+    }
+}
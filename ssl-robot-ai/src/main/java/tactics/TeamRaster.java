@@ -0,0 +1,551 @@
+package tactics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import geom.Geometry;
+import geom.LaneShadow;
+import ui.FieldConfig;
+import world.RobotArrays;
+import world.WorldState;
+
+/**
+ * Team-level score terms shared by every off-ball search of one team, kept across ticks.
+ *
+ * Most of what the tactical scorers compute at a candidate point does not depend on which robot
+ * is asking: distance to the nearest opponent, whether the shot to goal is blocked, whether a pass
+ * from the ball is interceptable, and which teammates have a clear lane to the point. This raster
+ * caches those per {@link SearchLattice} cell, so the first search to touch a cell fills it and
+ * later searches only add their own self-dependent terms (teammate spacing, move cost, marks).
+ *
+ * Robots move a few centimetres per tick, so cells are not thrown away every tick. {@link #begin}
+ * keeps a reference position per robot and only moves it once the robot has drifted more than
+ * {@link #MOVE_TOLERANCE_M}. Each cached term remembers the opponent that decided it (the first
+ * blocker of a lane or shot, the nearest opponent), so when a cell is next looked up only the
+ * terms touched by robots that moved since it was filled are redone: a term is recomputed when its
+ * deciding opponent (or the teammate a lane starts from) moved, and otherwise only checked against
+ * the new positions of the opponents that moved. Every {@link #FULL_REFRESH_PASSES} passes all
+ * cells are refilled from scratch, which bounds how stale a reference position can get.
+ *
+ * The raster also carries an {@link ArrivalField} per team, sampled by the terms that depend on
+ * the asking robot (spacing from teammates) and, before the interception term scans opponents, to
+ * rule out cells no opponent can reach in time. These use the exact positions at {@link #begin}: the
+ * engine moves each robot right after its decision, so later searches of the same pass see
+ * teammates at most one tick ahead of the field.
+ *
+ * Lane and shot blockers are looked up through a {@link LaneShadow} per teammate and one from the
+ * goal, rebuilt when a reference position moves, so only opponents whose shadow covers the cell
+ * get the segment test.
+ *
+ * All terms are evaluated on the reference positions. Points that are not on the lattice fall
+ * back to direct evaluation on the same positions.
+ *
+ * Lookups belong to one thread. {@link #fillCoarse} is the exception: it brings the coarse cells up
+ * to date on a fork/join pool before the pass's searches. A cell's terms only depend on the cell and
+ * the references, so the result is the same as filling each cell on its first lookup.
+ */
+public final class TeamRaster {
+    // Shared with the scorers: same radii as the original per-robot terms.
+    static final double PASS_BLOCK_RADIUS_M = 0.30;
+    static final double SHOT_BLOCK_RADIUS_M = 0.35;
+
+    /**
+     * A robot or the ball counts as moved once it is this far from its reference position. Same as
+     * the precision the search refines to: smaller moves would not change the chosen point.
+     */
+    public static final double MOVE_TOLERANCE_M = SearchLattice.PRECISION_M;
+    /** Change of the assumed pass speed that invalidates the interception term. */
+    static final double PASS_SPEED_TOLERANCE_MPS = 0.05;
+    /** Straight-line robot speed of the arrival fields' time model, and of interceptors. */
+    public static final double ROBOT_SPEED_MPS = 1.55;
+    // How close an interceptor has to get to the pass lane.
+    static final double INTERCEPT_CAPTURE_M = 0.18;
+    /** Passes between full refreshes (one pass per tick in the engine). */
+    public static final int FULL_REFRESH_PASSES = 30;
+
+    // Deciding opponents are stored as bytes and shadowed as bit masks; -1 = none.
+    private static final int MAX_OPPS = LaneShadow.MAX_OPPS;
+    private static final byte NONE = -1;
+
+    private final double step;
+    private final SearchLattice lat;
+    private final int cells;
+    private final double moveTolerance;
+    private final double passSpeedTolerance;
+
+    // Reference positions; every cached term is computed from these.
+    private final RobotArrays mates = new RobotArrays();
+    private final RobotArrays opps = new RobotArrays();
+    private int teamSign = +1;
+    private double ballX;
+    private double ballY;
+    private double assumedPassSpeed;
+
+    // Current positions, compared against the references in begin().
+    private final RobotArrays curMates = new RobotArrays();
+    private final RobotArrays curOpps = new RobotArrays();
+
+    // Pass counter and the pass at which each reference last changed.
+    private int version = 0;
+    private int fullVersion = -1;     // cells filled before this are refilled from scratch
+    private int interceptFrom = -1;   // interception cells filled before this are stale
+    private int[] mateMoved = new int[8];
+    private int[] oppMoved = new int[8];
+    private boolean anyOppMoved;      // since the previous pass
+    private boolean anyMateMoved;
+    private int referenceVersion;     // bumped whenever a reference changes
+
+    // Shadows of the reference opponents on lanes from each teammate and on shots at goal.
+    private LaneShadow[] laneShadows = new LaneShadow[0];
+    private final LaneShadow shotShadow = new LaneShadow();
+
+    // Both teams as of begin(), refilled every pass.
+    private final ArrivalField mateArrival;
+    private final ArrivalField oppArrival;
+
+    // Per cell; 0 = never filled.
+    private final int[] cellVersion;
+    private final double[] oppDist;
+    private final byte[] nearestOpp;   // opps slot at oppDist
+    private final byte[] shotBlocker;  // first opps slot blocking the shot from the cell
+    private byte[] laneBlocker;        // [cell * laneStride + m]: first opps slot blocking mate m -> cell
+    private int laneStride;
+    private final int[] interceptStamp;
+    private final boolean[] interceptable;
+
+    // Last cellOf() lookup.
+    private double lastX = Double.NaN;
+    private double lastY = Double.NaN;
+    private int lastCell = -1;
+
+    public TeamRaster(double step) {
+        this(step, MOVE_TOLERANCE_M, PASS_SPEED_TOLERANCE_MPS);
+    }
+
+    /**
+     * Raster whose references move once a robot or the ball drifts more than {@code moveTolerance}
+     * (or the assumed pass speed changes by more than {@code passSpeedTolerance}). With both at 0
+     * every term matches a fresh fill of the current positions.
+     */
+    TeamRaster(double step, double moveTolerance, double passSpeedTolerance) {
+        this.step = step;
+        this.moveTolerance = moveTolerance;
+        this.passSpeedTolerance = passSpeedTolerance;
+        this.lat = new SearchLattice(step);
+        this.cells = lat.cells();
+        cellVersion = new int[cells];
+        oppDist = new double[cells];
+        nearestOpp = new byte[cells];
+        shotBlocker = new byte[cells];
+        laneStride = 0;
+        laneBlocker = new byte[0];
+        interceptStamp = new int[cells];
+        interceptable = new boolean[cells];
+        mateArrival = new ArrivalField(lat);
+        oppArrival = new ArrivalField(lat);
+    }
+
+    /** Search step this raster is laid out for (pass the same step to the search). */
+    public double step() {
+        return step;
+    }
+
+    /** Start a new decision pass for the team that is "ours" in {@code world}. */
+    public void begin(WorldState world, int teamSign) {
+        version++;
+        if (version == Integer.MAX_VALUE) {
+            Arrays.fill(cellVersion, 0);
+            Arrays.fill(interceptStamp, 0);
+            version = 1;
+            fullVersion = -1;
+        }
+
+        lastX = Double.NaN;
+        curMates.load(world.ourRobots);
+        curOpps.load(world.oppRobots);
+        mateArrival.begin(world.ourRobots, ROBOT_SPEED_MPS);
+        oppArrival.begin(world.oppRobots, ROBOT_SPEED_MPS);
+        double ballSpeed = Math.sqrt(world.ball.vx * world.ball.vx + world.ball.vy * world.ball.vy);
+        double passSpeed = assumedPassSpeed(ballSpeed);
+
+        boolean full = fullVersion < 0
+                || version - fullVersion >= FULL_REFRESH_PASSES
+                || teamSign != this.teamSign
+                || !sameRoster(curMates, mates)
+                || !sameRoster(curOpps, opps);
+        if (full) {
+            fullRefresh(world, teamSign, passSpeed);
+            updateShadows();
+            return;
+        }
+
+        anyMateMoved = updateReferences(curMates, mates, mateMoved);
+        anyOppMoved = updateReferences(curOpps, opps, oppMoved);
+        double bdx = world.ball.x - ballX;
+        double bdy = world.ball.y - ballY;
+        boolean ballMoved = bdx * bdx + bdy * bdy > moveTolerance * moveTolerance
+                || Math.abs(passSpeed - assumedPassSpeed) > passSpeedTolerance;
+        if (ballMoved) {
+            ballX = world.ball.x;
+            ballY = world.ball.y;
+            assumedPassSpeed = passSpeed;
+        }
+        if (ballMoved || anyOppMoved) interceptFrom = version;
+        if (anyMateMoved || anyOppMoved) updateShadows();
+        if (ballMoved || anyMateMoved || anyOppMoved) referenceVersion++;
+    }
+
+    /**
+     * Changes whenever the reference positions, pass speed, team side or roster change, so two
+     * passes with the same value see the same reference-based terms (everything but the arrival
+     * fields, which follow the current positions).
+     */
+    public int referenceVersion() {
+        return referenceVersion;
+    }
+
+    /** Arrival field of this team ("ours" in the world passed to {@link #begin}) for the current pass. */
+    public ArrivalField mateArrival() {
+        return mateArrival;
+    }
+
+    /** Arrival field of the opponents for the current pass. */
+    public ArrivalField oppArrival() {
+        return oppArrival;
+    }
+
+    /** Distance to the nearest teammate other than {@code selfId} as of begin() (+inf if none). */
+    double mateDist(int selfId, double x, double y) {
+        return mateArrival.distExcluding(cellOf(x, y), selfId, x, y);
+    }
+
+    /** Distance to the nearest opponent as of begin() (+inf if none). */
+    double currentOppDist(double x, double y) {
+        return oppArrival.dist(cellOf(x, y), x, y);
+    }
+
+    /** Distance to the nearest opponent (9 m when there is none). */
+    double oppDist(double x, double y) {
+        int c = cellOf(x, y);
+        if (c < 0) return oppDist(opps, x, y);
+        reconcile(c, x, y);
+        return oppDist[c];
+    }
+
+    /** Whether opponents block a shot from (x, y) to the centre of the goal we attack. */
+    boolean shotBlocked(double x, double y) {
+        int c = cellOf(x, y);
+        if (c < 0) return shotBlocked(opps, teamSign, x, y);
+        reconcile(c, x, y);
+        return shotBlocker[c] != NONE;
+    }
+
+    /** Number of teammates other than {@code selfId} with a clear pass lane to (x, y). */
+    int openPassLanes(int selfId, double x, double y) {
+        int c = cellOf(x, y);
+        if (c < 0) return openPassLanes(mates, opps, selfId, x, y);
+        reconcile(c, x, y);
+        int base = c * laneStride;
+        int n = 0;
+        for (int m = 0; m < mates.count; m++) {
+            if (mates.id[m] == selfId) continue;
+            if (laneBlocker[base + m] == NONE) n++;
+        }
+        return n;
+    }
+
+    /** Whether a pass from the ball to (x, y) looks interceptable. */
+    boolean passInterceptable(double x, double y) {
+        int c = cellOf(x, y);
+        if (c < 0) return passInterceptable(opps, ballX, ballY, assumedPassSpeed, x, y);
+        return interceptable(c, x, y);
+    }
+
+    private boolean interceptable(int c, double x, double y) {
+        if (interceptStamp[c] < interceptFrom || interceptStamp[c] == 0) {
+            interceptable[c] = !interceptOutOfReach(c, x, y)
+                    && passInterceptable(opps, ballX, ballY, assumedPassSpeed, x, y);
+            interceptStamp[c] = version;
+        }
+        return interceptable[c];
+    }
+
+    // True when no opponent can intercept a pass from the ball to (x, y), read off the opponents'
+    // arrival time at (x, y). An opponent that reaches the lane s metres from the ball before the
+    // ball does is within capture + s * v_opp / v_ball of that point, so within
+    // capture + len * max(1, v_opp / v_ball) of (x, y). The field follows the current positions,
+    // which are within the move tolerance of the references the scan uses.
+    private boolean interceptOutOfReach(int c, double x, double y) {
+        double len = Math.sqrt(ScoreGrid.dist2(ballX, ballY, x, y));
+        double ratio = ROBOT_SPEED_MPS / Math.max(0.1, assumedPassSpeed);
+        double reach = INTERCEPT_CAPTURE_M + moveTolerance + len * Math.max(1.0, ratio) + 1e-9;
+        return oppArrival.time(c, x, y) >= reach / ROBOT_SPEED_MPS;
+    }
+
+    // Coarse columns filled by one fork/join leaf task.
+    private static final int FILL_LEAF_COLUMNS = 2;
+
+    /**
+     * Bring every coarse cell (the samples of a coarse search pass, see {@link SearchLattice}) up to
+     * date for the current pass, with the columns split over {@code pool}: the reference terms, the
+     * teammate arrival field and, if {@code interception} is set, the interception term with the
+     * opponent arrival field it reads. Call after {@link #begin} and before the pass's searches,
+     * never while one is running. Later lookups of these cells are reads.
+     */
+    public void fillCoarse(ForkJoinPool pool, boolean interception) {
+        if (opps.count > MAX_OPPS) return; // cells are not cached, see cellOf()
+        pool.invoke(new FillTask(0, lat.nx, interception));
+    }
+
+    private final class FillTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L; // never serialized; keeps -Xlint:serial quiet
+
+        private final int k0;
+        private final int k1;
+        private final boolean interception;
+
+        FillTask(int k0, int k1, boolean interception) {
+            this.k0 = k0;
+            this.k1 = k1;
+            this.interception = interception;
+        }
+
+        @Override
+        protected void compute() {
+            if (k1 - k0 <= FILL_LEAF_COLUMNS) {
+                fillColumns(k0, k1, interception);
+                return;
+            }
+            int mid = (k0 + k1) >>> 1;
+            invokeAll(new FillTask(k0, mid, interception), new FillTask(mid, k1, interception));
+        }
+    }
+
+    // Coarse columns [k0, k1). Each cell is written by one task only; shared state is only read.
+    private void fillColumns(int k0, int k1, boolean interception) {
+        for (int k = k0; k < k1; k++) {
+            int i = k * lat.stride;
+            double x = lat.x(i);
+            for (int l = 0; l < lat.ny; l++) {
+                int j = l * lat.stride;
+                double y = lat.y(j);
+                int c = lat.index(i, j);
+                reconcile(c, x, y);
+                if (interception) interceptable(c, x, y);
+                mateArrival.dist(c, x, y);
+            }
+        }
+    }
+
+    private void fullRefresh(WorldState world, int teamSign, double passSpeed) {
+        this.teamSign = teamSign;
+        mates.load(world.ourRobots);
+        opps.load(world.oppRobots);
+        ballX = world.ball.x;
+        ballY = world.ball.y;
+        assumedPassSpeed = passSpeed;
+        if (mateMoved.length < mates.count) mateMoved = new int[mates.count];
+        if (oppMoved.length < opps.count) oppMoved = new int[opps.count];
+        Arrays.fill(mateMoved, version);
+        Arrays.fill(oppMoved, version);
+        if (laneStride < mates.count) {
+            laneStride = mates.count;
+            laneBlocker = new byte[cells * laneStride];
+        }
+        fullVersion = version;
+        interceptFrom = version;
+        referenceVersion++;
+        anyMateMoved = true;
+        anyOppMoved = true;
+    }
+
+    // Each shadow only rebuilds if its origin or an opponent reference moved.
+    private void updateShadows() {
+        if (laneShadows.length < mates.count) {
+            int old = laneShadows.length;
+            laneShadows = Arrays.copyOf(laneShadows, mates.count);
+            for (int m = old; m < laneShadows.length; m++) laneShadows[m] = new LaneShadow();
+        }
+        for (int m = 0; m < mates.count; m++) {
+            laneShadows[m].update(mates.x[m], mates.y[m], opps, PASS_BLOCK_RADIUS_M);
+        }
+        shotShadow.update(theirGoalX(teamSign), 0.0, opps, SHOT_BLOCK_RADIUS_M);
+    }
+
+    // Move references of robots that drifted past the tolerance; true if any moved.
+    private boolean updateReferences(RobotArrays cur, RobotArrays ref, int[] moved) {
+        boolean any = false;
+        double tol2 = moveTolerance * moveTolerance;
+        for (int i = 0; i < cur.count; i++) {
+            double dx = cur.x[i] - ref.x[i];
+            double dy = cur.y[i] - ref.y[i];
+            if (dx * dx + dy * dy > tol2) {
+                ref.x[i] = cur.x[i];
+                ref.y[i] = cur.y[i];
+                moved[i] = version;
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    private static boolean sameRoster(RobotArrays a, RobotArrays b) {
+        if (a.count != b.count) return false;
+        for (int i = 0; i < a.count; i++) {
+            if (a.id[i] != b.id[i]) return false;
+        }
+        return true;
+    }
+
+    // Bring cell c up to date with the current references.
+    private void reconcile(int c, double x, double y) {
+        int since = cellVersion[c];
+        if (since == version) return;
+        int base = c * laneStride;
+        double goalX = theirGoalX(teamSign);
+        if (since < fullVersion || since == 0) {
+            fillNearest(c, x, y);
+            shotBlocker[c] = firstShotBlocker(x, y, goalX, -1L);
+            for (int m = 0; m < mates.count; m++) {
+                laneBlocker[base + m] = firstLaneBlocker(m, x, y, -1L);
+            }
+            cellVersion[c] = version;
+            return;
+        }
+
+        boolean recentOnly = since == version - 1;
+        if (anyOppMoved || !recentOnly) {
+            if (oppMoved[nearestOpp[c]] > since) {
+                fillNearest(c, x, y);
+            }
+            int shot = shotBlocker[c];
+            if (shot != NONE && oppMoved[shot] > since) {
+                shotBlocker[c] = firstShotBlocker(x, y, goalX, -1L);
+            }
+            for (int m = 0; m < mates.count; m++) {
+                int lane = laneBlocker[base + m];
+                if (lane != NONE && oppMoved[lane] > since && mateMoved[m] <= since) {
+                    laneBlocker[base + m] = firstLaneBlocker(m, x, y, -1L);
+                }
+            }
+            // Opponents that moved can only add blockers or come closer where nothing else decides.
+            long moved = 0L;
+            for (int k = 0; k < opps.count; k++) {
+                if (oppMoved[k] <= since) continue;
+                moved |= 1L << k;
+                double dx = opps.x[k] - x;
+                double dy = opps.y[k] - y;
+                double d = Math.sqrt(dx * dx + dy * dy);
+                if (d < oppDist[c]) {
+                    oppDist[c] = d;
+                    nearestOpp[c] = (byte) k;
+                }
+            }
+            if (shotBlocker[c] == NONE) {
+                shotBlocker[c] = firstShotBlocker(x, y, goalX, moved);
+            }
+            for (int m = 0; m < mates.count; m++) {
+                if (laneBlocker[base + m] == NONE && mateMoved[m] <= since) {
+                    laneBlocker[base + m] = firstLaneBlocker(m, x, y, moved);
+                }
+            }
+        }
+        if (anyMateMoved || !recentOnly) {
+            for (int m = 0; m < mates.count; m++) {
+                if (mateMoved[m] <= since) continue;
+                laneBlocker[base + m] = firstLaneBlocker(m, x, y, -1L);
+            }
+        }
+        cellVersion[c] = version;
+    }
+
+    private void fillNearest(int c, double x, double y) {
+        double best = Double.POSITIVE_INFINITY;
+        int slot = 0;
+        for (int k = 0; k < opps.count; k++) {
+            double dx = opps.x[k] - x;
+            double dy = opps.y[k] - y;
+            double d2 = dx * dx + dy * dy;
+            if (d2 < best) {
+                best = d2;
+                slot = k;
+            }
+        }
+        oppDist[c] = (best == Double.POSITIVE_INFINITY) ? 9.0 : Math.sqrt(best);
+        nearestOpp[c] = (byte) slot;
+    }
+
+    // First opponent among {@code slots} blocking the lane from mate m to (x, y), in slot order
+    // (like ScoreGrid.segmentBlocked), or NONE. Only opponents in the mate's shadow are tested.
+    private byte firstLaneBlocker(int m, double x, double y, long slots) {
+        long cand = laneShadows[m].candidates(x, y) & slots;
+        return firstBlocker(mates.x[m], mates.y[m], x, y, PASS_BLOCK_RADIUS_M, cand);
+    }
+
+    // Same for the shot from (x, y) to the goal centre.
+    private byte firstShotBlocker(double x, double y, double goalX, long slots) {
+        long cand = shotShadow.candidates(x, y) & slots;
+        return firstBlocker(x, y, goalX, 0.0, SHOT_BLOCK_RADIUS_M, cand);
+    }
+
+    private byte firstBlocker(double ax, double ay, double bx, double by, double r, long cand) {
+        while (cand != 0) {
+            int k = Long.numberOfTrailingZeros(cand);
+            if (nearSegment(ax, ay, bx, by, opps.x[k], opps.y[k], r)) return (byte) k;
+            cand &= cand - 1;
+        }
+        return NONE;
+    }
+
+    // Same test as Geometry.segmentBlocked for a single opponent.
+    private static boolean nearSegment(double ax, double ay, double bx, double by,
+                                       double ox, double oy, double r) {
+        return Geometry.distToSegment2(ox, oy, ax, ay, bx, by) < r * r;
+    }
+
+    // Cell index of a lattice point, or -1 when (x, y) is not exactly on the lattice
+    // (or there are more opponents than the masks hold).
+    private int cellOf(double x, double y) {
+        // A scorer asks for several terms at the same point in a row.
+        if (x == lastX && y == lastY) return lastCell;
+        int c = (opps.count <= MAX_OPPS) ? lat.cell(x, y) : -1;
+        lastX = x;
+        lastY = y;
+        lastCell = c;
+        return c;
+    }
+
+    private static double theirGoalX(int teamSign) {
+        return (teamSign == +1) ? FieldConfig.FIELD_LENGTH_M / 2.0 : -FieldConfig.FIELD_LENGTH_M / 2.0;
+    }
+
+    // --- Direct evaluation (also used by scorers that run without a raster) ---
+
+    static double oppDist(RobotArrays opps, double x, double y) {
+        double d2 = ScoreGrid.nearestDist2(opps, x, y);
+        return (d2 == Double.POSITIVE_INFINITY) ? 9.0 : Math.sqrt(d2);
+    }
+
+    static boolean shotBlocked(RobotArrays opps, int teamSign, double x, double y) {
+        return ScoreGrid.segmentBlocked(x, y, theirGoalX(teamSign), 0.0, opps, SHOT_BLOCK_RADIUS_M);
+    }
+
+    static int openPassLanes(RobotArrays mates, RobotArrays opps, int selfId, double x, double y) {
+        int n = 0;
+        for (int i = 0; i < mates.count; i++) {
+            if (mates.id[i] == selfId) continue;
+            // If the line r -> (x,y) is not blocked, it's a valid option.
+            if (!ScoreGrid.segmentBlocked(mates.x[i], mates.y[i], x, y, opps, PASS_BLOCK_RADIUS_M)) n++;
+        }
+        return n;
+    }
+
+    static boolean passInterceptable(RobotArrays opps, double ballX, double ballY, double passSpeed, double x, double y) {
+        return ScoreGrid.passInterceptable(ballX, ballY, x, y, opps, passSpeed, ROBOT_SPEED_MPS, INTERCEPT_CAPTURE_M);
+    }
+
+    // Motion-aware pass speed: if the ball is currently slow, interceptions are easier.
+    static double assumedPassSpeed(double ballSpeed) {
+        return Math.max(1.2, ballSpeed * 0.9 + 1.2);
+    }
+}
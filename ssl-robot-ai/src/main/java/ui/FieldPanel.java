@@ -73,6 +73,44 @@ public class FieldPanel extends JPanel {
 
         // ----- Scoreboard (top-center) -----
         drawScoreboard(g2);
+
+        // ----- Debug: scorer profile (top-left, only while profiling) -----
+        drawDebugLines(g2, "getScorerProfileLines", false);
+
+        // ----- Debug: search budget (bottom-left, only with a limited budget) -----
+        drawDebugLines(g2, "getSearchBudgetLines", true);
+    }
+
+    // Text block from a sim.Main hook returning String[] (null = nothing to show), top- or bottom-left.
+    private void drawDebugLines(Graphics2D g2, String hook, boolean bottom) {
+        try {
+            Class<?> main = Class.forName("sim.Main");
+            java.lang.reflect.Method m = main.getMethod(hook);
+            Object o = m.invoke(null);
+            if (!(o instanceof String[])) return;
+            String[] lines = (String[]) o;
+            if (lines.length == 0) return;
+
+            Font base = g2.getFont();
+            g2.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+            FontMetrics fm = g2.getFontMetrics();
+            int tw = 0;
+            for (String line : lines) tw = Math.max(tw, fm.stringWidth(line));
+            int lh = fm.getHeight();
+            int bh = lh * lines.length + 8;
+            int x = 8;
+            int y = bottom ? getHeight() - 8 - bh : 8;
+
+            g2.setColor(new Color(0, 0, 0, 150));
+            g2.fillRect(x, y, tw + 12, bh);
+            g2.setColor(Color.WHITE);
+            for (int i = 0; i < lines.length; i++) {
+                g2.drawString(lines[i], x + 6, y + 4 + fm.getAscent() + i * lh);
+            }
+            g2.setFont(base);
+        } catch (Throwable ignored) {
+            // No-op
+        }
     }
 
     private void drawScoreboard(Graphics2D g2) {
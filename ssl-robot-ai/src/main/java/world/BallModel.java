@@ -0,0 +1,189 @@
+package world;
+
+/**
+ * Closed-form ball motion matching the simulator's integrator.
+ *
+ * Each tick the ball moves {@code v * dt} and then {@code v *= damping}, so after k ticks:
+ * <pre>
+ *   v_k = v0 * d^k
+ *   s_k = v0 * dt * (1 - d^k) / (1 - d)
+ * </pre>
+ * Queries take time in seconds and use k = t / dt, which is exact on tick boundaries. The ball
+ * travels in a straight line until it hits a robot or a wall; those are not modelled here.
+ */
+public final class BallModel {
+    /** Friction as tuned for the original 60 Hz loop: velocity *= 0.98 per 1/60 s tick. */
+    public static final double DAMPING_PER_60HZ_TICK = 0.98;
+
+    /** Model of the default 60 Hz simulation. */
+    public static final BallModel DEFAULT = new BallModel(1.0 / 60.0);
+
+    public final double dt;
+    public final double damping;      // per tick
+    private final double logDamping;  // ln(damping)
+    private final double stopFactor;  // dt / (1 - damping): stopping distance per m/s
+
+    public BallModel(double dt) {
+        this.dt = dt;
+        this.damping = Math.pow(DAMPING_PER_60HZ_TICK, dt / (1.0 / 60.0));
+        this.logDamping = Math.log(damping);
+        this.stopFactor = dt / (1.0 - damping);
+    }
+
+    /** Speed after t seconds for launch speed v0. */
+    public double speedAt(double v0, double tSec) {
+        return v0 * decay(tSec);
+    }
+
+    /** Distance rolled after t seconds for launch speed v0. */
+    public double distanceAt(double v0, double tSec) {
+        return v0 * stopFactor * (1.0 - decay(tSec));
+    }
+
+    /** Total distance until the ball stops. */
+    public double stopDistance(double v0) {
+        return v0 * stopFactor;
+    }
+
+    /** Seconds until the ball has rolled {@code dist}, or +inf if it stops short of it. */
+    public double timeToDistance(double v0, double dist) {
+        if (dist <= 0.0) return 0.0;
+        if (v0 <= 1e-9) return Double.POSITIVE_INFINITY;
+        double rest = 1.0 - dist / (v0 * stopFactor);
+        if (rest <= 0.0) return Double.POSITIVE_INFINITY;
+        return Math.log(rest) / logDamping * dt;
+    }
+
+    /** Ball position after t seconds, as {x, y}. */
+    public double[] positionAt(Ball ball, double tSec) {
+        double f = stopFactor * (1.0 - decay(tSec));
+        return new double[] { ball.x + ball.vx * f, ball.y + ball.vy * f };
+    }
+
+    /** Where the ball comes to rest, as {x, y}. */
+    public double[] stopPoint(Ball ball) {
+        return new double[] { ball.x + ball.vx * stopFactor, ball.y + ball.vy * stopFactor };
+    }
+
+    /**
+     * Earliest time a robot at (rx, ry) moving at up to {@code robotSpeed} can get within
+     * {@code reach} of the ball, assuming it heads straight for the meeting point.
+     *
+     * Over the distance s the ball has rolled, the slack f(s) = |ball - robot| - reach - speed * t(s)
+     * falls while the ball approaches the robot's foot point on the path. Past it, f' is concave
+     * (the distance term is concave and, since ball speed is linear in s, t'(s) is convex), so f
+     * falls, rises and falls again at most once each. The turning points come from bisecting the
+     * monotone f'' and f', and the first piece whose end reaches f &lt;= 0 is bisected for the root;
+     * a window narrower than any sampling step is still found.
+     */
+    public double interceptTime(Ball ball, double rx, double ry, double robotSpeed, double reach) {
+        double v0 = Math.sqrt(ball.vx * ball.vx + ball.vy * ball.vy);
+        double speed = Math.max(1e-6, robotSpeed);
+        if (interceptSlack(ball, rx, ry, speed, reach, 0.0) <= 0.0) return 0.0;
+
+        double[] stop = stopPoint(ball);
+        double sdx = stop[0] - rx;
+        double sdy = stop[1] - ry;
+        double stopTime = Math.max(0.0, Math.sqrt(sdx * sdx + sdy * sdy) - reach) / speed;
+        if (v0 <= 1e-9) return stopTime;
+
+        // Path coordinates: the robot's foot point is a metres along the path, b metres off it.
+        double ux = ball.vx / v0;
+        double uy = ball.vy / v0;
+        double a = (rx - ball.x) * ux + (ry - ball.y) * uy;
+        double b = (rx - ball.x) * uy - (ry - ball.y) * ux;
+        double total = stopDistance(v0);
+        double timeScale = -dt / logDamping; // t(s) = timeScale * -ln(1 - s / total)
+
+        // Pieces of [0, total): f falls on [0, p], rises on [p, q], falls on [q, total).
+        double p = total;
+        double q = total;
+        double s0 = Math.max(0.0, a);
+        if (s0 < total) {
+            double m = s0;
+            if (slackD2(s0, a, b, total, timeScale, speed) > 0.0) {
+                double lo = s0;
+                double hi = total;
+                for (int k = 0; k < ROOT_STEPS; k++) {
+                    double mid = 0.5 * (lo + hi);
+                    if (slackD2(mid, a, b, total, timeScale, speed) > 0.0) lo = mid; else hi = mid;
+                }
+                m = lo;
+            }
+            if (slackD1(m, a, b, total, timeScale, speed) > 0.0) {
+                p = s0;
+                if (slackD1(s0, a, b, total, timeScale, speed) < 0.0) {
+                    double lo = s0;
+                    double hi = m;
+                    for (int k = 0; k < ROOT_STEPS; k++) {
+                        double mid = 0.5 * (lo + hi);
+                        if (slackD1(mid, a, b, total, timeScale, speed) < 0.0) lo = mid; else hi = mid;
+                    }
+                    p = hi;
+                }
+                double lo = m;
+                double hi = total;
+                for (int k = 0; k < ROOT_STEPS; k++) {
+                    double mid = 0.5 * (lo + hi);
+                    if (slackD1(mid, a, b, total, timeScale, speed) > 0.0) lo = mid; else hi = mid;
+                }
+                q = lo;
+            }
+        }
+
+        // f is monotone on the piece chosen, so bisect it in time.
+        double tLo;
+        double tHi;
+        double tp = timeToDistance(v0, p);
+        if (p < total && interceptSlack(ball, rx, ry, speed, reach, tp) <= 0.0) {
+            tLo = 0.0;
+            tHi = tp;
+        } else {
+            tLo = (q < total) ? timeToDistance(v0, q) : 0.0;
+            if (!(tLo < Double.POSITIVE_INFINITY)) tLo = 0.0;
+            // By then the robot has covered any distance the ball can put between them.
+            double dx0 = ball.x - rx;
+            double dy0 = ball.y - ry;
+            tHi = Math.max(tLo, (Math.sqrt(dx0 * dx0 + dy0 * dy0) + total) / speed);
+        }
+        for (int k = 0; k < ROOT_STEPS; k++) {
+            double mid = 0.5 * (tLo + tHi);
+            if (interceptSlack(ball, rx, ry, speed, reach, mid) <= 0.0) tHi = mid; else tLo = mid;
+        }
+        return tHi;
+    }
+
+    // Bisection steps of interceptTime: halves each bracket down to double precision.
+    private static final int ROOT_STEPS = 64;
+
+    // f'(s) of interceptTime's slack, in path coordinates.
+    private static double slackD1(double s, double a, double b, double total, double timeScale, double speed) {
+        double h = Math.sqrt((s - a) * (s - a) + b * b);
+        double dist = (h > 0.0) ? (s - a) / h : 1.0;
+        return dist - speed * timeScale / (total - s);
+    }
+
+    // f''(s); decreasing for s >= a.
+    private static double slackD2(double s, double a, double b, double total, double timeScale, double speed) {
+        double h = Math.sqrt((s - a) * (s - a) + b * b);
+        double dist = (h > 0.0) ? b * b / (h * h * h) : 0.0;
+        return dist - speed * timeScale / ((total - s) * (total - s));
+    }
+
+    // Robot travel still needed at time t (<= 0: the robot is there in time).
+    private double interceptSlack(Ball ball, double rx, double ry,
+                                  double speed, double reach, double tSec) {
+        double f = stopFactor * (1.0 - decay(tSec));
+        double bx = ball.x + ball.vx * f;
+        double by = ball.y + ball.vy * f;
+        double dx = bx - rx;
+        double dy = by - ry;
+        return Math.sqrt(dx * dx + dy * dy) - reach - speed * tSec;
+    }
+
+    // d^(t/dt)
+    private double decay(double tSec) {
+        if (tSec <= 0.0) return 1.0;
+        return Math.exp(logDamping * (tSec / dt));
+    }
+}
@@ -4,6 +4,8 @@ public class Robot {
     public int id;
     public double x, y;
     public double orientation;
+    // Velocity applied on the last tick (m/s). Zero until the robot first moves.
+    public double vx, vy;
 
     public Robot(int id, double x, double y, double orientation) {
         this.id = id;
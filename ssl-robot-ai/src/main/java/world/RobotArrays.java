@@ -0,0 +1,77 @@
+package world;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One team's robots as parallel primitive arrays (structure-of-arrays).
+ *
+ * Scoring loops run over every candidate cell, so they read these contiguous arrays instead of
+ * chasing {@code List<Robot>} entries.
+ *
+ * This is a read-only cache, not the world: the {@link Robot}s in {@link WorldState}'s lists stay
+ * the source of truth, physics and behaviors read and write those, and nothing reads these arrays
+ * back into them. A copy is only as fresh as its last {@link #load(List)} (for the world's arrays,
+ * {@link WorldState#refreshArrays()}); writing to it changes nothing else.
+ */
+public final class RobotArrays {
+    public int count;
+    public int[] id = new int[8];
+    public double[] x = new double[8];
+    public double[] y = new double[8];
+    public double[] vx = new double[8];
+    public double[] vy = new double[8];
+    public double[] orientation = new double[8];
+
+    // robotId -> slot, -1 when the id is not on this team.
+    private int[] slotById = new int[32];
+
+    public RobotArrays() {
+        Arrays.fill(slotById, -1);
+    }
+
+    /** Copy positions/velocities from {@code robots}, skipping null entries. */
+    public void load(List<Robot> robots) {
+        for (int i = 0; i < count; i++) {
+            if (id[i] >= 0 && id[i] < slotById.length) slotById[id[i]] = -1;
+        }
+        count = 0;
+        if (robots == null) return;
+
+        int n = robots.size();
+        if (n > x.length) grow(n);
+        for (Robot r : robots) {
+            if (r == null) continue;
+            int i = count++;
+            id[i] = r.id;
+            x[i] = r.x;
+            y[i] = r.y;
+            vx[i] = r.vx;
+            vy[i] = r.vy;
+            orientation[i] = r.orientation;
+            if (r.id >= 0) {
+                if (r.id >= slotById.length) {
+                    int old = slotById.length;
+                    slotById = Arrays.copyOf(slotById, Math.max(r.id + 1, old * 2));
+                    Arrays.fill(slotById, old, slotById.length, -1);
+                }
+                slotById[r.id] = i;
+            }
+        }
+    }
+
+    /** Slot of a robot id in these arrays, or -1 if it is not on this team. */
+    public int slotOf(int robotId) {
+        if (robotId < 0 || robotId >= slotById.length) return -1;
+        return slotById[robotId];
+    }
+
+    private void grow(int n) {
+        id = Arrays.copyOf(id, n);
+        x = Arrays.copyOf(x, n);
+        y = Arrays.copyOf(y, n);
+        vx = Arrays.copyOf(vx, n);
+        vy = Arrays.copyOf(vy, n);
+        orientation = Arrays.copyOf(orientation, n);
+    }
+}
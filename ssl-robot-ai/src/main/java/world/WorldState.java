@@ -8,6 +8,27 @@ public class WorldState {
     public List<Robot> oppRobots = new ArrayList<>();
     public Ball ball;
 
+    // Ball friction of the simulation driving this world (the engine sets it to match its dt).
+    public BallModel ballModel = BallModel.DEFAULT;
+
     public double fieldLength;
     public double fieldWidth;
-}
\ No newline at end of file
+
+    // Read-only copies of ourRobots/oppRobots for hot scoring loops (see RobotArrays). They go stale
+    // as soon as a robot moves or the lists change, until the next refreshArrays().
+    public final RobotArrays ourArrays = new RobotArrays();
+    public final RobotArrays oppArrays = new RobotArrays();
+
+    /**
+     * Re-snapshot both teams into {@link #ourArrays}/{@link #oppArrays}.
+     *
+     * Call it before reading the arrays whenever robots may have moved since the last call. Every
+     * ScoreGrid search and every public PositionLearning entry point does so first, so scorers and
+     * evaluators running inside them can read the arrays directly; code reading the arrays (or
+     * calling an evaluator) outside those must refresh first.
+     */
+    public void refreshArrays() {
+        ourArrays.load(ourRobots);
+        oppArrays.load(oppRobots);
+    }
+}
@@ -0,0 +1,101 @@
+package geom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import world.Robot;
+import world.RobotArrays;
+
+/**
+ * Runnable check: {@link Geometry}'s segment helpers against naive references (the closest point
+ * found by sampling the segment, and per-robot loops), and the list overloads against the
+ * {@link RobotArrays} ones.
+ *
+ * Exits nonzero on the first mismatch: {@code java -cp out geom.GeometryCheck}
+ */
+public final class GeometryCheck {
+    private static final int SAMPLES = 4000;
+
+    private GeometryCheck() {}
+
+    public static void main(String[] args) {
+        SplittableRandom rng = new SplittableRandom(2);
+        int cases = 0;
+        for (int c = 0; c < 2000; c++) {
+            double ax = rng.nextDouble(-5.0, 5.0);
+            double ay = rng.nextDouble(-4.0, 4.0);
+            double bx;
+            double by;
+            if (c % 10 == 0) {
+                // Degenerate segments: both ends in the same place.
+                bx = ax;
+                by = ay;
+            } else {
+                bx = rng.nextDouble(-5.0, 5.0);
+                by = rng.nextDouble(-4.0, 4.0);
+            }
+            double px = rng.nextDouble(-6.0, 6.0);
+            double py = rng.nextDouble(-5.0, 5.0);
+            pointToSegment(ax, ay, bx, by, px, py);
+            teams(rng, ax, ay, bx, by);
+            cases++;
+        }
+        System.out.println("GeometryCheck: " + cases + " segments OK");
+    }
+
+    private static void pointToSegment(double ax, double ay, double bx, double by, double px, double py) {
+        double d2 = Geometry.distToSegment2(px, py, ax, ay, bx, by);
+        check(Math.abs(Geometry.distToSegment(px, py, ax, ay, bx, by) - Math.sqrt(d2)) < 1e-12, "distToSegment != sqrt(distToSegment2)");
+
+        double t = Geometry.projectT(ax, ay, bx, by, px, py);
+        check(t >= 0.0 && t <= 1.0, "projectT out of [0, 1]: " + t);
+        double cx = ax + t * (bx - ax);
+        double cy = ay + t * (by - ay);
+        check(Math.abs(Geometry.dist2(px, py, cx, cy) - d2) < 1e-9, "projectT point is not the closest point");
+
+        // Sampled minimum: never below the exact one, and at most one sample spacing above it.
+        double best = Double.POSITIVE_INFINITY;
+        for (int s = 0; s <= SAMPLES; s++) {
+            double u = (double) s / SAMPLES;
+            best = Math.min(best, Geometry.dist2(px, py, ax + u * (bx - ax), ay + u * (by - ay)));
+        }
+        double len = Math.sqrt(Geometry.dist2(ax, ay, bx, by));
+        double d = Math.sqrt(d2);
+        check(d <= Math.sqrt(best) + 1e-9, "distToSegment " + d + " above the sampled minimum " + Math.sqrt(best));
+        check(Math.sqrt(best) - d <= len / SAMPLES + 1e-9, "distToSegment " + d + " far below the sampled minimum " + Math.sqrt(best));
+    }
+
+    private static void teams(SplittableRandom rng, double ax, double ay, double bx, double by) {
+        int n = rng.nextInt(0, 12);
+        List<Robot> robots = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            robots.add(new Robot(i, rng.nextDouble(-5.0, 5.0), rng.nextDouble(-4.0, 4.0), 0.0));
+            if (rng.nextInt(6) == 0) robots.add(null);
+        }
+        RobotArrays team = new RobotArrays();
+        team.load(robots);
+
+        double naive = Double.POSITIVE_INFINITY;
+        for (Robot r : robots) {
+            if (r != null) naive = Math.min(naive, Geometry.distToSegment2(r.x, r.y, ax, ay, bx, by));
+        }
+        same(Geometry.segmentClearance2(ax, ay, bx, by, team), naive, "segmentClearance2(arrays)");
+        same(Geometry.segmentClearance2(ax, ay, bx, by, robots), naive, "segmentClearance2(list)");
+        double cap = rng.nextDouble(0.1, 2.0);
+        same(Geometry.segmentClearance(ax, ay, bx, by, team, cap), Math.min(Math.sqrt(naive), cap), "segmentClearance(arrays)");
+        same(Geometry.segmentClearance(ax, ay, bx, by, robots, cap), Math.min(Math.sqrt(naive), cap), "segmentClearance(list)");
+
+        double radius = rng.nextDouble(0.05, 1.0);
+        boolean blocked = naive < radius * radius;
+        check(Geometry.segmentBlocked(ax, ay, bx, by, team, radius) == blocked, "segmentBlocked(arrays)");
+        check(Geometry.segmentBlocked(ax, ay, bx, by, robots, radius) == blocked, "segmentBlocked(list)");
+    }
+
+    private static void same(double got, double expected, String what) {
+        check(got == expected || Math.abs(got - expected) < 1e-12, what + ": " + got + ", expected " + expected);
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new AssertionError(message);
+    }
+}
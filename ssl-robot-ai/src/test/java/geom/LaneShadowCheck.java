@@ -0,0 +1,117 @@
+package geom;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import world.Robot;
+import world.RobotArrays;
+
+/**
+ * Runnable check: {@link LaneShadow} answers against the exhaustive segment test
+ * ({@link Geometry#segmentBlocked} and a first-slot scan) on random layouts, including opponents
+ * at the origin, lanes of zero length and teams larger than {@link LaneShadow#MAX_OPPS}.
+ *
+ * Exits nonzero on the first mismatch: {@code java -cp out geom.LaneShadowCheck}
+ */
+public final class LaneShadowCheck {
+
+    private LaneShadowCheck() {}
+
+    public static void main(String[] args) {
+        SplittableRandom rng = new SplittableRandom(3);
+        LaneShadow shadow = new LaneShadow();
+        RobotArrays team = new RobotArrays();
+        long lanes = 0;
+        for (int layout = 0; layout < 3000; layout++) {
+            int n = (layout % 50 == 0) ? rng.nextInt(60, 100) : rng.nextInt(0, 12);
+            double ax = rng.nextDouble(-4.5, 4.5);
+            double ay = rng.nextDouble(-3.0, 3.0);
+            List<Robot> robots = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if (rng.nextInt(8) == 0) {
+                    // Right next to the origin: shadows every direction.
+                    robots.add(new Robot(i, ax + rng.nextDouble(-0.2, 0.2), ay + rng.nextDouble(-0.2, 0.2), 0.0));
+                } else {
+                    robots.add(new Robot(i, rng.nextDouble(-4.5, 4.5), rng.nextDouble(-3.0, 3.0), 0.0));
+                }
+            }
+            double radius = rng.nextDouble(0.05, 0.6);
+
+            boolean fromList = (layout % 2 == 0);
+            if (fromList) {
+                shadow.update(ax, ay, robots, radius);
+            } else {
+                team.load(robots);
+                shadow.update(ax, ay, team, radius);
+            }
+
+            for (int q = 0; q < 200; q++) {
+                double bx;
+                double by;
+                if (q == 0) {
+                    bx = ax;
+                    by = ay;
+                } else if (q < 20 && n > 0) {
+                    // Lanes ending on or just past an opponent: the sector edges matter most here.
+                    Robot o = robots.get(rng.nextInt(n));
+                    bx = o.x + rng.nextDouble(-radius, radius);
+                    by = o.y + rng.nextDouble(-radius, radius);
+                } else {
+                    bx = rng.nextDouble(-4.5, 4.5);
+                    by = rng.nextDouble(-3.0, 3.0);
+                }
+                double r = (q % 3 == 0) ? radius : rng.nextDouble(0.0, radius);
+                lane(shadow, robots, ax, ay, bx, by, r, radius);
+                lanes++;
+            }
+
+            // Moving one opponent must rebuild the shadow on the next update.
+            if (n > 0) {
+                Robot o = robots.get(rng.nextInt(n));
+                o.x = ax + rng.nextDouble(-1.0, 1.0);
+                o.y = ay + rng.nextDouble(-1.0, 1.0);
+                if (fromList) {
+                    shadow.update(ax, ay, robots, radius);
+                } else {
+                    team.load(robots);
+                    shadow.update(ax, ay, team, radius);
+                }
+                for (int q = 0; q < 50; q++) {
+                    lane(shadow, robots, ax, ay, o.x + rng.nextDouble(-0.5, 0.5), o.y + rng.nextDouble(-0.5, 0.5), radius, radius);
+                    lanes++;
+                }
+            }
+        }
+        System.out.println("LaneShadowCheck: " + lanes + " lanes OK");
+    }
+
+    private static void lane(LaneShadow shadow, List<Robot> robots, double ax, double ay,
+                             double bx, double by, double r, double buildRadius) {
+        int first = -1;
+        for (int k = 0; k < robots.size(); k++) {
+            Robot o = robots.get(k);
+            if (Geometry.distToSegment2(o.x, o.y, ax, ay, bx, by) < r * r) {
+                first = k;
+                break;
+            }
+        }
+        String where = String.format("lane (%.4f, %.4f) -> (%.4f, %.4f), r %.4f", ax, ay, bx, by, r);
+        check(shadow.firstBlocker(bx, by, r) == first,
+                "firstBlocker " + shadow.firstBlocker(bx, by, r) + ", exhaustive " + first + " for " + where);
+        check(shadow.blocked(bx, by, r) == Geometry.segmentBlocked(ax, ay, bx, by, robots, r),
+                "blocked disagrees with segmentBlocked for " + where);
+
+        // The mask may over-approximate but must hold every slot blocking at the build radius.
+        long cand = shadow.candidates(bx, by);
+        for (int k = 0; k < Math.min(robots.size(), LaneShadow.MAX_OPPS); k++) {
+            Robot o = robots.get(k);
+            if (Geometry.distToSegment2(o.x, o.y, ax, ay, bx, by) < buildRadius * buildRadius) {
+                check((cand & (1L << k)) != 0, "slot " + k + " blocks but is not a candidate for " + where);
+            }
+        }
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new AssertionError(message);
+    }
+}
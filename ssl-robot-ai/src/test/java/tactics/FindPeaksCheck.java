@@ -0,0 +1,125 @@
+package tactics;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import world.Ball;
+import world.WorldState;
+
+/**
+ * Runnable check: {@link ScoreGrid#findPeaks} on random bump fields with holes that score NaN.
+ *
+ * The coarse peaks it picks must be exactly those of a brute-force non-maximum suppression over the
+ * same lattice; refinement may only improve a peak and stays within one coarse cell of it; a budget
+ * that runs out at once leaves the peaks of the first (ball) column, unrefined.
+ *
+ * Exits nonzero on the first mismatch: {@code java -cp out tactics.FindPeaksCheck}
+ */
+public final class FindPeaksCheck {
+    private static final double STEP = 0.25;
+
+    private FindPeaksCheck() {}
+
+    public static void main(String[] args) {
+        SplittableRandom rng = new SplittableRandom(5);
+        PeakField field = new PeakField(STEP);
+        SearchLattice lat = field.lat;
+        int cases = 0;
+        for (int c = 0; c < 300; c++) {
+            WorldState world = new WorldState();
+            world.ball = new Ball(rng.nextDouble(-4.5, 4.5), rng.nextDouble(-3.0, 3.0));
+            PositionScorer scorer = bumps(rng);
+            int k = rng.nextInt(1, 9);
+            double sep = rng.nextDouble(0.3, 2.5);
+
+            GridPoint[] peaks = ScoreGrid.findPeaks(world, 1, scorer, field, k, sep, null);
+            int[] expected = bruteForce(lat, scorer, world, k, sep);
+            check(peaks.length == expected.length, "found " + peaks.length + " peaks, brute force " + expected.length);
+            for (int p = 0; p < peaks.length; p++) {
+                check(field.picked[p] == expected[p], "peak " + p + " is sample " + field.picked[p] + ", brute force " + expected[p]);
+                double cx = lat.x((expected[p] / lat.ny) * lat.stride);
+                double cy = lat.y((expected[p] % lat.ny) * lat.stride);
+                double coarseScore = scorer.score(world, null, cx, cy, 1);
+                GridPoint g = peaks[p];
+                check(Double.isFinite(g.score), "peak " + p + " scores " + g.score);
+                check(g.score >= coarseScore, "refinement lowered peak " + p + ": " + g.score + " < " + coarseScore);
+                check(Math.abs(g.x - cx) < lat.coarse && Math.abs(g.y - cy) < lat.coarse, "peak " + p + " wandered off its cell");
+                check(g.score == scorer.score(world, null, g.x, g.y, 1), "peak " + p + " score does not match its point");
+            }
+
+            // A budget that is already spent: only the ball's column is scored and nothing is refined.
+            SearchBudget budget = new SearchBudget(1L);
+            budget.beginTick();
+            GridPoint[] cut = ScoreGrid.findPeaks(world, 1, scorer, field, k, sep, budget);
+            int home = (int) Math.round((world.ball.x - lat.x0) / lat.coarse);
+            home = Math.max(0, Math.min(lat.nx - 1, home));
+            double homeX = lat.x(home * lat.stride);
+            check(cut.length <= k, "budget cut returned " + cut.length + " peaks");
+            for (GridPoint g : cut) {
+                check(g.x == homeX, "budget cut peak at x " + g.x + " outside the ball column " + homeX);
+                double row = (g.y - lat.y0) / lat.coarse;
+                check(Math.abs(row - Math.rint(row)) < 1e-9, "budget cut peak at y " + g.y + " was refined off the coarse row");
+                check(Double.isFinite(g.score), "budget cut peak scores " + g.score);
+            }
+            cases++;
+        }
+        System.out.println("FindPeaksCheck: " + cases + " fields OK");
+    }
+
+    // A few Gaussian bumps; points inside some discs score NaN (a scorer that cannot answer there).
+    private static PositionScorer bumps(SplittableRandom rng) {
+        int n = rng.nextInt(1, 8);
+        double[] bx = new double[n];
+        double[] by = new double[n];
+        double[] h = new double[n];
+        double[] w = new double[n];
+        for (int i = 0; i < n; i++) {
+            bx[i] = rng.nextDouble(-4.5, 4.5);
+            by[i] = rng.nextDouble(-3.0, 3.0);
+            h[i] = rng.nextDouble(0.2, 2.0);
+            w[i] = rng.nextDouble(0.3, 1.5);
+        }
+        double hx = rng.nextDouble(-4.5, 4.5);
+        double hy = rng.nextDouble(-3.0, 3.0);
+        double hr = rng.nextDouble(0.0, 1.5);
+        return (world, self, x, y, teamSign) -> {
+            if ((x - hx) * (x - hx) + (y - hy) * (y - hy) < hr * hr) return Double.NaN;
+            double s = 0.0;
+            for (int i = 0; i < n; i++) {
+                double d2 = (x - bx[i]) * (x - bx[i]) + (y - by[i]) * (y - by[i]);
+                s += h[i] * Math.exp(-d2 / (w[i] * w[i]));
+            }
+            return s;
+        };
+    }
+
+    // Greedy non-maximum suppression over every coarse sample, in lattice order; ties keep the first.
+    private static int[] bruteForce(SearchLattice lat, PositionScorer scorer, WorldState world, int k, double sep) {
+        int n = lat.nx * lat.ny;
+        double[] s = new double[n];
+        for (int c = 0; c < n; c++) {
+            s[c] = scorer.score(world, null, lat.x((c / lat.ny) * lat.stride), lat.y((c % lat.ny) * lat.stride), 1);
+        }
+        int[] picked = new int[k];
+        int count = 0;
+        while (count < k) {
+            int best = -1;
+            for (int c = 0; c < n; c++) {
+                if (!Double.isFinite(s[c]) || (best >= 0 && !(s[c] > s[best]))) continue;
+                boolean near = false;
+                for (int p = 0; p < count; p++) {
+                    double dx = lat.x((c / lat.ny) * lat.stride) - lat.x((picked[p] / lat.ny) * lat.stride);
+                    double dy = lat.y((c % lat.ny) * lat.stride) - lat.y((picked[p] % lat.ny) * lat.stride);
+                    near |= dx * dx + dy * dy < sep * sep;
+                }
+                if (!near) best = c;
+            }
+            if (best < 0) break;
+            picked[count++] = best;
+        }
+        return Arrays.copyOf(picked, count);
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,78 @@
+package tactics;
+
+import java.util.SplittableRandom;
+
+/**
+ * Runnable check: {@link TargetAssignment#solve} against brute force over every injective
+ * row-to-column map on small random matrices (square and wide, with ties and negative costs), and
+ * the rejection of malformed input.
+ *
+ * Exits nonzero on the first mismatch: {@code java -cp out tactics.TargetAssignmentCheck}
+ */
+public final class TargetAssignmentCheck {
+
+    private TargetAssignmentCheck() {}
+
+    public static void main(String[] args) {
+        SplittableRandom rng = new SplittableRandom(4);
+        int cases = 0;
+        for (int c = 0; c < 20000; c++) {
+            int n = rng.nextInt(1, 7);
+            int m = n + rng.nextInt(0, 3);
+            double[][] cost = new double[n][m];
+            boolean ties = (c % 4 == 0);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < m; j++) {
+                    cost[i][j] = ties ? rng.nextInt(0, 4) : rng.nextDouble(-10.0, 10.0);
+                }
+            }
+            int[] cols = TargetAssignment.solve(cost);
+
+            check(cols.length == n, "expected " + n + " assignments, got " + cols.length);
+            boolean[] used = new boolean[m];
+            double total = 0.0;
+            for (int i = 0; i < n; i++) {
+                check(cols[i] >= 0 && cols[i] < m, "row " + i + " assigned to column " + cols[i]);
+                check(!used[cols[i]], "column " + cols[i] + " assigned twice");
+                used[cols[i]] = true;
+                total += cost[i][cols[i]];
+            }
+            double best = bruteForce(cost, 0, new boolean[m], 0.0);
+            check(Math.abs(total - best) < 1e-9, "total " + total + ", brute force " + best + " (" + n + "x" + m + ")");
+            cases++;
+        }
+
+        check(TargetAssignment.solve(new double[0][]).length == 0, "empty matrix");
+        rejects(new double[][] { { 1.0 }, { 2.0 } }, "more rows than columns");
+        rejects(new double[][] { { 1.0, 2.0 }, { 3.0 } }, "ragged row");
+        rejects(new double[][] { { 1.0, Double.NaN }, { 3.0, 4.0 } }, "NaN cost");
+        rejects(new double[][] { { 1.0, 2.0 }, { Double.POSITIVE_INFINITY, 4.0 } }, "infinite cost");
+        System.out.println("TargetAssignmentCheck: " + cases + " matrices OK");
+    }
+
+    // Minimal total over injective maps of rows i.. onto the columns not yet used.
+    private static double bruteForce(double[][] cost, int i, boolean[] used, double sum) {
+        if (i == cost.length) return sum;
+        double best = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < used.length; j++) {
+            if (used[j]) continue;
+            used[j] = true;
+            best = Math.min(best, bruteForce(cost, i + 1, used, sum + cost[i][j]));
+            used[j] = false;
+        }
+        return best;
+    }
+
+    private static void rejects(double[][] cost, String what) {
+        try {
+            TargetAssignment.solve(cost);
+        } catch (IllegalArgumentException expected) {
+            return;
+        }
+        throw new AssertionError(what + " was not rejected");
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new AssertionError(message);
+    }
+}
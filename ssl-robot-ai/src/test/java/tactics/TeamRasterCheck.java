@@ -0,0 +1,143 @@
+package tactics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import world.Ball;
+import world.Robot;
+import world.WorldState;
+
+/**
+ * Runnable check: the incremental {@link TeamRaster} at zero move tolerance against a fresh full
+ * fill of the same positions. Random passes move a few robots a little, some robots a lot, only
+ * the ball, or nothing; now and then the roster or the team side changes. Each pass looks up a
+ * random subset of lattice cells (so cells skip passes between lookups) and every few passes all
+ * of them, comparing every cached term with a raster built from scratch for that pass. A second
+ * incremental raster has its coarse cells filled on a fork/join pool every other pass
+ * ({@link TeamRaster#fillCoarse}) and must give the same terms. The interception term, which skips
+ * cells the opponents' arrival field rules out, is also compared with a plain scan of the opponents.
+ *
+ * Exits nonzero on the first mismatch: {@code java -cp out tactics.TeamRasterCheck}
+ */
+public final class TeamRasterCheck {
+
+    private static final double HALF_L = 4.5;
+    private static final double HALF_W = 3.0;
+
+    private TeamRasterCheck() {}
+
+    public static void main(String[] args) {
+        SplittableRandom rng = new SplittableRandom(5);
+        long lookups = 0;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (double step : new double[] { 0.45, 0.55 }) {
+            TeamRaster raster = new TeamRaster(step, 0.0, 0.0);
+            TeamRaster filled = new TeamRaster(step, 0.0, 0.0);
+            SearchLattice lat = new SearchLattice(step);
+            WorldState world = new WorldState();
+            world.ball = new Ball(0.0, 0.0);
+            for (int i = 0; i < 6; i++) {
+                world.ourRobots.add(randomRobot(rng, i));
+                world.oppRobots.add(randomRobot(rng, 10 + i));
+            }
+            int teamSign = +1;
+
+            for (int pass = 0; pass < 400; pass++) {
+                move(rng, world, pass);
+                if (pass % 97 == 96) {
+                    // Roster change: one robot leaves or comes back.
+                    List<Robot> team = rng.nextBoolean() ? world.ourRobots : world.oppRobots;
+                    if (team.size() > 3 && rng.nextBoolean()) {
+                        team.remove(rng.nextInt(team.size()));
+                    } else {
+                        team.add(randomRobot(rng, 20 + pass));
+                    }
+                }
+                if (pass % 131 == 130) teamSign = -teamSign;
+
+                world.refreshArrays();
+                raster.begin(world, teamSign);
+                filled.begin(world, teamSign);
+                if (pass % 2 == 0) filled.fillCoarse(pool, pass % 4 == 0);
+                TeamRaster fresh = new TeamRaster(step, 0.0, 0.0);
+                fresh.begin(world, teamSign);
+
+                if (pass % 50 == 0) {
+                    for (int i = lat.iMin; i <= lat.iMax; i++) {
+                        for (int j = lat.jMin; j <= lat.jMax; j++) {
+                            compare(raster, fresh, world, lat.x(i), lat.y(j), pass);
+                            compare(filled, fresh, world, lat.x(i), lat.y(j), pass);
+                            lookups += 2;
+                        }
+                    }
+                } else {
+                    for (int q = 0; q < 400; q++) {
+                        int i = rng.nextInt(lat.iMin, lat.iMax + 1);
+                        int j = rng.nextInt(lat.jMin, lat.jMax + 1);
+                        compare(raster, fresh, world, lat.x(i), lat.y(j), pass);
+                        compare(filled, fresh, world, lat.x(i), lat.y(j), pass);
+                        lookups += 2;
+                    }
+                }
+            }
+        }
+        pool.shutdown();
+        System.out.println("TeamRasterCheck: " + lookups + " cell lookups OK");
+    }
+
+    // One pass worth of motion; the mix depends on the pass so every branch of begin() is hit.
+    private static void move(SplittableRandom rng, WorldState world, int pass) {
+        int mode = pass % 5;
+        if (mode == 0) return; // nothing moved
+        if (mode != 1) {
+            List<Robot> all = new ArrayList<>(world.ourRobots);
+            all.addAll(world.oppRobots);
+            int movers = (mode == 2) ? 1 : rng.nextInt(1, all.size() + 1);
+            for (int k = 0; k < movers; k++) {
+                Robot r = all.get(rng.nextInt(all.size()));
+                double reach = (mode == 4) ? 2.0 : 0.04;
+                r.x = clamp(r.x + rng.nextDouble(-reach, reach), HALF_L);
+                r.y = clamp(r.y + rng.nextDouble(-reach, reach), HALF_W);
+            }
+        }
+        if (mode == 1 || rng.nextInt(3) == 0) {
+            world.ball.x = clamp(world.ball.x + rng.nextDouble(-0.3, 0.3), HALF_L);
+            world.ball.y = clamp(world.ball.y + rng.nextDouble(-0.3, 0.3), HALF_W);
+            world.ball.vx = rng.nextDouble(-3.0, 3.0);
+            world.ball.vy = rng.nextDouble(-3.0, 3.0);
+        }
+    }
+
+    private static void compare(TeamRaster raster, TeamRaster fresh, WorldState world, double x, double y, int pass) {
+        String where = String.format(" at (%.4f, %.4f), pass %d", x, y, pass);
+        check(raster.oppDist(x, y) == fresh.oppDist(x, y),
+                "oppDist " + raster.oppDist(x, y) + ", fresh " + fresh.oppDist(x, y) + where);
+        check(raster.shotBlocked(x, y) == fresh.shotBlocked(x, y), "shotBlocked differs" + where);
+        check(raster.passInterceptable(x, y) == fresh.passInterceptable(x, y), "passInterceptable differs" + where);
+        double ballSpeed = Math.sqrt(world.ball.vx * world.ball.vx + world.ball.vy * world.ball.vy);
+        boolean scanned = TeamRaster.passInterceptable(world.oppArrays, world.ball.x, world.ball.y,
+                TeamRaster.assumedPassSpeed(ballSpeed), x, y);
+        check(fresh.passInterceptable(x, y) == scanned, "passInterceptable differs from the scan" + where);
+        check(raster.openPassLanes(-1, x, y) == fresh.openPassLanes(-1, x, y),
+                "openPassLanes " + raster.openPassLanes(-1, x, y) + ", fresh " + fresh.openPassLanes(-1, x, y) + where);
+        for (Robot r : world.ourRobots) {
+            check(raster.openPassLanes(r.id, x, y) == fresh.openPassLanes(r.id, x, y),
+                    "openPassLanes without " + r.id + " differs" + where);
+            check(raster.mateDist(r.id, x, y) == fresh.mateDist(r.id, x, y),
+                    "mateDist without " + r.id + " differs" + where);
+        }
+    }
+
+    private static Robot randomRobot(SplittableRandom rng, int id) {
+        return new Robot(id, rng.nextDouble(-HALF_L, HALF_L), rng.nextDouble(-HALF_W, HALF_W), 0.0);
+    }
+
+    private static double clamp(double v, double half) {
+        return Math.max(-half, Math.min(half, v));
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new AssertionError(message);
+    }
+}
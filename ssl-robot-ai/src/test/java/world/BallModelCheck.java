@@ -0,0 +1,157 @@
+package world;
+
+import java.util.SplittableRandom;
+
+/**
+ * Runnable check: {@link BallModel}'s closed forms against the simulator's stepped integration
+ * (move {@code v * dt}, then {@code v *= damping}) for several tick rates and launch speeds, and
+ * {@link BallModel#interceptTime} against a fine scan for the earliest intercept, including
+ * robots just off the ball's path that only have a short window to reach it.
+ *
+ * Exits nonzero on the first mismatch. Run after compiling main and test sources together:
+ * {@code java -cp out world.BallModelCheck}
+ */
+public final class BallModelCheck {
+    // Relative tolerance: the closed forms use exp/log, the stepped sums accumulate rounding.
+    private static final double TOL = 1e-6;
+    // Sampling step of the brute-force intercept scan, seconds.
+    private static final double SCAN_STEP = 1e-4;
+    private static final double REACH = 0.09;
+
+    private BallModelCheck() {}
+
+    public static void main(String[] args) {
+        SplittableRandom rng = new SplittableRandom(1);
+        double[] rates = { 30.0, 60.0, 120.0, 240.0 };
+        int cases = 0;
+        for (double hz : rates) {
+            BallModel m = new BallModel(1.0 / hz);
+            check(Math.abs(Math.pow(m.damping, hz / 60.0) - BallModel.DAMPING_PER_60HZ_TICK) < 1e-12,
+                    "damping at " + hz + " Hz does not compose to the 60 Hz value");
+            for (int c = 0; c < 50; c++) {
+                double vx = rng.nextDouble(-6.0, 6.0);
+                double vy = rng.nextDouble(-6.0, 6.0);
+                Ball ball = new Ball(rng.nextDouble(-4.0, 4.0), rng.nextDouble(-3.0, 3.0));
+                stepped(m, ball, vx, vy, (int) (10 * hz));
+                double rx = rng.nextDouble(-4.5, 4.5);
+                double ry = rng.nextDouble(-3.0, 3.0);
+                double speed = rng.nextDouble(0.5, 3.0);
+                intercept(m, ball, rx, ry, speed);
+                earliest(m, ball, rx, ry, speed);
+                narrowWindow(m, rng);
+                cases++;
+            }
+        }
+        System.out.println("BallModelCheck: " + cases + " launches OK");
+    }
+
+    // A fast ball passing a slow robot just within reach: feasible for a short while around the
+    // robot's foot point, then out of reach until the ball has slowed down.
+    private static void narrowWindow(BallModel m, SplittableRandom rng) {
+        double v0 = rng.nextDouble(3.0, 6.0);
+        double dir = rng.nextDouble(0.0, 2.0 * Math.PI);
+        Ball ball = new Ball(rng.nextDouble(-2.0, 2.0), rng.nextDouble(-1.5, 1.5));
+        ball.vx = v0 * Math.cos(dir);
+        ball.vy = v0 * Math.sin(dir);
+        double speed = rng.nextDouble(0.2, 1.0);
+        double a = rng.nextDouble(0.3, 0.8) * m.stopDistance(v0);
+        double off = REACH + speed * m.timeToDistance(v0, a) * (1.0 - Math.pow(10.0, -rng.nextDouble(1.0, 4.0)));
+        double side = rng.nextBoolean() ? off : -off;
+        double rx = ball.x + Math.cos(dir) * a - Math.sin(dir) * side;
+        double ry = ball.y + Math.sin(dir) * a + Math.cos(dir) * side;
+        earliest(m, ball, rx, ry, speed);
+    }
+
+    // interceptTime must be an intercept, and no sample of a fine scan before it may be one.
+    private static void earliest(BallModel m, Ball ball, double rx, double ry, double speed) {
+        double t = m.interceptTime(ball, rx, ry, speed, REACH);
+        check(slack(m, ball, rx, ry, speed, t) <= 1e-9, "interceptTime " + t + " is not an intercept");
+        for (int i = 0; i * SCAN_STEP < t - 1e-9; i++) {
+            double s = i * SCAN_STEP;
+            check(slack(m, ball, rx, ry, speed, s) > 0.0,
+                    "interceptTime " + t + " is later than the intercept at " + s);
+        }
+    }
+
+    // Robot travel still needed to meet the closed-form ball at t (<= 0: in time).
+    private static double slack(BallModel m, Ball ball, double rx, double ry, double speed, double t) {
+        double[] p = m.positionAt(ball, t);
+        return Math.hypot(p[0] - rx, p[1] - ry) - REACH - speed * t;
+    }
+
+    // Integrate one launch tick by tick and compare every closed form on each tick boundary.
+    private static void stepped(BallModel m, Ball start, double vx, double vy, int ticks) {
+        start.vx = vx;
+        start.vy = vy;
+        double v0 = Math.sqrt(vx * vx + vy * vy);
+        double x = start.x;
+        double y = start.y;
+        double svx = vx;
+        double svy = vy;
+        double rolled = 0.0;
+        for (int k = 1; k <= ticks; k++) {
+            double sx = svx * m.dt;
+            double sy = svy * m.dt;
+            x += sx;
+            y += sy;
+            rolled += Math.sqrt(sx * sx + sy * sy);
+            svx *= m.damping;
+            svy *= m.damping;
+
+            double t = k * m.dt;
+            near(m.speedAt(v0, t), Math.sqrt(svx * svx + svy * svy), "speedAt", k);
+            near(m.distanceAt(v0, t), rolled, "distanceAt", k);
+            double[] p = m.positionAt(start, t);
+            near(p[0], x, "positionAt.x", k);
+            near(p[1], y, "positionAt.y", k);
+            if (rolled < m.stopDistance(v0) * (1.0 - 1e-6)) {
+                near(m.timeToDistance(v0, rolled), t, "timeToDistance", k);
+            }
+        }
+
+        // Long enough for the remaining roll to vanish: the stepped sum converges to stopDistance.
+        double tail = rolled;
+        double tx = svx;
+        double ty = svy;
+        for (int k = 0; k < 200000 && tx * tx + ty * ty > 1e-24; k++) {
+            tail += Math.sqrt(tx * tx + ty * ty) * m.dt;
+            tx *= m.damping;
+            ty *= m.damping;
+        }
+        near(m.stopDistance(v0), tail, "stopDistance", -1);
+        check(m.timeToDistance(v0, m.stopDistance(v0) * 1.01) == Double.POSITIVE_INFINITY,
+                "timeToDistance past the stop point should be +inf");
+    }
+
+    // interceptTime must name a time at which the robot really reaches the stepped ball position.
+    private static void intercept(BallModel m, Ball ball, double rx, double ry, double speed) {
+        final double reach = REACH;
+        double t = m.interceptTime(ball, rx, ry, speed, reach);
+        check(t >= 0.0 && !Double.isNaN(t), "interceptTime returned " + t);
+        int k = (int) Math.ceil(t / m.dt - 1e-9);
+        double x = ball.x;
+        double y = ball.y;
+        double vx = ball.vx;
+        double vy = ball.vy;
+        for (int i = 0; i < k; i++) {
+            x += vx * m.dt;
+            y += vy * m.dt;
+            vx *= m.damping;
+            vy *= m.damping;
+        }
+        // The ball moved at most one tick's roll between t and the tick boundary after it.
+        double slack = Math.hypot(x - rx, y - ry) - reach - speed * k * m.dt;
+        check(slack <= Math.hypot(ball.vx, ball.vy) * m.dt + 1e-6,
+                "interceptTime " + t + " leaves the robot " + slack + " m short");
+    }
+
+    private static void near(double closed, double stepped, String what, int tick) {
+        double scale = Math.max(1.0, Math.abs(stepped));
+        check(Math.abs(closed - stepped) <= TOL * scale,
+                what + " at tick " + tick + ": closed form " + closed + ", stepped " + stepped);
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) throw new AssertionError(message);
+    }
+}